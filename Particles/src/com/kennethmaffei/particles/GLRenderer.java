@@ -16,13 +16,23 @@
 
 package com.kennethmaffei.particles;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
-import android.graphics.PointF;
 import android.opengl.GLES11;
 import android.opengl.GLSurfaceView.Renderer;
-import android.opengl.GLU;
+import android.opengl.Matrix;
 
 /**
  * This is our GLES11 rendering class
@@ -33,22 +43,64 @@ import android.opengl.GLU;
 public class GLRenderer implements Renderer {
 
 	boolean graphicsLoaded;
-	private static GenericParticleSystem steam = new GenericParticleSystem();
-	private static Fire fire = new Fire();
-	private static BlackSmoke blackSmoke = new BlackSmoke();
-	Quad firePit;
-	long currentTime;
-	long prevTime;
-	float deltaT;
 	
 	enum PARTICLE_TYPE {STEAM, BLACK_SMOKE, FIRE};
-	PARTICLE_TYPE particleType = PARTICLE_TYPE.STEAM;
+	static final PARTICLE_TYPE[] PARTICLE_TYPES = PARTICLE_TYPE.values();
+	
+	//Systems are built the first time they are shown, not up front, so start up and memory
+	//scale with what is on screen. Off-screen systems are dropped, particle pool and all,
+	//once they have been idle for releaseAfter seconds, and rebuilt if they are picked again.
+	ParticleSystem[] systems = new ParticleSystem[PARTICLE_TYPES.length];
+	float[] idleTime = new float[PARTICLE_TYPES.length];  //Seconds each built system has been off screen
+	float releaseAfter = 30.0f;                           //Negative keeps every built system
+	
+	volatile PARTICLE_TYPE particleType = PARTICLE_TYPE.STEAM; //Picked on the UI thread
+	PARTICLE_TYPE activeType;                             //On screen, only changed on the GL thread
+	PARTICLE_TYPE previousType;                           //On screen before, the likeliest next pick
+	
+	//The systems on screen. Owned by the simulation thread when pipelined.
+	ParticleWorld world = new ParticleWorld();
+	
+	//Scales emission and particle size down when the particle work doesn't fit the frame
+	QualityGovernor governor = new QualityGovernor();
+	
+	//Optional background construction of the system likely to be picked next
+	boolean prefetch;
+	ExecutorService prefetcher;
+	Future<ParticleSystem> prefetched;
+	PARTICLE_TYPE prefetchedType;
+	
+	//The effects, compiled from Particles/effects/*.json by :particles-tools:compileEffects
+	EffectLibrary effects;
+	
+	//Every sprite in the demo lives on one atlas page, so the systems can share batches
+	int atlasTexture;
+	TextureAtlas atlas;
+	Quad firePit;                                         //Built with the first system that sits on it
+	
+	//Shared, reference counted textures. They survive GL context loss.
+	TextureManager textures;
+	
+	//Fixed step simulation clock. Rendering interpolates between the last two steps.
+	SimulationClock clock = new SimulationClock();
+	
+	//Optional simulation thread. When pipelined, the systems are simulated off the GL thread
+	//and we draw the snapshots it publishes.
+	boolean pipelined;
+	SimulationThread simulation;
 	
-	//Vector3s needed for billboarding (facing particles)
 	Vector3 camPos = new Vector3(0.0f, 0.0f, 1500.0f);
-	Vector3 objToCamProj = new Vector3();
-	Vector3 lookAt = new Vector3();
-	Vector3 objToCam = new Vector3();
+	float[] viewMatrix = new float[16];
+	float[] projectionMatrix = new float[16];
+	
+	//The camera's view volume, rebuilt every frame for culling
+	Frustum frustum = new Frustum();
+	
+	//Billboarding (facing particles) bases, shared by every system
+	Billboard billboard = new Billboard();
+	
+	//Draws every system through one batch
+	ParticleRenderer particleRenderer = new ParticleRenderer(billboard);
 	
 	@Override
 	public void onSurfaceChanged(GL10 gl, int width, int height) {
@@ -60,7 +112,12 @@ public class GLRenderer implements Renderer {
 		GLES11.glMatrixMode(GL10.GL_PROJECTION);
 		GLES11.glLoadIdentity();
 		
-		GLU.gluPerspective(gl, 45.0f, (float)width/(float)height, 1.0f, 5000.0f);
+		//The same matrix gluPerspective builds, kept so the frustum can be extracted from it
+		float near = 1.0f;
+		float top = near*(float) Math.tan(Globals.Deg2Rad(45.0f/2.0f));
+		float right = top*(float)width/(float)height;
+		Matrix.frustumM(projectionMatrix, 0, -right, right, -top, top, near, 5000.0f);
+		GLES11.glLoadMatrixf(projectionMatrix, 0);
 		
 		GLES11.glMatrixMode(GL10.GL_MODELVIEW);     	//Select The Modelview Matrix 
 	}
@@ -81,22 +138,68 @@ public class GLRenderer implements Renderer {
 		//Nice Perspective Calculations 
 		GLES11.glHint(GL10.GL_PERSPECTIVE_CORRECTION_HINT, GL10.GL_NICEST);
 		
-		//Create our systems
-		CreateSystems(gl);
+		//A second onSurfaceCreated means the GL context was lost.
+		//The systems are fine, only their textures need uploading again.
+		if(graphicsLoaded)
+			textures.restore();
+		else
+			loadGraphics();
 	}
 	
 	/**
-	 * Calculate the time between each frame
+	 * Call when the activity resumes, so the time spent paused is not simulated
+	 */
+	public void onResume() {
+		clock.reset();
+		if(simulation != null && graphicsLoaded)
+			simulation.start();
+	}
+	
+	/**
+	 * Call when the activity pauses
+	 */
+	public void onPause() {
+		if(simulation != null)
+			simulation.stop();
+	}
+	
+	/**
+	 * Simulate on a dedicated thread, pipelined with rendering.
+	 * Set before the surface is created.
 	 * 
-	 * @return - the time in seconds
+	 * @param pipelined - true to use the simulation thread
 	 */
-	public float deltaTime()
-	{
-		currentTime = System.currentTimeMillis();
-		deltaT = (float)(currentTime - prevTime)/1000.0f;
-		prevTime = currentTime;
-		
-		return deltaT;
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+	
+	/**
+	 * Build the system the user is likely to pick next on a background thread,
+	 * so switching to it doesn't stall a frame
+	 * 
+	 * @param prefetch - true to prefetch
+	 */
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+	
+	/**
+	 * Sets how long an off-screen system keeps its particle pool
+	 * 
+	 * @param seconds - idle seconds before the system is dropped, negative to never drop it
+	 */
+	public void setReleaseAfter(float seconds) {
+		releaseAfter = seconds;
+	}
+	
+	/**
+	 * Sets the time the particle update and draw should fit in each frame.
+	 * Quality is lowered to hold it.
+	 * 
+	 * @param seconds - the budget
+	 */
+	public void setFrameBudget(float seconds) {
+		governor.setBudget(seconds);
 	}
 	
 	@Override
@@ -105,144 +208,258 @@ public class GLRenderer implements Renderer {
 		if(!graphicsLoaded)
 			return;
 		
-		float deltaT = deltaTime();
+		int steps = clock.advance();
+		float stepTime = clock.getStepTime();
+		float alpha = clock.getAlpha();
+		
+		PARTICLE_TYPE requested = particleType;
+		if(requested != activeType)
+			activate(requested);
+		collectPrefetch();
+		releaseIdleSystems(steps*stepTime);
 		
 		//Clear Screen and Depth Buffer 
 		GLES11.glClear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT); 
 		GLES11.glMatrixMode(GLES11.GL_MODELVIEW);
-		GLES11.glLoadIdentity();
 		
 		GLES11.glEnableClientState(GLES11.GL_VERTEX_ARRAY); 
 		GLES11.glEnableClientState(GLES11.GL_TEXTURE_COORD_ARRAY); 
 		
-		GLU.gluLookAt(gl, camPos.x, camPos.y, camPos.z, 0, 0, 0, 0, 1, 0.0f);
+		//Build the view matrix ourselves so the billboard can read the camera axes out of it
+		Matrix.setLookAtM(viewMatrix, 0, camPos.x, camPos.y, camPos.z, 0, 0, 0, 0, 1, 0.0f);
+		GLES11.glLoadMatrixf(viewMatrix, 0);
 		
 		//Billboarding!
 		//This is how we make the particles turn towards the camera
-		//To keep things efficient we only do it once per frame
-		//The more correct, but expensive, way is to do it for each particle
-		//Here we just do it against the particle system's origin rather than each particles origin
-		objToCamProj.copy(camPos);
-		objToCamProj.subtract(fire.origin);
-		objToCamProj.y = 0.0f;
-		objToCamProj.normalize();
-		
-		lookAt.x = 0;
-		lookAt.y = 0;
-		lookAt.z = 1;
-		Globals.upAux = Vector3.crossProduct(lookAt, objToCamProj);
-		Globals.upAux.normalize();
-		
-		Globals.theta = Vector3.dotProduct(lookAt, objToCamProj);
-		Globals.thetaTest = (Globals.theta < 0.99990) && (Globals.theta > -0.9999);
+		//The camera bases are taken once per frame and every particle's corners are expanded along them
+		billboard.setView(viewMatrix);
 		
-		objToCam.copy(camPos);
-		objToCam.subtract(fire.origin);
-		objToCam.normalize();
+		frustum.set(projectionMatrix, viewMatrix);
+			    
+		setClearColor();
+		//Pipelined, the update runs on another core, so only drawing counts against this thread's frame
+		governor.beginSection();
+		if(pipelined) {
+			//The simulation thread owns the world, draw its latest snapshot
+			//Systems sharing the atlas go out in a single draw call
+			RenderSnapshot snapshot = simulation.acquireSnapshot();
+			particleRenderer.draw(snapshot, frustum, snapshot.getAlpha(System.nanoTime()));
+		}
+		else {
+			//Culling first, so an off-screen fixed system can skip its update
+			world.cull(frustum);
+			for(int i=0; i<steps; i++)
+				world.update(stepTime);
+			particleRenderer.draw(world, alpha);
+		}
+		governor.endSection();
+		governor.endFrame();
+		governor.apply(world);
 		
-		Globals.phi = Vector3.dotProduct(objToCamProj, objToCam);
-		Globals.phiTest = (Globals.phi < 0.99990) && (Globals.phi > -0.9999);
+		if(activeType != PARTICLE_TYPE.STEAM)
+			firePit.draw(gl);
 		
-		Globals.billboardDirectionTest = (objToCam.y < 0);
-			    
-		switch (particleType) {
-			case STEAM:
-				GLES11.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
-				steam.update(deltaT);
-				steam.draw(gl);
-				break;
+		//Disable the client state before leaving 
+		GLES11.glDisableClientState(GLES11.GL_VERTEX_ARRAY); 
+		GLES11.glDisableClientState(GLES11.GL_TEXTURE_COORD_ARRAY);
+	}
+	
+	/**
+	 * Sets the clear color for the current particle type
+	 */
+	private void setClearColor() {
+		switch (activeType) {
 			case BLACK_SMOKE:
 				GLES11.glClearColor(0.8f, 0.8f, 0.8f, 1.0f);
-				blackSmoke.update(deltaT);
-				blackSmoke.draw(gl);
-				firePit.draw(gl);
 				break;
-			case FIRE:
+			default:
 				GLES11.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
-				fire.update(deltaT);
-				fire.draw(gl);
-				firePit.draw(gl);
 		}
+	}
+	
+	/**
+	 * Loads what every system needs and shows the first one.
+	 * The other systems are built when they are picked, or prefetched.
+	 */
+	void loadGraphics() {
+		if(textures == null)
+			textures = new TextureManager(DeviceGlobals.context.getAssets());
 		
-		//Disable the client state before leaving 
-		GLES11.glDisableClientState(GLES11.GL_VERTEX_ARRAY); 
-		GLES11.glDisableClientState(GLES11.GL_TEXTURE_COORD_ARRAY);
+		if(effects == null)
+			effects = loadEffects("effects" + EffectLibrary.EXTENSION);
+		
+		atlasTexture = textures.acquireAtlas("particles", "particle_transp.jpg", "fire_pit.png");
+		atlas = textures.getAtlas("particles");
+		
+		graphicsLoaded = true;
+		activate(particleType);
+		clock.reset(); //Reset timers
 	}
 	
 	/**
-	 * Create the particle systems for the demo
+	 * Puts a system on screen, building it if needed. GL thread only.
 	 * 
-	 * @param gl - the openGl context
+	 * @param type - the system to show
 	 */
-	void CreateSystems(GL10 gl) {
-		//Steam system
-		steam.loadTexture(gl, "particle_transp.jpg");
-		steam.setStartColor(0.75f, 0.75f, 0.9f, 0.25f);
-		steam.setMidColor(0.75f, 0.75f, 0.9f, 0.15f);
-		steam.setEndColor(0.75f, 0.75f, 0.9f, 0.0f);
-		steam.setEmitterVolume(10.0f, 1.0f, 10.0f);
-		PointF startSize = new PointF();
-		startSize.x = 100.0f;
-		startSize.y = 150.0f;
-		PointF endSize = new PointF();
-		endSize.x = 200.0f;
-		endSize.y = 800.0f;
-		steam.setParticleSize(startSize, endSize);
-		steam.setParticleLife(200, 55, 1.0f, 0.5f);
-		Vector3 velocity = new Vector3();
-		velocity.x = 0.0f;
-		velocity.y = 1000.0f;
-		velocity.z = 0.0f;
-		Vector3 velocityVariation = new Vector3(150.0f, 30.0f, 150.0f);
-		Vector3 acceleration = new Vector3(0.0f, -800.0f, 0.0f);
-		steam.setMotion(velocity, velocityVariation, acceleration);
-		Vector3 origin = new Vector3(0.0f, -300.0f, 0.0f);
-		steam.startSystem(origin, -1.0f);
+	private void activate(PARTICLE_TYPE type) {
+		int slot = type.ordinal();
+		if(systems[slot] == null) {
+			//Already being built in the background? Waiting is quicker than starting over.
+			if(prefetched != null && prefetchedType == type)
+				systems[slot] = takePrefetched();
+			if(systems[slot] == null)
+				systems[slot] = build(type);
+		}
+		idleTime[slot] = 0.0f;
 		
-		//Fire system
-		fire.loadTexture(gl, "particle_transp.jpg");
-		fire.setEmitterVolume(240.0f, 100.0f, 240.0f);
-		startSize = new PointF();
-		startSize.x = 160.0f;
-		startSize.y = 240.0f;
-		endSize = new PointF();
-		endSize.x = 120.0f;
-		endSize.y = 600.0f;
-		fire.setParticleSize(startSize, endSize);
-		fire.setParticleLife(80, 60.0f, 2.0f, 0.5f);
-		velocity = new Vector3(0.0f, 500.0f, 0.0f);
-		velocityVariation = new Vector3(120.0f, 180.0f, 120.0f);
-		acceleration = new Vector3();
-		fire.setMotion(velocity, velocityVariation, acceleration);
-		origin = new Vector3(0.0f, -300.0f, 0.0f);
-		fire.startSystem(origin, -1.0f);
+		if(activeType != null && activeType != type)
+			previousType = activeType;
+		activeType = type;
 		
-		Vector3 firePitPosition = new Vector3(0.0f, -325.0f, 200.0f);
-		firePit = new Quad(500, 300, firePitPosition);
-		firePit.isFacingParticle = false;
-		firePit.isParticle = false;
-		firePit.loadTexture(gl, "fire_pit.png");
+		if(type != PARTICLE_TYPE.STEAM && firePit == null) {
+			Vector3 firePitPosition = new Vector3(0.0f, -325.0f, 200.0f);
+			firePit = new Quad(500, 300, firePitPosition);
+			firePit.isParticle = false;
+			firePit.setTexture(atlasTexture);
+			firePit.setTextureRegion(atlas.getRegion("fire_pit.png"));
+		}
 		
-		//Black smoke system
-		blackSmoke.loadTexture(gl, "particle_transp.jpg");
-		blackSmoke.setEmitterVolume(100.0f, 50.0f, 100.0f);
-		startSize = new PointF();
-		startSize.x = 100.0f;
-		startSize.y = 180.0f;
-		endSize = new PointF();
-		endSize.x = 500.0f;
-		endSize.y = 300.0f;
-		blackSmoke.setParticleSize(startSize, endSize);
-		blackSmoke.setParticleLife(50, 20.0f, 4.0f, 2.0f);
-		velocity = new Vector3(0.0f, 250.0f, 0.0f);
-		velocityVariation = new Vector3(60.0f, 100.0f, 60.0f);
-		acceleration = new Vector3();
-		blackSmoke.setMotion(velocity, velocityVariation, acceleration);
-		origin = new Vector3(0.0f, -300.0f, 0.0f);
-		blackSmoke.startSystem(origin, -1.0f);
+		//A new world rather than changing the old one, which the simulation thread may still be stepping
+		world = new ParticleWorld();
+		world.add(systems[slot]);
+		if(pipelined) {
+			if(simulation == null)
+				simulation = new SimulationThread();
+			simulation.setWorld(world);
+			simulation.start();
+		}
 		
-		graphicsLoaded = true;
-		currentTime = prevTime = System.currentTimeMillis(); //Reset timers
+		prefetchNext();
+	}
+	
+	/**
+	 * Starts building the likeliest next pick in the background: the system shown before
+	 * this one, or else the first one that isn't built
+	 */
+	private void prefetchNext() {
+		if(!prefetch || prefetched != null)
+			return;
+		
+		PARTICLE_TYPE next = null;
+		if(previousType != null && systems[previousType.ordinal()] == null)
+			next = previousType;
+		else {
+			for(PARTICLE_TYPE type : PARTICLE_TYPES) {
+				if(systems[type.ordinal()] == null) {
+					next = type;
+					break;
+				}
+			}
+		}
+		if(next == null)
+			return;
+		
+		if(prefetcher == null) {
+			prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ParticlePrefetch");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		
+		final PARTICLE_TYPE type = next;
+		prefetchedType = type;
+		prefetched = prefetcher.submit(new Callable<ParticleSystem>() {
+			@Override
+			public ParticleSystem call() {
+				return build(type);
+			}
+		});
+	}
+	
+	/**
+	 * Moves a finished prefetch into its slot
+	 */
+	private void collectPrefetch() {
+		if(prefetched == null || !prefetched.isDone())
+			return;
+		
+		int slot = prefetchedType.ordinal();
+		ParticleSystem system = takePrefetched();
+		if(systems[slot] == null && system != null) {
+			systems[slot] = system;
+			idleTime[slot] = 0.0f;
+		}
+	}
+	
+	private ParticleSystem takePrefetched() {
+		Future<ParticleSystem> future = prefetched;
+		prefetched = null;
+		try {
+			return future.get();
+		}
+		catch(Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Drops the systems that have been off screen for longer than releaseAfter
+	 * 
+	 * @param frameTime - the time since the last frame
+	 */
+	private void releaseIdleSystems(float frameTime) {
+		for(int slot=0; slot<systems.length; slot++) {
+			if(systems[slot] == null || slot == activeType.ordinal())
+				continue;
+			
+			idleTime[slot]+= frameTime;
+			if(releaseAfter >= 0.0f && idleTime[slot] > releaseAfter)
+				systems[slot] = null;     //The particle pool goes with it
+		}
+	}
+	
+	/**
+	 * Creates and starts a system for the demo from its effect definition, named after the type.
+	 * Only touches the new system, so it is safe on the prefetch thread.
+	 * 
+	 * @param type - the system to build
+	 * @return - the running system
+	 */
+	ParticleSystem build(PARTICLE_TYPE type) {
+		EffectDefinition effect = effects.get(type.name().toLowerCase(Locale.US));
+		//Every demo effect is drawn from the particle atlas, which is already uploaded
+		return effect.create(atlasTexture, atlas);
+	}
+	
+	/**
+	 * Reads the effect library asset. It is small, so it is simply read into memory.
+	 * 
+	 * @param file - the .pfx asset
+	 * @return - the library
+	 */
+	private EffectLibrary loadEffects(String file) {
+		try {
+			InputStream is = DeviceGlobals.context.getAssets().open(file);
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				int read;
+				while((read = is.read(buffer)) > 0)
+					bytes.write(buffer, 0, read);
+				return EffectLibrary.read(ByteBuffer.wrap(bytes.toByteArray()));
+			}
+			finally {
+				is.close();
+			}
+		}
+		catch(IOException IOerror) {
+			throw new RuntimeException("Can't load the effect library " + file, IOerror);
+		}
 	}
 	
 	public void setToSteam() {
@@ -53,7 +53,7 @@ public class MainActivity extends Activity {
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		
-		Globals.context = this;
+		DeviceGlobals.context = this;
 		
 		//Requesting to turn the title OFF 
 		requestWindowFeature(Window.FEATURE_NO_TITLE); 
@@ -67,11 +67,15 @@ public class MainActivity extends Activity {
 		DisplayMetrics dm = new DisplayMetrics();
 		wm.getDefaultDisplay().getMetrics(dm);
 		
-		Globals.deviceWidth = dm.widthPixels;
-		Globals.deviceHeight = dm.heightPixels;
+		DeviceGlobals.deviceWidth = dm.widthPixels;
+		DeviceGlobals.deviceHeight = dm.heightPixels;
 		
 		glSurfaceView = new GLSurfaceView(this);
 		glRenderer = new GLRenderer();
+		//Simulate on its own thread when there's a spare core for it
+		glRenderer.setPipelined(Runtime.getRuntime().availableProcessors() > 1);
+		//Only the first system is built before the first frame, get the next one ready in the background
+		glRenderer.setPrefetch(true);
 		glSurfaceView.setRenderer(glRenderer); 
 		setContentView(glSurfaceView);
 		
@@ -90,14 +94,14 @@ public class MainActivity extends Activity {
 		rl3.addView(smokeButton);
 		rl3.setGravity(Gravity.CENTER_HORIZONTAL | Gravity.CENTER_VERTICAL);
 		
-		heightScale = Globals.deviceHeight/1280.0f;
+		heightScale = DeviceGlobals.deviceHeight/1280.0f;
 		
 		//Lay out the buttons dynamically
 		Bitmap bitmap = loadGraphic("steamButton.jpg");
 		if(bitmap != null) {
 			steamButton.setImageBitmap(bitmap);
 			
-			int layoutHeight = 2*(int)(Globals.deviceHeight - bitmap.getHeight());
+			int layoutHeight = 2*(int)(DeviceGlobals.deviceHeight - bitmap.getHeight());
 			int layoutWidth = bitmap.getWidth();
 			
 			RelativeLayout.LayoutParams rlParams = new RelativeLayout.LayoutParams(layoutWidth, layoutHeight);
@@ -115,8 +119,8 @@ public class MainActivity extends Activity {
 		if(bitmap != null) {
 			fireButton.setImageBitmap(bitmap);
 			
-			int layoutHeight = 2*(int)(Globals.deviceHeight - bitmap.getHeight());
-			int layoutWidth = 2*(int)Globals.deviceWidth - bitmap.getWidth();
+			int layoutHeight = 2*(int)(DeviceGlobals.deviceHeight - bitmap.getHeight());
+			int layoutWidth = 2*(int)DeviceGlobals.deviceWidth - bitmap.getWidth();
 			
 			RelativeLayout.LayoutParams rlParams = new RelativeLayout.LayoutParams(layoutWidth, layoutHeight);
 			addContentView(rl2, rlParams);
@@ -133,8 +137,8 @@ public class MainActivity extends Activity {
 		if(bitmap != null) {
 			smokeButton.setImageBitmap(bitmap);
 			
-			int layoutHeight = 2*(int)(Globals.deviceHeight - bitmap.getHeight());
-			int layoutWidth = (int)Globals.deviceWidth;
+			int layoutHeight = 2*(int)(DeviceGlobals.deviceHeight - bitmap.getHeight());
+			int layoutWidth = (int)DeviceGlobals.deviceWidth;
 			
 			RelativeLayout.LayoutParams rlParams = new RelativeLayout.LayoutParams(layoutWidth, layoutHeight);
 			addContentView(rl3, rlParams);
@@ -181,6 +185,7 @@ public class MainActivity extends Activity {
     protected void onResume() { 
         super.onResume(); 
 
+        glRenderer.onResume();
         glSurfaceView.onResume(); 
     } 
 
@@ -189,5 +194,6 @@ public class MainActivity extends Activity {
         super.onPause(); 
 
         glSurfaceView.onPause(); 
+        glRenderer.onPause();
     } 
 }
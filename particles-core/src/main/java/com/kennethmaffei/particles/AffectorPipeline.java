@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * The per-particle update of a system, as a fixed sequence of configurable stages:
+ * 
+ * AGE - drains life, faster once the system is shutting down if configured
+ * INTEGRATE - moves particles along their velocity, scaled by an optional speed curve
+ * ACCELERATE - adds each particle's acceleration, an optional constant gravity and any force
+ * fields (attractors, vortices, wind, curl noise turbulence) to its velocity
+ * DRAG - damps velocity by an optional drag curve
+ * SIZE - blends from start to end size by a curve, or grows by the per-particle size deltas
+ * COLOR - looks up a color gradient, applies the per-particle color deltas, or leaves color alone
+ * 
+ * Killing is not a stage here. Dead particles are removed by the system afterwards in one
+ * sequential pass, so the result is the same however the update was split across threads.
+ * 
+ * Every system runs the same final class, and all the stages are fused into one loop over the
+ * particle channels with branches that never change inside it, so the JIT sees a single tight
+ * loop instead of a virtual call per system type. A new behavior is a new configuration rather
+ * than a new subclass with its own copy of the loop.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public final class AffectorPipeline {
+	
+	/**
+	 * NONE - colors stay as they were spawned
+	 * GRADIENT - colors come from a gradient over life
+	 * DELTAS - colors change by the per-particle deltas set at spawn time
+	 */
+	public enum COLOR {NONE, GRADIENT, DELTAS};
+	
+	//AGE
+	private float agingRate = 1.0f;              //Life drained per second
+	private float destroyingAgingRate = 1.0f;    //Life drained per second while the system shuts down
+	
+	//INTEGRATE, ACCELERATE and DRAG
+	private Curve speedCurve;                    //Multiplier on velocity when moving a particle; null for 1
+	private boolean gravity;                     //Whether a constant acceleration is added
+	private float gravityX, gravityY, gravityZ;
+	private Curve dragCurve;                     //Fraction of velocity lost per second; null for none
+	private ForceField[] forces = new ForceField[0];
+	private int numForces;
+	
+	//SIZE
+	private Curve sizeCurveX, sizeCurveY;        //Blend from start to end size; null for the size deltas
+	private float startSizeX, startSizeY;
+	private float sizeRangeX, sizeRangeY;
+	
+	//COLOR
+	private COLOR colorMode = COLOR.NONE;
+	private ColorGradient colorGradient;
+	
+	private boolean deltasFollowAge;             //Size and color deltas advance with life drained rather than time
+	
+	/**
+	 * Sets how fast particles age. A particle dies once it has aged by its lifetime.
+	 * 
+	 * @param rate - life drained per second
+	 * @param destroyingRate - life drained per second once the system is shutting down
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setAging(float rate, float destroyingRate) {
+		agingRate = rate;
+		destroyingAgingRate = destroyingRate;
+		return this;
+	}
+	
+	/**
+	 * Sets a speed multiplier over life. Velocity keeps integrating acceleration; the multiplier
+	 * only scales how far a particle moves each step.
+	 * 
+	 * @param speedCurve - speed multiplier over life, null for none
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setSpeedCurve(Curve speedCurve) {
+		this.speedCurve = speedCurve;
+		return this;
+	}
+	
+	/**
+	 * Adds a constant acceleration to every particle on top of its own
+	 * 
+	 * @param x - x acceleration
+	 * @param y - y acceleration
+	 * @param z - z acceleration
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setGravity(float x, float y, float z) {
+		gravity = x != 0.0f || y != 0.0f || z != 0.0f;
+		gravityX = x;
+		gravityY = y;
+		gravityZ = z;
+		return this;
+	}
+	
+	/**
+	 * Adds a force field. Fields are evaluated at each particle's position every step.
+	 * 
+	 * @param field - the field
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline addForceField(ForceField field) {
+		if(numForces == forces.length) {
+			ForceField[] grown = new ForceField[numForces == 0? 2:numForces*2];
+			System.arraycopy(forces, 0, grown, 0, numForces);
+			forces = grown;
+		}
+		forces[numForces++] = field;
+		return this;
+	}
+	
+	/**
+	 * Removes a force field
+	 * 
+	 * @param field - the field to remove
+	 */
+	public void removeForceField(ForceField field) {
+		for(int i=0; i<numForces; i++) {
+			if(forces[i] == field) {
+				System.arraycopy(forces, i + 1, forces, i, numForces - i - 1);
+				forces[--numForces] = null;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Removes every force field
+	 */
+	public void clearForceFields() {
+		for(int i=0; i<numForces; i++)
+			forces[i] = null;
+		numForces = 0;
+	}
+	
+	/**
+	 * @return - the number of force fields acting on the particles
+	 */
+	public int getNumForceFields() {
+		return numForces;
+	}
+	
+	/**
+	 * Sets drag over life, as the fraction of velocity lost per second
+	 * 
+	 * @param dragCurve - drag over life, null for none
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setDragCurve(Curve dragCurve) {
+		this.dragCurve = dragCurve;
+		return this;
+	}
+	
+	/**
+	 * Sets the sizes the size curves blend between
+	 * 
+	 * @param startSize - x and y start sizes
+	 * @param endSize - x and y end sizes
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setSizeRange(Vector2 startSize, Vector2 endSize) {
+		startSizeX = startSize.x;
+		startSizeY = startSize.y;
+		sizeRangeX = endSize.x - startSize.x;
+		sizeRangeY = endSize.y - startSize.y;
+		return this;
+	}
+	
+	/**
+	 * Shapes particle growth over life. A curve value of 0 is the start size and 1 is the end size.
+	 * An axis without a curve grows by the particles' size deltas.
+	 * 
+	 * @param sizeCurveX - width blend over life, or null
+	 * @param sizeCurveY - height blend over life, or null
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setSizeCurves(Curve sizeCurveX, Curve sizeCurveY) {
+		this.sizeCurveX = sizeCurveX;
+		this.sizeCurveY = sizeCurveY;
+		return this;
+	}
+	
+	/**
+	 * Colors particles from a gradient over their life
+	 * 
+	 * @param colorGradient - the color over life
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setColorGradient(ColorGradient colorGradient) {
+		this.colorGradient = colorGradient;
+		colorMode = COLOR.GRADIENT;
+		return this;
+	}
+	
+	/**
+	 * Changes particle colors by the per-particle color deltas
+	 * 
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setColorDeltas() {
+		colorGradient = null;
+		colorMode = COLOR.DELTAS;
+		return this;
+	}
+	
+	/**
+	 * Sets whether the size and color deltas advance with the life drained each step or with
+	 * elapsed time. Deltas worked out as a change over the particle's life only reach their end
+	 * value as the particle dies if they follow its age.
+	 * 
+	 * @param deltasFollowAge - true to scale the deltas by the aging rate
+	 * @return - this pipeline, for chaining
+	 */
+	public AffectorPipeline setDeltasFollowAge(boolean deltasFollowAge) {
+		this.deltasFollowAge = deltasFollowAge;
+		return this;
+	}
+	
+	/**
+	 * @return - how particle colors are updated
+	 */
+	public COLOR getColorMode() {
+		return colorMode;
+	}
+	
+	/**
+	 * Runs every stage over a range of particle slots.
+	 * Only slots start to end - 1 are touched, so ranges can be run on different threads.
+	 * 
+	 * @param p - the particle store
+	 * @param start - the first slot to update
+	 * @param end - one past the last slot to update
+	 * @param elapsedTime - the time step
+	 * @param destroying - whether the system is shutting down
+	 */
+	public void run(ParticleStore p, int start, int end, float elapsedTime, boolean destroying) {
+		//Hoist the channels and the configuration into locals so the loop only touches primitive arrays
+		float[] px = p.positionX, py = p.positionY, pz = p.positionZ;
+		float[] vx = p.velocityX, vy = p.velocityY, vz = p.velocityZ;
+		float[] ax = p.accelerationX, ay = p.accelerationY, az = p.accelerationZ;
+		float[] life = p.life, lifeTime = p.lifeTime;
+		float[] sx = p.sizeX, sy = p.sizeY, dsx = p.deltaSizeX, dsy = p.deltaSizeY;
+		float[] r = p.colorR, g = p.colorG, b = p.colorB, a = p.colorA;
+		float[] dr = p.deltaColorR, dg = p.deltaColorG, db = p.deltaColorB, da = p.deltaColorA;
+		
+		float drain = (destroying? destroyingAgingRate:agingRate)*elapsedTime;
+		float deltaTime = deltasFollowAge? drain:elapsedTime;
+		float[] speedTable = speedCurve == null? null:speedCurve.getTable();
+		float[] dragTable = dragCurve == null? null:dragCurve.getTable();
+		boolean accelerate = gravity || numForces > 0;
+		float gx = gravityX, gy = gravityY, gz = gravityZ;
+		ForceField[] fields = forces;
+		int numFields = numForces;
+		float[] sizeTableX = sizeCurveX == null? null:sizeCurveX.getTable();
+		float[] sizeTableY = sizeCurveY == null? null:sizeCurveY.getTable();
+		float startX = startSizeX, startY = startSizeY, rangeX = sizeRangeX, rangeY = sizeRangeY;
+		boolean gradient = colorMode == COLOR.GRADIENT, deltas = colorMode == COLOR.DELTAS;
+		float[] colors = gradient? colorGradient.getTable():null;
+		
+		for(int i=start; i < end; i++) {
+			//AGE
+			life[i]-= drain;
+			float age = (lifeTime[i] - life[i])/lifeTime[i];
+			int k = Curve.index(age);
+			
+			//INTEGRATE
+			float move = speedTable == null? elapsedTime:speedTable[k] * elapsedTime;
+			px[i]+= vx[i] * move;
+			py[i]+= vy[i] * move;
+			pz[i]+= vz[i] * move;
+			
+			//ACCELERATE
+			float nvx, nvy, nvz;
+			if(accelerate) {
+				float fx = gx, fy = gy, fz = gz;
+				for(int f=0; f<numFields; f++) {
+					ForceField field = fields[f];
+					switch(field.type) {
+						case ATTRACTOR: {
+							float dx = field.x - px[i], dy = field.y - py[i], dz = field.z - pz[i];
+							float distance = (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+							if(distance < 0.0001f || (field.radius > 0.0f && distance >= field.radius))
+								break;
+							float s = field.strength/distance;
+							if(field.radius > 0.0f)
+								s*= 1.0f - distance/field.radius;
+							fx+= dx*s;
+							fy+= dy*s;
+							fz+= dz*s;
+							break;
+						}
+						case VORTEX: {
+							//Offset from the axis, perpendicular to it
+							float rx = px[i] - field.x, ry = py[i] - field.y, rz = pz[i] - field.z;
+							float along = rx*field.axisX + ry*field.axisY + rz*field.axisZ;
+							rx-= field.axisX*along;
+							ry-= field.axisY*along;
+							rz-= field.axisZ*along;
+							float distance = (float) Math.sqrt(rx*rx + ry*ry + rz*rz);
+							if(distance < 0.0001f || (field.radius > 0.0f && distance >= field.radius))
+								break;
+							float falloff = field.radius > 0.0f? (1.0f - distance/field.radius)/distance:1.0f/distance;
+							float turn = field.strength*falloff, pull = field.pull*falloff;
+							//axis x offset is around the axis, -offset is towards it
+							fx+= (field.axisY*rz - field.axisZ*ry)*turn - rx*pull;
+							fy+= (field.axisZ*rx - field.axisX*rz)*turn - ry*pull;
+							fz+= (field.axisX*ry - field.axisY*rx)*turn - rz*pull;
+							break;
+						}
+						case WIND:
+							fx+= (field.x - vx[i])*field.strength;
+							fy+= (field.y - vy[i])*field.strength;
+							fz+= (field.z - vz[i])*field.strength;
+							break;
+						case TURBULENCE: {
+							CurlNoiseGrid grid = field.grid;
+							float u = (px[i] + field.x)*field.inverseCellSize;
+							float v = (py[i] + field.y)*field.inverseCellSize;
+							float w = (pz[i] + field.z)*field.inverseCellSize;
+							fx+= grid.sampleX(u, v, w)*field.strength;
+							fy+= grid.sampleY(u, v, w)*field.strength;
+							fz+= grid.sampleZ(u, v, w)*field.strength;
+							break;
+						}
+					}
+				}
+				nvx = vx[i] + (ax[i] + fx) * elapsedTime;
+				nvy = vy[i] + (ay[i] + fy) * elapsedTime;
+				nvz = vz[i] + (az[i] + fz) * elapsedTime;
+			}
+			else {
+				nvx = vx[i] + ax[i] * elapsedTime;
+				nvy = vy[i] + ay[i] * elapsedTime;
+				nvz = vz[i] + az[i] * elapsedTime;
+			}
+			
+			//DRAG
+			if(dragTable != null) {
+				float damping = 1.0f - dragTable[k] * elapsedTime;
+				if(damping < 0.0f)
+					damping = 0.0f;
+				nvx*= damping;
+				nvy*= damping;
+				nvz*= damping;
+			}
+			vx[i] = nvx;
+			vy[i] = nvy;
+			vz[i] = nvz;
+			
+			//SIZE
+			if(sizeTableX == null)
+				sx[i]+= dsx[i] * deltaTime;
+			else
+				sx[i] = startX + rangeX * sizeTableX[k];
+			if(sizeTableY == null)
+				sy[i]+= dsy[i] * deltaTime;
+			else
+				sy[i] = startY + rangeY * sizeTableY[k];
+			
+			//COLOR
+			if(gradient) {
+				int c = ColorGradient.offset(age);
+				r[i] = colors[c];
+				g[i] = colors[c + 1];
+				b[i] = colors[c + 2];
+				a[i] = colors[c + 3];
+			}
+			else if(deltas) {
+				r[i]+= dr[i] * deltaTime;
+				g[i]+= dg[i] * deltaTime;
+				b[i]+= db[i] * deltaTime;
+				a[i]+= da[i] * deltaTime;
+			}
+		}
+	}
+}
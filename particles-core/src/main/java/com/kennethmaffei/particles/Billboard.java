@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Camera facing basis for billboarded particles.
+ * The camera's right and up vectors are read straight out of the view matrix once per frame.
+ * Particles then expand their corners along those vectors, so no per-particle trig or
+ * rotation is needed, and the result is correct wherever the system is in the scene.
+ *
+ * @author Kenneth Maffei
+ *
+ */
+public class Billboard {
+
+	/**
+	 * FIXED - the quad lies in the system's x/y plane and never turns
+	 * SPHERICAL - the quad always faces the camera
+	 * CYLINDRICAL - the quad turns towards the camera about the cylinder axis only
+	 */
+	public enum MODE {FIXED, SPHERICAL, CYLINDRICAL};
+
+	//Spherical basis, the camera's right and up vectors in world space
+	public Vector3 right = new Vector3(1.0f, 0.0f, 0.0f);
+	public Vector3 up = new Vector3(0.0f, 1.0f, 0.0f);
+
+	//Cylindrical basis. Up is locked to the axis.
+	public Vector3 cylinderRight = new Vector3(1.0f, 0.0f, 0.0f);
+	public Vector3 cylinderAxis = new Vector3(0.0f, 1.0f, 0.0f);
+
+	//Camera's backward direction (towards the viewer) in world space
+	private Vector3 back = new Vector3(0.0f, 0.0f, 1.0f);
+
+	/**
+	 * Sets the axis cylindrical billboards rotate about. Defaults to world up.
+	 *
+	 * @param axis - the axis, does not need to be normalized
+	 */
+	public void setCylinderAxis(Vector3 axis) {
+		cylinderAxis.copy(axis);
+		cylinderAxis.normalize();
+		updateCylinder();
+	}
+
+	/**
+	 * Extracts the billboard bases from the view matrix.
+	 * The upper 3x3 of the view matrix is the camera rotation; its rows are the camera's
+	 * right, up and backward vectors in world space.
+	 *
+	 * @param view - column major 4x4 view (modelview before any model transform) matrix
+	 */
+	public void setView(float[] view) {
+		right.x = view[0];
+		right.y = view[4];
+		right.z = view[8];
+		right.normalize();
+
+		up.x = view[1];
+		up.y = view[5];
+		up.z = view[9];
+		up.normalize();
+
+		back.x = view[2];
+		back.y = view[6];
+		back.z = view[10];
+		back.normalize();
+
+		updateCylinder();
+	}
+
+	/**
+	 * The camera's backward direction, towards the viewer, in world space
+	 *
+	 * @return - the direction; it is updated in place by setView()
+	 */
+	public Vector3 getBack() {
+		return back;
+	}
+
+	/**
+	 * Sets this billboard to another one's bases in the space of a system that the renderer
+	 * rotates and scales, so quads expanded along them still face the camera once the system's
+	 * transform is applied. Only the rotation is undone; the scale still sizes the quads, which
+	 * face the camera exactly as long as it is uniform.
+	 *
+	 * @param world - the camera's billboard, in world space
+	 * @param rotate - the system's rotation in degrees
+	 */
+	public void setLocal(Billboard world, Vector3 rotate) {
+		toLocal(world.right, rotate, right);
+		toLocal(world.up, rotate, up);
+		toLocal(world.cylinderRight, rotate, cylinderRight);
+		toLocal(world.cylinderAxis, rotate, cylinderAxis);
+		toLocal(world.back, rotate, back);
+	}
+
+	/**
+	 * Rotates a world space direction into the space of a rotated system, by the transpose
+	 * (inverse) of the system's rotation R = Rz*Ry*Rx, the order glRotatef is applied in
+	 *
+	 * @param v - the direction in world space
+	 * @param rotate - the system's rotation in degrees
+	 * @param out - receives the direction in the system's space; may be v
+	 */
+	public static void toLocal(Vector3 v, Vector3 rotate, Vector3 out) {
+		float sx = (float) Math.sin(Globals.Deg2Rad(rotate.x)), cx = (float) Math.cos(Globals.Deg2Rad(rotate.x));
+		float sy = (float) Math.sin(Globals.Deg2Rad(rotate.y)), cy = (float) Math.cos(Globals.Deg2Rad(rotate.y));
+		float sz = (float) Math.sin(Globals.Deg2Rad(rotate.z)), cz = (float) Math.cos(Globals.Deg2Rad(rotate.z));
+		float m00 = cz*cy, m01 = cz*sy*sx - sz*cx, m02 = cz*sy*cx + sz*sx;
+		float m10 = sz*cy, m11 = sz*sy*sx + cz*cx, m12 = sz*sy*cx - cz*sx;
+		float m20 = -sy, m21 = cy*sx, m22 = cy*cx;
+
+		float x = m00*v.x + m10*v.y + m20*v.z;
+		float y = m01*v.x + m11*v.y + m21*v.z;
+		float z = m02*v.x + m12*v.y + m22*v.z;
+		out.x = x;
+		out.y = y;
+		out.z = z;
+	}
+
+	/**
+	 * Cylindrical right is perpendicular to both the axis and the view direction
+	 */
+	private void updateCylinder() {
+		Vector3.crossProduct(cylinderAxis, back, cylinderRight);
+		float length = cylinderRight.length();
+
+		//Looking straight down the axis. Any right vector will do, so use the camera's.
+		if(length < 0.00001f) {
+			cylinderRight.copy(right);
+			return;
+		}
+
+		cylinderRight.x/= length;
+		cylinderRight.y/= length;
+		cylinderRight.z/= length;
+	}
+}
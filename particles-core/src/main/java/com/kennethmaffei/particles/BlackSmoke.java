@@ -0,0 +1,44 @@
+package com.kennethmaffei.particles;
+
+import java.util.Arrays;
+
+public class BlackSmoke extends ParticleSystem {
+
+	public BlackSmoke() {
+		blendMode = BLEND_MODE.DARKEN; //Special blend mode for Black Smoke!
+		//Black smoke ages twice as fast as the elapsed time, and fades and grows with its age
+		pipeline.setAging(2.0f, 2.0f).setColorDeltas().setDeltasFollowAge(true);
+	}
+	
+	@Override
+	void initializeParticles(int start, int end) {
+		ParticleStore p = particles;
+		Arrays.fill(p.colorR, start, end, 1.0f);
+		Arrays.fill(p.colorG, start, end, 1.0f);
+		Arrays.fill(p.colorB, start, end, 1.0f);
+		Arrays.fill(p.colorA, start, end, 1.0f);
+		
+		spawnLife(start, end);
+		float[] life = p.life, dr = p.deltaColorR, dg = p.deltaColorG, db = p.deltaColorB, da = p.deltaColorA;
+		for(int i=start; i<end; i++)
+			dr[i] = dg[i] = db[i] = da[i] = -1.0f/life[i];
+		
+		//Somewhere in the emitter volume
+		spawnSpread(p.positionX, start, end, origin.x, width/2.0f);
+		spawnSpread(p.positionY, start, end, origin.y, depth/2.0f);
+		spawnSpread(p.positionZ, start, end, origin.z, height/2.0f);
+		
+		spawnSpread(p.velocityX, start, end, velocity.x, velocityVariation.x);
+		spawnSpread(p.velocityY, start, end, velocity.y, velocityVariation.y);
+		spawnSpread(p.velocityZ, start, end, velocity.z, velocityVariation.z);
+		
+		Arrays.fill(p.accelerationX, start, end, acceleration.x);
+		Arrays.fill(p.accelerationY, start, end, acceleration.y);
+		Arrays.fill(p.accelerationZ, start, end, acceleration.z);
+		
+		Arrays.fill(p.sizeX, start, end, startSize.x);
+		Arrays.fill(p.sizeY, start, end, startSize.y);
+		
+		spawnSizeDeltas(start, end);
+	}
+}
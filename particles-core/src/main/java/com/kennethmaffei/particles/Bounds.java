@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Axis aligned bounding box
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class Bounds {
+	public float minX, minY, minZ;
+	public float maxX, maxY, maxZ;
+	
+	public Bounds() {
+		clear();
+	}
+	
+	/**
+	 * Empties the box, so the next include() sets it
+	 */
+	public void clear() {
+		minX = minY = minZ = Float.POSITIVE_INFINITY;
+		maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+	}
+	
+	/**
+	 * @return - true if nothing has been included since the last clear()
+	 */
+	public boolean isEmpty() {
+		return minX > maxX;
+	}
+	
+	/**
+	 * Grows the box to hold a sphere
+	 * 
+	 * @param x - the center x
+	 * @param y - the center y
+	 * @param z - the center z
+	 * @param radius - the sphere radius
+	 */
+	public void include(float x, float y, float z, float radius) {
+		if(x - radius < minX) minX = x - radius;
+		if(y - radius < minY) minY = y - radius;
+		if(z - radius < minZ) minZ = z - radius;
+		if(x + radius > maxX) maxX = x + radius;
+		if(y + radius > maxY) maxY = y + radius;
+		if(z + radius > maxZ) maxZ = z + radius;
+	}
+	
+	/**
+	 * Copies another box into this one
+	 * 
+	 * @param a - the box to copy
+	 */
+	public void copy(Bounds a) {
+		minX = a.minX;
+		minY = a.minY;
+		minZ = a.minZ;
+		maxX = a.maxX;
+		maxY = a.maxY;
+		maxZ = a.maxZ;
+	}
+}
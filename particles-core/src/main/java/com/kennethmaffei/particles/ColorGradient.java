@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A color ramp over a particle's life with any number of RGBA stops.
+ * Stops are placed at a normalized age, 0 at birth through 1 at death, and the ramp is baked
+ * into a fixed size RGBA table whenever it changes. Particle updates then look colors up by age
+ * instead of searching and interpolating between stops every frame.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class ColorGradient {
+	public static final int RESOLUTION = KeyTable.RESOLUTION;  //Number of entries in the baked table
+	
+	private final KeyTable stops = new KeyTable(4);            //RGBA per stop and per table entry
+	
+	/**
+	 * Creates a white gradient
+	 */
+	public ColorGradient() {
+		this(1.0f, 1.0f, 1.0f, 1.0f);
+	}
+	
+	/**
+	 * Creates a gradient of a single color
+	 * 
+	 * @param r - red
+	 * @param g - green
+	 * @param b - blue
+	 * @param a - alpha
+	 */
+	public ColorGradient(float r, float g, float b, float a) {
+		addStop(0.0f, r, g, b, a);
+	}
+	
+	/**
+	 * Adds a color stop and rebakes the table.
+	 * A stop at the same age as an existing one replaces it.
+	 * 
+	 * @param age - the normalized age, 0 to 1
+	 * @param r - red
+	 * @param g - green
+	 * @param b - blue
+	 * @param a - alpha
+	 * @return - this gradient, so stops can be chained
+	 */
+	public ColorGradient addStop(float age, float r, float g, float b, float a) {
+		int offset = stops.insert(age);
+		float[] colors = stops.values();
+		colors[offset] = r;
+		colors[offset + 1] = g;
+		colors[offset + 2] = b;
+		colors[offset + 3] = a;
+		
+		stops.bake();
+		return this;
+	}
+	
+	/**
+	 * Removes every stop. Add at least one stop before the gradient is used again.
+	 */
+	public void clear() {
+		stops.clear();
+	}
+	
+	public int getNumStops() {
+		return stops.size();
+	}
+	
+	/**
+	 * The baked table. Entry i holds the color at age i/(RESOLUTION - 1), in RGBA order starting at i*4.
+	 * 
+	 * @return - the table
+	 */
+	public float[] getTable() {
+		return stops.table;
+	}
+	
+	/**
+	 * Converts a normalized age into an offset into the baked table
+	 * 
+	 * @param age - the normalized age; values outside 0 to 1 are clamped
+	 * @return - the offset of the red entry
+	 */
+	public static int offset(float age) {
+		return KeyTable.index(age)*4;
+	}
+}
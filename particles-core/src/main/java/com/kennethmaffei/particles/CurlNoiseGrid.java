@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A divergence free turbulence field, baked once into a 3D grid of vectors.
+ * The field is the curl of a vector potential made of a few octaves of smooth noise, which gives
+ * swirling, incompressible flow: particles pushed by it curl around rather than bunching up or
+ * spreading out. Evaluating the noise and its derivatives per particle is too slow for us, so
+ * the curl is computed exactly at every grid point up front and sampled with trilinear interpolation.
+ * 
+ * The grid tiles seamlessly, so it covers any position. Coordinates are in grid cells; a force
+ * field scales positions into cells. Vectors are normalized so the longest is 1.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class CurlNoiseGrid {
+	private static final int BASE_PERIOD = 4;      //Noise lattice cells across the grid for the first octave
+	
+	private final int size;                        //Grid points along each axis, a power of two
+	private final int mask;
+	private final float[] fieldX, fieldY, fieldZ;  //Curl at each grid point, x fastest
+	
+	/**
+	 * Bakes a grid
+	 * 
+	 * @param size - grid points along each axis, a power of two. 32 is 393KB.
+	 * @param octaves - noise octaves; each doubles the detail and halves the strength. Octaves
+	 * finer than the grid can hold are dropped, but grids under 16 always get the first one.
+	 * @param seed - the noise seed, the same seed always bakes the same grid
+	 */
+	public CurlNoiseGrid(int size, int octaves, long seed) {
+		if(size < 4 || (size & (size - 1)) != 0)
+			throw new IllegalArgumentException("Grid size must be a power of two of at least 4");
+		if(octaves < 1)
+			throw new IllegalArgumentException("A grid needs at least one octave");
+		this.size = size;
+		mask = size - 1;
+		
+		int count = size*size*size;
+		fieldX = new float[count];
+		fieldY = new float[count];
+		fieldZ = new float[count];
+		
+		//The vector potential is one noise field per component. Its derivatives are taken
+		//analytically, since finite differences of the noise leave the field with sinks.
+		ParticleRandom random = new XoshiroRandom(seed);
+		float[][] potentialX = gradient(random, octaves);
+		float[][] potentialY = gradient(random, octaves);
+		float[][] potentialZ = gradient(random, octaves);
+		
+		//curl = (dPz/dy - dPy/dz, dPx/dz - dPz/dx, dPy/dx - dPx/dy)
+		float max = 0.0f;
+		for(int i=0; i<count; i++) {
+			fieldX[i] = potentialZ[1][i] - potentialY[2][i];
+			fieldY[i] = potentialX[2][i] - potentialZ[0][i];
+			fieldZ[i] = potentialY[0][i] - potentialX[1][i];
+			float length = fieldX[i]*fieldX[i] + fieldY[i]*fieldY[i] + fieldZ[i]*fieldZ[i];
+			if(length > max)
+				max = length;
+		}
+		
+		if(max > 0.0f) {
+			float scale = 1.0f/(float) Math.sqrt(max);
+			for(int i=0; i<count; i++) {
+				fieldX[i]*= scale;
+				fieldY[i]*= scale;
+				fieldZ[i]*= scale;
+			}
+		}
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * The x component of the field at a position
+	 * 
+	 * @param x - x in grid cells
+	 * @param y - y in grid cells
+	 * @param z - z in grid cells
+	 * @return - the interpolated x component
+	 */
+	public float sampleX(float x, float y, float z) {
+		return sample(fieldX, x, y, z);
+	}
+	
+	/**
+	 * The y component of the field at a position
+	 * 
+	 * @param x - x in grid cells
+	 * @param y - y in grid cells
+	 * @param z - z in grid cells
+	 * @return - the interpolated y component
+	 */
+	public float sampleY(float x, float y, float z) {
+		return sample(fieldY, x, y, z);
+	}
+	
+	/**
+	 * The z component of the field at a position
+	 * 
+	 * @param x - x in grid cells
+	 * @param y - y in grid cells
+	 * @param z - z in grid cells
+	 * @return - the interpolated z component
+	 */
+	public float sampleZ(float x, float y, float z) {
+		return sample(fieldZ, x, y, z);
+	}
+	
+	/**
+	 * Trilinear interpolation of one component, wrapping around the grid
+	 */
+	private float sample(float[] field, float x, float y, float z) {
+		float fx = (float) Math.floor(x), fy = (float) Math.floor(y), fz = (float) Math.floor(z);
+		float tx = x - fx, ty = y - fy, tz = z - fz;
+		int x0 = (int) fx & mask, y0 = (int) fy & mask, z0 = (int) fz & mask;
+		int x1 = (x0 + 1) & mask, y1 = (y0 + 1) & mask, z1 = (z0 + 1) & mask;
+		
+		int row00 = (z0*size + y0)*size, row10 = (z0*size + y1)*size;
+		int row01 = (z1*size + y0)*size, row11 = (z1*size + y1)*size;
+		float c00 = field[row00 + x0] + (field[row00 + x1] - field[row00 + x0])*tx;
+		float c10 = field[row10 + x0] + (field[row10 + x1] - field[row10 + x0])*tx;
+		float c01 = field[row01 + x0] + (field[row01 + x1] - field[row01 + x0])*tx;
+		float c11 = field[row11 + x0] + (field[row11 + x1] - field[row11 + x0])*tx;
+		float c0 = c00 + (c10 - c00)*ty;
+		float c1 = c01 + (c11 - c01)*ty;
+		return c0 + (c1 - c0)*tz;
+	}
+	
+	/**
+	 * The gradient of octaves of tiling value noise at every grid point, in grid cell units.
+	 * Each octave is random values on a coarser lattice that wraps at the grid's edge, blended
+	 * between lattice points with smoothstep. Later octaves stop while a lattice cell still spans
+	 * 4 grid points, so trilinear sampling can follow the detail.
+	 * 
+	 * @return - d/dx, d/dy and d/dz
+	 */
+	private float[][] gradient(ParticleRandom random, int octaves) {
+		int count = size*size*size;
+		float[][] out = {new float[count], new float[count], new float[count]};
+		float amplitude = 1.0f;
+		for(int octave=0; octave<octaves; octave++) {
+			//The first octave always goes in, with a coarser lattice if the grid is too small
+			int period = octave == 0? Math.min(BASE_PERIOD, size/2):BASE_PERIOD << octave;
+			if(octave > 0 && period > size/4)
+				break;
+			float[] lattice = new float[period*period*period];
+			for(int i=0; i<lattice.length; i++)
+				lattice[i] = random.nextSigned();
+			
+			float step = period/(float) size;         //Lattice cells per grid cell
+			for(int z=0; z<size; z++) {
+				float gz = z*step;
+				int z0 = (int) gz, z1 = (z0 + 1) % period;
+				float tz = gz - z0, sz = smooth(tz), dz = smoothSlope(tz)*step*amplitude;
+				for(int y=0; y<size; y++) {
+					float gy = y*step;
+					int y0 = (int) gy, y1 = (y0 + 1) % period;
+					float ty = gy - y0, sy = smooth(ty), dy = smoothSlope(ty)*step*amplitude;
+					for(int x=0; x<size; x++) {
+						float gx = x*step;
+						int x0 = (int) gx, x1 = (x0 + 1) % period;
+						float tx = gx - x0, sx = smooth(tx), dx = smoothSlope(tx)*step*amplitude;
+						
+						//Corners, named by their x, y and z ends
+						float c000 = lattice[(z0*period + y0)*period + x0], c100 = lattice[(z0*period + y0)*period + x1];
+						float c010 = lattice[(z0*period + y1)*period + x0], c110 = lattice[(z0*period + y1)*period + x1];
+						float c001 = lattice[(z1*period + y0)*period + x0], c101 = lattice[(z1*period + y0)*period + x1];
+						float c011 = lattice[(z1*period + y1)*period + x0], c111 = lattice[(z1*period + y1)*period + x1];
+						float kxy = c000 - c100 - c010 + c110;
+						float kyz = c000 - c010 - c001 + c011;
+						float kxz = c000 - c100 - c001 + c101;
+						float kxyz = -c000 + c100 + c010 - c110 + c001 - c101 - c011 + c111;
+						
+						int i = index(x, y, z);
+						out[0][i]+= dx*((c100 - c000) + kxy*sy + kxz*sz + kxyz*sy*sz);
+						out[1][i]+= dy*((c010 - c000) + kxy*sx + kyz*sz + kxyz*sx*sz);
+						out[2][i]+= dz*((c001 - c000) + kyz*sy + kxz*sx + kxyz*sx*sy);
+					}
+				}
+			}
+			amplitude*= 0.5f;
+		}
+		return out;
+	}
+	
+	private int index(int x, int y, int z) {
+		return (z*size + y)*size + x;
+	}
+	
+	private static float smooth(float t) {
+		return t*t*(3.0f - 2.0f*t);
+	}
+	
+	private static float smoothSlope(float t) {
+		return 6.0f*t*(1.0f - t);
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A piecewise linear value over a particle's life.
+ * Keys are placed at a normalized age, 0 at birth through 1 at death, and the curve is baked
+ * into a fixed size table whenever it changes, so particle updates evaluate it with one lookup.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class Curve {
+	public static final int RESOLUTION = KeyTable.RESOLUTION;  //Number of entries in the baked table
+	
+	private final KeyTable keys = new KeyTable(1);             //One value per key and per table entry
+	
+	/**
+	 * Creates a curve that is constantly 1
+	 */
+	public Curve() {
+		this(1.0f);
+	}
+	
+	/**
+	 * Creates a constant curve
+	 * 
+	 * @param value - the value over the whole life
+	 */
+	public Curve(float value) {
+		addKey(0.0f, value);
+	}
+	
+	/**
+	 * Adds a key and rebakes the table.
+	 * A key at the same age as an existing one replaces it.
+	 * 
+	 * @param age - the normalized age, 0 to 1
+	 * @param value - the value at that age
+	 * @return - this curve, so keys can be chained
+	 */
+	public Curve addKey(float age, float value) {
+		keys.values()[keys.insert(age)] = value;
+		keys.bake();
+		return this;
+	}
+	
+	/**
+	 * Removes every key. Add at least one key before the curve is used again.
+	 */
+	public void clear() {
+		keys.clear();
+	}
+	
+	public int getNumKeys() {
+		return keys.size();
+	}
+	
+	/**
+	 * The baked table. Entry i holds the value at age i/(RESOLUTION - 1).
+	 * 
+	 * @return - the table
+	 */
+	public float[] getTable() {
+		return keys.table;
+	}
+	
+	/**
+	 * Converts a normalized age into an index into the baked table
+	 * 
+	 * @param age - the normalized age; values outside 0 to 1 are clamped
+	 * @return - the table index
+	 */
+	public static int index(float age) {
+		return KeyTable.index(age);
+	}
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Orders a system's particles back to front along the view direction, for blend modes
+ * where the order particles are drawn in shows.
+ * Only an index array is sorted; the particle channels stay where they are, and the batch
+ * reads them through the order.
+ * 
+ * Particle depths barely change from one frame to the next, so the previous frame's order is
+ * reused. Swap-remove compaction moves the last particle into each dead slot, so those slots
+ * are now out of place, and new particles are appended at the back. One pass pulls every slot
+ * that breaks the order out; the rest is still sorted. The few pulled out are insertion sorted,
+ * or radix sorted on their float depths when there are many (a burst, a camera cut), and merged
+ * back in. Either way a frame costs O(n), never a full comparison sort.
+ * 
+ * A sorter keeps state between frames, so each system needs its own, and it must only be used
+ * from one thread.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class DepthSorter {
+	//Below this many particles, or pulled out slots, insertion sort beats the radix sort
+	public static final int RADIX_THRESHOLD = 64;
+	
+	private int[] order = new int[0];        //Particle slots, back to front. Valid up to numSorted.
+	private int numSorted;                   //Particles in the previous frame's order
+	private float[] depth = new float[0];    //Per slot depth along the view direction
+	
+	//Pulled out slots, and the second buffer for radix passes and merging
+	private int[] extras = new int[0], slotScratch = new int[0];
+	
+	//Radix sort state
+	private int[] keys = new int[0], keyScratch = new int[0];
+	private int[] counts = new int[256];
+	
+	private int numRadixSorts;               //Frames that needed the radix sort, for profiling
+	
+	/**
+	 * Sorts the live particles of a store back to front.
+	 * Depth is measured along the direction towards the viewer, in the store's space; see
+	 * viewDirection() for systems that are rotated or scaled.
+	 * 
+	 * @param p - the particle store
+	 * @param count - the number of live particles in the store
+	 * @param alpha - 0 sorts the previous step, 1 the current step, as the batch will draw them
+	 * @param dx - x of the direction towards the viewer
+	 * @param dy - y of the direction towards the viewer
+	 * @param dz - z of the direction towards the viewer
+	 * @return - the particle slots in drawing order, valid up to count
+	 */
+	public int[] sort(ParticleStore p, int count, float alpha, float dx, float dy, float dz) {
+		ensureCapacity(p.capacity > count ? p.capacity : count);
+		
+		float[] px = p.positionX, py = p.positionY, pz = p.positionZ;
+		float[] qx = p.previousX, qy = p.previousY, qz = p.previousZ;
+		float[] d = depth;
+		for(int i=0; i<count; i++) {
+			float x = qx[i] + (px[i] - qx[i])*alpha;
+			float y = qy[i] + (py[i] - qy[i])*alpha;
+			float z = qz[i] + (pz[i] - qz[i])*alpha;
+			//Further from the viewer is smaller, so ascending depth is back to front
+			d[i] = x*dx + y*dy + z*dz;
+		}
+		
+		//Last frame's order, without the slots that are now past the end.
+		//It held every slot below numSorted, so the only slots missing are the new ones.
+		int[] o = order;
+		int n = 0;
+		for(int i=0; i<numSorted; i++) {
+			if(o[i] < count)
+				o[n++] = o[i];
+		}
+		for(int i=numSorted; i<count; i++)
+			o[n++] = i;
+		numSorted = count;
+		
+		if(count < RADIX_THRESHOLD) {
+			insertionSort(o, count);
+			return order;
+		}
+		
+		//Keep each slot that fits between the last one kept and the next one, pull out the rest.
+		//Checking the next slot stops one far out slot from pulling out everything after it.
+		int[] e = extras;
+		int kept = 0, numExtras = 0;
+		float last = Float.NEGATIVE_INFINITY;
+		for(int i=0; i<count; i++) {
+			int slot = o[i];
+			float key = d[slot];
+			if(key >= last && (i + 1 == count || key <= d[o[i + 1]])) {
+				o[kept++] = slot;
+				last = key;
+			}
+			else
+				e[numExtras++] = slot;
+		}
+		if(numExtras == 0)
+			return order;
+		
+		int[] free = slotScratch;
+		if(numExtras < RADIX_THRESHOLD)
+			insertionSort(e, numExtras);
+		else {
+			e = radixSort(e, slotScratch, numExtras);
+			free = e == extras ? slotScratch : extras;
+			numRadixSorts++;
+		}
+		
+		//Merge the two sorted runs and put the result back
+		int a = 0, b = 0, m = 0;
+		while(a < kept && b < numExtras)
+			free[m++] = d[e[b]] < d[o[a]] ? e[b++] : o[a++];
+		while(a < kept)
+			free[m++] = o[a++];
+		while(b < numExtras)
+			free[m++] = e[b++];
+		System.arraycopy(free, 0, o, 0, count);
+		
+		return order;
+	}
+	
+	/**
+	 * Forgets the previous frame's order, e.g. after the system's particles were reset
+	 */
+	public void reset() {
+		numSorted = 0;
+	}
+	
+	/**
+	 * The number of frames with enough out of place particles to need the radix sort
+	 * 
+	 * @return - the radix sort count
+	 */
+	public int getNumRadixSorts() {
+		return numRadixSorts;
+	}
+	
+	/**
+	 * Works out the direction towards the viewer in the space of a system that the renderer
+	 * rotates and scales. Depth along it orders the particles as the transformed system is seen.
+	 * 
+	 * @param back - the camera's backward direction in world space
+	 * @param rotate - the system's rotation in degrees
+	 * @param scale - the system's scale
+	 * @param out - receives the direction
+	 */
+	public static void viewDirection(Vector3 back, Vector3 rotate, Vector3 scale, Vector3 out) {
+		//depth = back . (M*p) = (M^T*back) . p, with M = Rz*Ry*Rx*S as in Frustum, so M^T = S*R^T
+		Billboard.toLocal(back, rotate, out);
+		out.x*= scale.x;
+		out.y*= scale.y;
+		out.z*= scale.z;
+	}
+	
+	/**
+	 * Insertion sorts slots by depth, which is fast on short or nearly sorted input
+	 * 
+	 * @param slots - the slots to sort
+	 * @param count - the number of slots
+	 */
+	private void insertionSort(int[] slots, int count) {
+		float[] d = depth;
+		for(int i=1; i<count; i++) {
+			int slot = slots[i];
+			float key = d[slot];
+			int j = i - 1;
+			while(j >= 0 && d[slots[j]] > key) {
+				slots[j + 1] = slots[j];
+				j--;
+			}
+			slots[j + 1] = slot;
+		}
+	}
+	
+	/**
+	 * Sorts slots by depth with an LSD radix sort, 8 bits per pass.
+	 * Passes where every key has the same byte are skipped.
+	 * 
+	 * @param slots - the slots to sort
+	 * @param scratch - a second array as long as slots, for the passes to ping-pong between
+	 * @param count - the number of slots
+	 * @return - whichever of slots and scratch holds the sorted result
+	 */
+	private int[] radixSort(int[] slots, int[] scratch, int count) {
+		int[] k = keys, ks = keyScratch;
+		int[] o = slots, os = scratch;
+		float[] d = depth;
+		for(int i=0; i<count; i++)
+			k[i] = sortableBits(d[o[i]]);
+		
+		int[] c = counts;
+		for(int shift=0; shift<32; shift+= 8) {
+			for(int b=0; b<256; b++)
+				c[b] = 0;
+			for(int i=0; i<count; i++)
+				c[(k[i] >>> shift) & 0xFF]++;
+			if(c[(k[0] >>> shift) & 0xFF] == count)
+				continue;
+			
+			//Bucket starts
+			int sum = 0;
+			for(int b=0; b<256; b++) {
+				int n = c[b];
+				c[b] = sum;
+				sum+= n;
+			}
+			for(int i=0; i<count; i++) {
+				int to = c[(k[i] >>> shift) & 0xFF]++;
+				ks[to] = k[i];
+				os[to] = o[i];
+			}
+			
+			int[] t = k; k = ks; ks = t;
+			t = o; o = os; os = t;
+		}
+		return o;
+	}
+	
+	/**
+	 * Maps a float to an int whose unsigned order is the float's order.
+	 * Positive floats get their sign bit set; negative floats have every bit flipped,
+	 * which reverses their magnitude order.
+	 * 
+	 * @param f - the float
+	 * @return - the key
+	 */
+	static int sortableBits(float f) {
+		int bits = Float.floatToRawIntBits(f);
+		return bits ^ ((bits >> 31) | 0x80000000);
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if(capacity <= order.length)
+			return;
+		
+		int[] previous = order;
+		order = new int[capacity];
+		System.arraycopy(previous, 0, order, 0, numSorted);
+		depth = new float[capacity];
+		extras = new int[capacity];
+		slotScratch = new int[capacity];
+		keys = new int[capacity];
+		keyScratch = new int[capacity];
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Everything needed to build one effect, as plain data.
+ * Definitions are written in JSON, compiled offline into an EffectLibrary, and turned into
+ * running systems with create(). System types are picked with a switch, never by reflection.
+ * 
+ * Curves are stored as age, value pairs and color gradients as age, r, g, b, a stops, with
+ * ages running from 0 at birth to 1 at death.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class EffectDefinition {
+	
+	/**
+	 * GENERIC - GenericParticleSystem
+	 * FIRE - Fire
+	 * BLACK_SMOKE - BlackSmoke
+	 */
+	public enum TYPE {GENERIC, FIRE, BLACK_SMOKE};
+	
+	public String name = "";
+	public TYPE type = TYPE.GENERIC;
+	
+	//Look
+	public String texture = "";                            //Texture or atlas the app binds; empty for none
+	public String sprite = "";                             //Atlas region; empty for the whole texture
+	public int flipbookColumns = 1, flipbookRows = 1;      //Frames laid out in the sprite, 1 x 1 for a still
+	public float flipbookCycles = 1.0f;                    //Times the flipbook plays over a particle's life
+	public ParticleSystem.BLEND_MODE blendMode;            //null for the system type's own
+	public Billboard.MODE billboardMode = Billboard.MODE.SPHERICAL;
+	public boolean depthSorted;
+	
+	//Emission
+	public int maxParticles = 100;
+	public float particlesPerSec = 10.0f;
+	public float lifeTime = 1.0f, lifeTimeVariation;
+	public float duration = -1.0f;                         //-1 keeps going once started
+	public float[] origin = new float[3];
+	public float[] emitterVolume = new float[3];           //Width, depth, height
+	public float[] emitterVelocity = new float[3];
+	public float[] emitterAcceleration = new float[3];
+	public boolean radial;                                 //velocity[0] is the radial speed
+	public boolean freezeWhenCulled;
+	public float[] bursts;                                 //Time, count pairs; null for none
+	
+	//Motion
+	public float[] velocity = new float[3];
+	public float[] velocityVariation = new float[3];
+	public float[] acceleration = new float[3];
+	public float[] gravity = new float[3];
+	public float[] speedCurve;                             //Age, value pairs; null for none
+	public float[] dragCurve;                              //Age, value pairs; null for none
+	public float[] wind = new float[3];                    //Wind velocity
+	public float windStrength;                             //Fraction of the difference from the wind made up per second; 0 for no wind
+	public float turbulence;                               //Curl noise acceleration; 0 for none
+	public float turbulenceScale = 50.0f;                  //Units per turbulence grid cell
+	
+	//Size and color over life
+	public float[] startSize = new float[2];
+	public float[] endSize = new float[2];
+	public float[] sizeCurveX, sizeCurveY;                 //Age, value pairs; null for linear growth
+	public float[] colors;                                 //Age, r, g, b, a stops; null for the type's own colors
+	
+	//Baked on first use and shared by every effect with turbulence
+	private static CurlNoiseGrid turbulenceGrid;
+	
+	/**
+	 * Builds and starts a system from the definition.
+	 * Black smoke always fades by its own color deltas, so it ignores colors.
+	 * 
+	 * @param texture - the renderer's handle for the definition's texture
+	 * @param atlas - the sprite layout of the texture, or null if it isn't an atlas
+	 * @return - the running system
+	 */
+	public ParticleSystem create(int texture, TextureAtlas atlas) {
+		ParticleSystem system;
+		switch(type) {
+			case FIRE:
+				Fire fire = new Fire();
+				if(colors != null)
+					fire.setColorGradient(toGradient(colors));
+				system = fire;
+				break;
+			case BLACK_SMOKE:
+				system = new BlackSmoke();
+				break;
+			default:
+				GenericParticleSystem generic = new GenericParticleSystem();
+				if(colors != null)
+					generic.setColorGradient(toGradient(colors));
+				system = generic;
+		}
+		
+		system.setTexture(texture);
+		if(atlas != null && sprite.length() > 0) {
+			TextureAtlas.Region region = atlas.getRegion(sprite);
+			if(region != null)
+				system.setSprite(new Sprite(region, flipbookColumns, flipbookRows, flipbookCycles));
+		}
+		if(blendMode != null)
+			system.setBlendMode(blendMode);
+		system.setBillboardMode(billboardMode);
+		system.setDepthSorted(depthSorted);
+		
+		system.setEmitterVolume(emitterVolume[0], emitterVolume[1], emitterVolume[2]);
+		system.setEmitterMotion(toVector(emitterVelocity), toVector(emitterAcceleration));
+		if(radial)
+			system.setRadial();
+		system.setFreezeWhenCulled(freezeWhenCulled);
+		if(bursts != null) {
+			for(int i=0; i + 1<bursts.length; i+= 2)
+				system.addBurst(bursts[i], (int) bursts[i + 1]);
+		}
+		
+		system.setParticleLife(maxParticles, particlesPerSec, lifeTime, lifeTimeVariation);
+		system.setMotion(toVector(velocity), toVector(velocityVariation), toVector(acceleration));
+		system.getPipeline().setGravity(gravity[0], gravity[1], gravity[2]);
+		if(speedCurve != null)
+			system.setSpeedCurve(toCurve(speedCurve));
+		if(dragCurve != null)
+			system.setDragCurve(toCurve(dragCurve));
+		if(windStrength != 0.0f)
+			system.getPipeline().addForceField(ForceField.wind(toVector(wind), windStrength));
+		if(turbulence != 0.0f)
+			system.getPipeline().addForceField(ForceField.turbulence(getTurbulenceGrid(), turbulence, turbulenceScale));
+		
+		system.setParticleSize(new Vector2(startSize[0], startSize[1]), new Vector2(endSize[0], endSize[1]));
+		system.setSizeCurves(sizeCurveX == null? null:toCurve(sizeCurveX), sizeCurveY == null? null:toCurve(sizeCurveY));
+		
+		system.startSystem(toVector(origin), duration);
+		return system;
+	}
+	
+	/**
+	 * The curl noise grid used for turbulence. It is baked the first time it is needed,
+	 * which takes tens of milliseconds, so create turbulent effects at load time.
+	 * 
+	 * @return - the shared grid
+	 */
+	public static synchronized CurlNoiseGrid getTurbulenceGrid() {
+		if(turbulenceGrid == null)
+			turbulenceGrid = new CurlNoiseGrid(32, 2, 1);
+		return turbulenceGrid;
+	}
+	
+	private static Vector3 toVector(float[] xyz) {
+		return new Vector3(xyz[0], xyz[1], xyz[2]);
+	}
+	
+	private static Curve toCurve(float[] keys) {
+		Curve curve = new Curve();
+		curve.clear();
+		for(int i=0; i + 1<keys.length; i+= 2)
+			curve.addKey(keys[i], keys[i + 1]);
+		return curve;
+	}
+	
+	private static ColorGradient toGradient(float[] stops) {
+		ColorGradient gradient = new ColorGradient();
+		gradient.clear();
+		for(int i=0; i + 4<stops.length; i+= 5)
+			gradient.addStop(stops[i], stops[i + 1], stops[i + 2], stops[i + 3], stops[i + 4]);
+		return gradient;
+	}
+}
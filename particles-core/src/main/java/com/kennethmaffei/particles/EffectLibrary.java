@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * A set of effect definitions in the compact binary form the effect compiler writes (.pfx).
+ * Loading is a header check and a table of names; an effect's fields are only read, in a fixed
+ * order with no field names, type lookups or reflection, the first time it is asked for.
+ * 
+ * Layout, little endian: magic, version, effect count, then a name and byte offset per effect,
+ * then the effects. Strings are a short byte length and UTF-8 bytes, and float arrays a short
+ * length (-1 for null) and the floats.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class EffectLibrary {
+	public static final String EXTENSION = ".pfx";
+	
+	private static final int MAGIC = 0x58465050;   //"PPFX" when read as little endian bytes
+	private static final int VERSION = 2;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	//Flag bits
+	private static final int DEPTH_SORTED = 1;
+	private static final int RADIAL = 2;
+	private static final int FREEZE_WHEN_CULLED = 4;
+	
+	private ByteBuffer data;
+	private String[] names;
+	private int[] offsets;
+	private EffectDefinition[] effects;            //Read on first use
+	
+	/**
+	 * Reads a library's table of contents. The buffer is kept and effects are read from it on demand.
+	 * 
+	 * @param buffer - the whole file
+	 * @return - the library
+	 * @throws IOException - if the buffer is not an effect library
+	 */
+	public static EffectLibrary read(ByteBuffer buffer) throws IOException {
+		ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		in.position(0);
+		if(in.remaining() < 12 || in.getInt() != MAGIC)
+			throw new IOException("Not an effect library");
+		int version = in.getInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported effect library version " + version);
+		
+		EffectLibrary library = new EffectLibrary();
+		int numEffects = in.getInt();
+		library.names = new String[numEffects];
+		library.offsets = new int[numEffects];
+		library.effects = new EffectDefinition[numEffects];
+		for(int i=0; i<numEffects; i++) {
+			library.names[i] = getString(in);
+			library.offsets[i] = in.getInt();
+			if(library.offsets[i] >= in.limit())
+				throw new IOException("Effect library is truncated");
+		}
+		library.data = in;
+		return library;
+	}
+	
+	public int getNumEffects() {
+		return names.length;
+	}
+	
+	public String getName(int index) {
+		return names[index];
+	}
+	
+	/**
+	 * Finds an effect by name
+	 * 
+	 * @param name - the effect's name
+	 * @return - the definition, or null if the library doesn't have it
+	 */
+	public EffectDefinition get(String name) {
+		for(int i=0; i<names.length; i++) {
+			if(names[i].equals(name))
+				return get(i);
+		}
+		return null;
+	}
+	
+	/**
+	 * The effect at a position in the library
+	 * 
+	 * @param index - 0 to getNumEffects() - 1
+	 * @return - the definition. It is shared, so don't change it.
+	 */
+	public synchronized EffectDefinition get(int index) {
+		if(effects[index] == null) {
+			ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			in.position(offsets[index]);
+			effects[index] = readEffect(in);
+		}
+		return effects[index];
+	}
+	
+	/**
+	 * Writes a library
+	 * 
+	 * @param out - the stream to write to
+	 * @param effects - the definitions, with unique names
+	 * @throws IOException
+	 */
+	public static void write(OutputStream out, List<EffectDefinition> effects) throws IOException {
+		byte[][] records = new byte[effects.size()][];
+		byte[][] names = new byte[effects.size()][];
+		int header = 12;
+		for(int i=0; i<records.length; i++) {
+			records[i] = writeEffect(effects.get(i));
+			names[i] = effects.get(i).name.getBytes(UTF8);
+			header+= 2 + names[i].length + 4;
+		}
+		
+		int size = header;
+		for(byte[] record : records)
+			size+= record.length;
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(records.length);
+		int offset = header;
+		for(int i=0; i<records.length; i++) {
+			buffer.putShort((short) names[i].length);
+			buffer.put(names[i]);
+			buffer.putInt(offset);
+			offset+= records[i].length;
+		}
+		for(byte[] record : records)
+			buffer.put(record);
+		out.write(buffer.array(), 0, size);
+	}
+	
+	private static EffectDefinition readEffect(ByteBuffer in) {
+		EffectDefinition e = new EffectDefinition();
+		e.name = getString(in);
+		e.type = EffectDefinition.TYPE.values()[in.get()];
+		int blendMode = in.get();
+		e.blendMode = blendMode < 0? null:ParticleSystem.BLEND_MODE.values()[blendMode];
+		e.billboardMode = Billboard.MODE.values()[in.get()];
+		int flags = in.get();
+		e.depthSorted = (flags & DEPTH_SORTED) != 0;
+		e.radial = (flags & RADIAL) != 0;
+		e.freezeWhenCulled = (flags & FREEZE_WHEN_CULLED) != 0;
+		
+		e.texture = getString(in);
+		e.sprite = getString(in);
+		e.flipbookColumns = in.getShort();
+		e.flipbookRows = in.getShort();
+		e.flipbookCycles = in.getFloat();
+		
+		e.maxParticles = in.getInt();
+		e.particlesPerSec = in.getFloat();
+		e.lifeTime = in.getFloat();
+		e.lifeTimeVariation = in.getFloat();
+		e.duration = in.getFloat();
+		getFloats(in, e.origin);
+		getFloats(in, e.emitterVolume);
+		getFloats(in, e.emitterVelocity);
+		getFloats(in, e.emitterAcceleration);
+		getFloats(in, e.velocity);
+		getFloats(in, e.velocityVariation);
+		getFloats(in, e.acceleration);
+		getFloats(in, e.gravity);
+		getFloats(in, e.wind);
+		e.windStrength = in.getFloat();
+		e.turbulence = in.getFloat();
+		e.turbulenceScale = in.getFloat();
+		getFloats(in, e.startSize);
+		getFloats(in, e.endSize);
+		
+		e.bursts = getFloatArray(in);
+		e.speedCurve = getFloatArray(in);
+		e.dragCurve = getFloatArray(in);
+		e.sizeCurveX = getFloatArray(in);
+		e.sizeCurveY = getFloatArray(in);
+		e.colors = getFloatArray(in);
+		return e;
+	}
+	
+	private static byte[] writeEffect(EffectDefinition e) {
+		byte[] name = e.name.getBytes(UTF8), texture = e.texture.getBytes(UTF8), sprite = e.sprite.getBytes(UTF8);
+		int size = 2 + name.length + 4 + 2 + texture.length + 2 + sprite.length + 8 + 20 + 34*4 +
+				arraySize(e.bursts) + arraySize(e.speedCurve) + arraySize(e.dragCurve) +
+				arraySize(e.sizeCurveX) + arraySize(e.sizeCurveY) + arraySize(e.colors);
+		ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		
+		putString(out, name);
+		out.put((byte) e.type.ordinal());
+		out.put((byte) (e.blendMode == null? -1:e.blendMode.ordinal()));
+		out.put((byte) e.billboardMode.ordinal());
+		out.put((byte) ((e.depthSorted? DEPTH_SORTED:0) | (e.radial? RADIAL:0) | (e.freezeWhenCulled? FREEZE_WHEN_CULLED:0)));
+		
+		putString(out, texture);
+		putString(out, sprite);
+		out.putShort((short) e.flipbookColumns);
+		out.putShort((short) e.flipbookRows);
+		out.putFloat(e.flipbookCycles);
+		
+		out.putInt(e.maxParticles);
+		out.putFloat(e.particlesPerSec);
+		out.putFloat(e.lifeTime);
+		out.putFloat(e.lifeTimeVariation);
+		out.putFloat(e.duration);
+		putFloats(out, e.origin, 3);
+		putFloats(out, e.emitterVolume, 3);
+		putFloats(out, e.emitterVelocity, 3);
+		putFloats(out, e.emitterAcceleration, 3);
+		putFloats(out, e.velocity, 3);
+		putFloats(out, e.velocityVariation, 3);
+		putFloats(out, e.acceleration, 3);
+		putFloats(out, e.gravity, 3);
+		putFloats(out, e.wind, 3);
+		out.putFloat(e.windStrength);
+		out.putFloat(e.turbulence);
+		out.putFloat(e.turbulenceScale);
+		putFloats(out, e.startSize, 2);
+		putFloats(out, e.endSize, 2);
+		
+		putFloatArray(out, e.bursts);
+		putFloatArray(out, e.speedCurve);
+		putFloatArray(out, e.dragCurve);
+		putFloatArray(out, e.sizeCurveX);
+		putFloatArray(out, e.sizeCurveY);
+		putFloatArray(out, e.colors);
+		return out.array();
+	}
+	
+	private static String getString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getShort()];
+		in.get(bytes);
+		return new String(bytes, UTF8);
+	}
+	
+	private static void putString(ByteBuffer out, byte[] bytes) {
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+	}
+	
+	private static void getFloats(ByteBuffer in, float[] values) {
+		for(int i=0; i<values.length; i++)
+			values[i] = in.getFloat();
+	}
+	
+	private static void putFloats(ByteBuffer out, float[] values, int count) {
+		for(int i=0; i<count; i++)
+			out.putFloat(values[i]);
+	}
+	
+	private static float[] getFloatArray(ByteBuffer in) {
+		int length = in.getShort();
+		if(length < 0)
+			return null;
+		float[] values = new float[length];
+		getFloats(in, values);
+		return values;
+	}
+	
+	private static void putFloatArray(ByteBuffer out, float[] values) {
+		out.putShort((short) (values == null? -1:values.length));
+		if(values != null)
+			putFloats(out, values, values.length);
+	}
+	
+	private static int arraySize(float[] values) {
+		return 2 + (values == null? 0:values.length*4);
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.Arrays;
+
+/**
+ * This system creates a fire particle system
+ * As such, the colors do not need to be set, however the option to set them exists if you want a different effect
+ * Setting a start, mid or end color, or a ColorGradient, replaces the default red/yellow colors
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class Fire extends GradientParticleSystem {
+
+	public Fire() {
+		//Fire burns out at twice the elapsed time, and faster still while the system shuts down.
+		//The default colors fade by their deltas, which follow time rather than age.
+		pipeline.setAging(2.0f, 3.0f).setColorDeltas();
+	}
+	
+	@Override
+	void initializeParticles(int start, int end) {
+		ParticleStore p = particles;
+		
+		//Somewhere in the emitter volume
+		spawnSpread(p.positionX, start, end, origin.x, width/2.0f);
+		spawnSpread(p.positionY, start, end, origin.y, depth/2.0f);
+		spawnSpread(p.positionZ, start, end, origin.z, height/2.0f);
+		
+		spawnSpread(p.velocityX, start, end, velocity.x, velocityVariation.x);
+		spawnSpread(p.velocityY, start, end, velocity.y, velocityVariation.y);
+		spawnSpread(p.velocityZ, start, end, velocity.z, velocityVariation.z);
+		
+		Arrays.fill(p.accelerationX, start, end, acceleration.x);
+		Arrays.fill(p.accelerationY, start, end, acceleration.y);
+		Arrays.fill(p.accelerationZ, start, end, acceleration.z);
+		
+		Arrays.fill(p.sizeX, start, end, startSize.x);
+		Arrays.fill(p.sizeY, start, end, startSize.y);
+		
+		spawnLife(start, end);
+		
+		if(useDefaultColors) {
+			//Red to yellow, fading out and towards red over life
+			float[] life = p.life, g = p.colorG, dg = p.deltaColorG, da = p.deltaColorA;
+			Arrays.fill(p.colorR, start, end, 1.0f);
+			spawnUniform(g, start, end, 0.5f, 0.5f);
+			Arrays.fill(p.colorB, start, end, 0.0f);
+			Arrays.fill(p.colorA, start, end, 1.0f);
+
+			Arrays.fill(p.deltaColorR, start, end, 0.0f);
+			Arrays.fill(p.deltaColorB, start, end, 0.0f);
+			for(int i=start; i<end; i++) {
+				dg[i] = -g[i]/life[i];
+				da[i] = -1.0f/life[i];
+			}
+		}
+		else {
+			float[] colors = colorGradient.getTable();
+			Arrays.fill(p.colorR, start, end, colors[0]);
+			Arrays.fill(p.colorG, start, end, colors[1]);
+			Arrays.fill(p.colorB, start, end, colors[2]);
+			Arrays.fill(p.colorA, start, end, colors[3]);
+		}
+
+		spawnSizeDeltas(start, end);
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A force acting on every particle of a system, added to a system's AffectorPipeline.
+ * Positions and directions are in the system's space, like the particles.
+ * 
+ * ATTRACTOR - pulls particles towards a point; a negative strength makes it a repulsor
+ * VORTEX - swirls particles around an axis through a point, with an optional pull towards the axis
+ * WIND - drags particles towards the wind's velocity; the strength is how quickly they catch up
+ * TURBULENCE - pushes particles along a baked curl noise field
+ * 
+ * Attractors and vortices fade out linearly to nothing at their radius, or have no limit if the
+ * radius is 0. Fields are created with the static factories and may be moved between steps.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public final class ForceField {
+	
+	public enum TYPE {ATTRACTOR, VORTEX, WIND, TURBULENCE};
+	
+	final TYPE type;
+	float x, y, z;                     //Position, wind velocity, or turbulence offset
+	float axisX, axisY, axisZ;         //Vortex axis, normalized
+	float strength;                    //Acceleration at full strength
+	float pull;                        //Vortex acceleration towards the axis
+	float radius;                      //Reach of attractors and vortices, 0 for unlimited
+	float inverseCellSize;             //Turbulence grid cells per unit
+	CurlNoiseGrid grid;
+	
+	private ForceField(TYPE type) {
+		this.type = type;
+	}
+	
+	/**
+	 * A point that pulls particles towards it, or pushes them away
+	 * 
+	 * @param position - the point
+	 * @param strength - acceleration towards the point; negative to repel
+	 * @param radius - distance at which the force fades to nothing, 0 for unlimited
+	 * @return - the field
+	 */
+	public static ForceField attractor(Vector3 position, float strength, float radius) {
+		ForceField field = new ForceField(TYPE.ATTRACTOR);
+		field.setPosition(position);
+		field.strength = strength;
+		field.radius = radius;
+		return field;
+	}
+	
+	/**
+	 * A swirl around an axis
+	 * 
+	 * @param position - a point on the axis
+	 * @param axis - the axis direction; particles turn right-handed about it
+	 * @param strength - acceleration around the axis
+	 * @param pull - acceleration towards the axis, which keeps particles from flying outwards
+	 * @param radius - distance from the axis at which the force fades to nothing, 0 for unlimited
+	 * @return - the field
+	 */
+	public static ForceField vortex(Vector3 position, Vector3 axis, float strength, float pull, float radius) {
+		ForceField field = new ForceField(TYPE.VORTEX);
+		field.setPosition(position);
+		float length = axis.length();
+		field.axisX = axis.x/length;
+		field.axisY = axis.y/length;
+		field.axisZ = axis.z/length;
+		field.strength = strength;
+		field.pull = pull;
+		field.radius = radius;
+		return field;
+	}
+	
+	/**
+	 * A wind that particles are dragged along with
+	 * 
+	 * @param velocity - the wind velocity
+	 * @param strength - fraction of the difference from the wind velocity made up per second
+	 * @return - the field
+	 */
+	public static ForceField wind(Vector3 velocity, float strength) {
+		ForceField field = new ForceField(TYPE.WIND);
+		field.setPosition(velocity);
+		field.strength = strength;
+		return field;
+	}
+	
+	/**
+	 * Turbulence from a curl noise grid
+	 * 
+	 * @param grid - the baked field; one grid can be shared by any number of systems
+	 * @param strength - acceleration where the field is strongest
+	 * @param cellSize - units per grid cell; larger gives broader swirls
+	 * @return - the field
+	 */
+	public static ForceField turbulence(CurlNoiseGrid grid, float strength, float cellSize) {
+		ForceField field = new ForceField(TYPE.TURBULENCE);
+		field.grid = grid;
+		field.strength = strength;
+		field.inverseCellSize = 1.0f/cellSize;
+		return field;
+	}
+	
+	/**
+	 * @return - what kind of force the field applies
+	 */
+	public TYPE getType() {
+		return type;
+	}
+	
+	/**
+	 * Moves the field: the point of an attractor or vortex, the velocity of a wind, or the offset
+	 * into a turbulence grid, which can be scrolled to make the turbulence change over time
+	 * 
+	 * @param position - the new position, velocity or offset
+	 */
+	public void setPosition(Vector3 position) {
+		x = position.x;
+		y = position.y;
+		z = position.z;
+	}
+	
+	/**
+	 * Changes the field's strength, e.g. to fade a gust of wind in and out
+	 * 
+	 * @param strength - the acceleration at full strength, or for wind the fraction of the
+	 * difference made up per second
+	 */
+	public void setStrength(float strength) {
+		this.strength = strength;
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * The six planes of the camera's view volume, for culling whole particle systems.
+ * The planes are pulled straight out of projection * view (Gribb and Hartmann), so they always
+ * match what GL draws. Plane normals point into the volume.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class Frustum {
+	private final float[] planes = new float[24];      //a, b, c, d for left, right, bottom, top, near, far
+	private final float[] clip = new float[16];        //projection * view, column major
+	
+	/**
+	 * Extracts the planes for a camera
+	 * 
+	 * @param projection - column major 4x4 projection matrix
+	 * @param view - column major 4x4 view matrix
+	 */
+	public void set(float[] projection, float[] view) {
+		for(int col=0; col<4; col++) {
+			for(int row=0; row<4; row++) {
+				clip[col*4 + row] = projection[row]*view[col*4]
+						+ projection[4 + row]*view[col*4 + 1]
+						+ projection[8 + row]*view[col*4 + 2]
+						+ projection[12 + row]*view[col*4 + 3];
+			}
+		}
+		
+		for(int p=0; p<6; p++) {
+			//Each plane is row 3 plus or minus row 0, 1 or 2
+			int row = p/2;
+			float sign = (p & 1) == 0? 1.0f:-1.0f;
+			float a = clip[3] + sign*clip[row];
+			float b = clip[7] + sign*clip[4 + row];
+			float c = clip[11] + sign*clip[8 + row];
+			float d = clip[15] + sign*clip[12 + row];
+			
+			float length = (float) Math.sqrt(a*a + b*b + c*c);
+			if(length < 0.00001f)
+				length = 1.0f;
+			planes[p*4] = a/length;
+			planes[p*4 + 1] = b/length;
+			planes[p*4 + 2] = c/length;
+			planes[p*4 + 3] = d/length;
+		}
+	}
+	
+	/**
+	 * Tests a sphere against the view volume
+	 * 
+	 * @param x - the center x
+	 * @param y - the center y
+	 * @param z - the center z
+	 * @param radius - the radius
+	 * @return - false if the sphere is entirely outside
+	 */
+	public boolean intersectsSphere(float x, float y, float z, float radius) {
+		for(int p=0; p<24; p+=4) {
+			if(planes[p]*x + planes[p + 1]*y + planes[p + 2]*z + planes[p + 3] < -radius)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Tests a box given by its center and half extents against the view volume
+	 * 
+	 * @param x - the center x
+	 * @param y - the center y
+	 * @param z - the center z
+	 * @param extentX - half the width
+	 * @param extentY - half the height
+	 * @param extentZ - half the depth
+	 * @return - false if the box is entirely outside
+	 */
+	public boolean intersectsBox(float x, float y, float z, float extentX, float extentY, float extentZ) {
+		for(int p=0; p<24; p+=4) {
+			float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+			float distance = a*x + b*y + c*z + planes[p + 3];
+			float reach = Math.abs(a)*extentX + Math.abs(b)*extentY + Math.abs(c)*extentZ;
+			if(distance < -reach)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Tests a system space box against the view volume.
+	 * The box is carried into world space with the same rotation and scale the renderer
+	 * applies to the whole system.
+	 * 
+	 * @param bounds - the box in system space
+	 * @param rotate - the system rotation in degrees, applied z, then y, then x
+	 * @param scale - the system scale
+	 * @return - false if the box is entirely outside, or empty
+	 */
+	public boolean intersects(Bounds bounds, Vector3 rotate, Vector3 scale) {
+		if(bounds.isEmpty())
+			return false;
+		
+		float cx = (bounds.minX + bounds.maxX)*0.5f;
+		float cy = (bounds.minY + bounds.maxY)*0.5f;
+		float cz = (bounds.minZ + bounds.maxZ)*0.5f;
+		float ex = (bounds.maxX - bounds.minX)*0.5f;
+		float ey = (bounds.maxY - bounds.minY)*0.5f;
+		float ez = (bounds.maxZ - bounds.minZ)*0.5f;
+		
+		if(rotate.x == 0.0f && rotate.y == 0.0f && rotate.z == 0.0f)
+			return intersectsBox(cx*scale.x, cy*scale.y, cz*scale.z,
+					ex*Math.abs(scale.x), ey*Math.abs(scale.y), ez*Math.abs(scale.z));
+		
+		//M = Rz*Ry*Rx*S, the order glRotatef and glScalef are applied in
+		float sx = (float) Math.sin(Globals.Deg2Rad(rotate.x)), cxr = (float) Math.cos(Globals.Deg2Rad(rotate.x));
+		float sy = (float) Math.sin(Globals.Deg2Rad(rotate.y)), cyr = (float) Math.cos(Globals.Deg2Rad(rotate.y));
+		float sz = (float) Math.sin(Globals.Deg2Rad(rotate.z)), czr = (float) Math.cos(Globals.Deg2Rad(rotate.z));
+		float m00 = czr*cyr, m01 = czr*sy*sx - sz*cxr, m02 = czr*sy*cxr + sz*sx;
+		float m10 = sz*cyr, m11 = sz*sy*sx + czr*cxr, m12 = sz*sy*cxr - czr*sx;
+		float m20 = -sy, m21 = cyr*sx, m22 = cyr*cxr;
+		m00*= scale.x; m10*= scale.x; m20*= scale.x;
+		m01*= scale.y; m11*= scale.y; m21*= scale.y;
+		m02*= scale.z; m12*= scale.z; m22*= scale.z;
+		
+		//The world box around a transformed box has extents |M| * e
+		return intersectsBox(m00*cx + m01*cy + m02*cz, m10*cx + m11*cy + m12*cz, m20*cx + m21*cy + m22*cz,
+				Math.abs(m00)*ex + Math.abs(m01)*ey + Math.abs(m02)*ez,
+				Math.abs(m10)*ex + Math.abs(m11)*ey + Math.abs(m12)*ez,
+				Math.abs(m20)*ex + Math.abs(m21)*ey + Math.abs(m22)*ez);
+	}
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.Arrays;
+
+/**
+ * This system is a general particle system.
+ * It uses a start color, mid color and end color for particles, white by default
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class GenericParticleSystem extends GradientParticleSystem {
+
+	public GenericParticleSystem() {
+		//There are no default colors, the gradient always drives color over life
+		useDefaultColors = false;
+		pipeline.setColorGradient(colorGradient);
+	}
+	
+	@Override
+	void initializeParticles(int start, int end) {
+		ParticleStore p = particles;
+		
+		//Somewhere in the emitter volume
+		spawnSpread(p.positionX, start, end, origin.x, width/2.0f);
+		spawnSpread(p.positionY, start, end, origin.y, depth/2.0f);
+		spawnSpread(p.positionZ, start, end, origin.z, height/2.0f);
+		
+		Arrays.fill(p.sizeX, start, end, startSize.x);
+		Arrays.fill(p.sizeY, start, end, startSize.y);
+		
+		if(radial) {
+			//A random direction scaled to the radial speed. Velocity.x is the radial velocity.
+			float[] speed = spawnScratch;
+			spawnSpread(speed, start, end, velocity.x, velocityVariation.x);
+			float[] vx = p.velocityX, vy = p.velocityY, vz = p.velocityZ;
+			spawnSpread(vx, start, end, 0.0f, 1.0f);
+			spawnSpread(vy, start, end, 0.0f, 1.0f);
+			spawnSpread(vz, start, end, 0.0f, 1.0f);
+			for(int i=start; i<end; i++) {
+				float length = (float) Math.sqrt(vx[i]*vx[i] + vy[i]*vy[i] + vz[i]*vz[i]);
+				if(length < 0.00001f)
+					length = 1.0f;
+				float scale = Math.abs(speed[i])/length;
+				vx[i]*= scale;
+				vy[i]*= scale;
+				vz[i]*= scale;
+			}
+		}
+		else {
+			spawnSpread(p.velocityX, start, end, velocity.x, velocityVariation.x);
+			spawnSpread(p.velocityY, start, end, velocity.y, velocityVariation.y);
+			spawnSpread(p.velocityZ, start, end, velocity.z, velocityVariation.z);
+		}
+
+		Arrays.fill(p.accelerationX, start, end, acceleration.x);
+		Arrays.fill(p.accelerationY, start, end, acceleration.y);
+		Arrays.fill(p.accelerationZ, start, end, acceleration.z);
+		
+		spawnLife(start, end);
+		
+		float[] colors = colorGradient.getTable();
+		Arrays.fill(p.colorR, start, end, colors[0]);
+		Arrays.fill(p.colorG, start, end, colors[1]);
+		Arrays.fill(p.colorB, start, end, colors[2]);
+		Arrays.fill(p.colorA, start, end, colors[3]);
+
+		spawnSizeDeltas(start, end);
+	}
+}
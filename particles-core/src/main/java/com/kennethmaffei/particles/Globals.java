@@ -18,8 +18,6 @@ package com.kennethmaffei.particles;
 
 import java.util.Random;
 
-import android.content.Context;
-
 /**
  * These are parameters and functions that may be used/shared by various classes
  * @author Kenneth Maffei
@@ -27,26 +25,19 @@ import android.content.Context;
  */
 public class Globals {
 
-	public static float deviceWidth = 0.0f;
-	public static float deviceHeight = 0.0f;
-	
-	public static Context context;
-	
 	public static Random r = new Random();
 	
 	public static float Deg2Rad(float deg) {
 		return (3.14159265359f/180.0f)*(deg);
 	}
 	
+	/**
+	 * Shared and synchronized, so it's fine for occasional use.
+	 * Particle systems use their own ParticleRandom instead.
+	 * 
+	 * @return - a random float from 0 to 1
+	 */
 	public static float random() {
 		return r.nextFloat();
 	}
-	
-	//Globals for billboarding
-	public static float theta;
-	public static float phi;
-	public static Vector3 upAux = new Vector3();
-	public static boolean billboardDirectionTest;
-	public static boolean thetaTest;
-	public static boolean phiTest;
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Base for the systems whose color is set by a start, mid and end color, or by a ColorGradient
+ * A particle will morph from it's start color to its mid and end colors
+ * The mid color appears at the midPercent point in it's life cycle
+ * The colors include an alpha value
+ * For more than three colors, set a ColorGradient instead
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public abstract class GradientParticleSystem extends ParticleSystem {
+
+	protected float startColorR = 1.0f;          //Start red value
+	protected float startColorG = 1.0f;          //Start green value
+	protected float startColorB = 1.0f;          //Start blue value
+	protected float startColorA = 1.0f;          //Start alpha value
+	protected float midColorR = 1.0f;            //Mid red value
+	protected float midColorG = 1.0f;            //Mid green value
+	protected float midColorB = 1.0f;            //Mid blue value
+	protected float midColorA = 1.0f;            //Mid alpha value
+	protected float endColorR = 1.0f;            //Final red value
+	protected float endColorG = 1.0f;            //Final green value
+	protected float endColorB = 1.0f;            //Final blue value
+	protected float endColorA = 1.0f;            //Final alpha value
+
+	protected float midPercent = 0.5f;           //At what point in the particles life it reaches the mid color
+	
+	protected ColorGradient colorGradient = new ColorGradient();   //Color over life, baked into a lookup table
+
+	protected boolean useDefaultColors = true;   //Keep the system's own colors until a color or gradient is set
+	
+	/**
+	 * Set the particle start color
+	 * 
+	 * @param r - red
+	 * @param g - greed
+	 * @param b - blue
+	 * @param a - alpha
+	 */
+	void setStartColor(float r, float g, float b, float a) {
+		startColorR = r;
+		startColorG = g;
+		startColorB = b;
+		startColorA = a;
+		useDefaultColors = false;
+		setThreeStopGradient();
+	}
+	
+	/**
+	 * Set the particle mid color
+	 * 
+	 * @param r - red
+	 * @param g - greed
+	 * @param b - blue
+	 * @param a - alpha
+	 */
+	void setMidColor(float r, float g, float b, float a) {
+		midColorR = r;
+		midColorG = g;
+		midColorB = b;
+		midColorA = a;
+		useDefaultColors = false;
+		setThreeStopGradient();
+	}
+	
+	/**
+	 * Set the particle end color
+	 * 
+	 * @param r - red
+	 * @param g - greed
+	 * @param b - blue
+	 * @param a - alpha
+	 */
+	void setEndColor(float r, float g, float b, float a) {
+		endColorR = r;
+		endColorG = g;
+		endColorB = b;
+		endColorA = a;
+		useDefaultColors = false;
+		setThreeStopGradient();
+	}
+	
+	/**
+	 * Sets the midpoint for particle color changes
+	 * 
+	 * @param midPercent - the midpoint percentage in the particle's life, kept between 0.1 and 99.9
+	 * so the mid color never replaces the start or end color
+	 */
+	void setMidPercent(float midPercent) {
+		if(midPercent < 0.1f)
+			midPercent = 0.1f;
+		else if(midPercent > 99.9f)
+			midPercent = 99.9f;
+		this.midPercent = midPercent/100.0f;
+		setThreeStopGradient();
+	}
+	
+	/**
+	 * Sets a gradient with any number of color stops, replacing the start, mid and end colors
+	 * 
+	 * @param colorGradient - the color over the particle's life
+	 */
+	void setColorGradient(ColorGradient colorGradient) {
+		this.colorGradient = colorGradient;
+		useDefaultColors = false;
+		pipeline.setColorGradient(colorGradient);
+	}
+	
+	private void setThreeStopGradient() {
+		colorGradient = new ColorGradient()
+				.addStop(0.0f, startColorR, startColorG, startColorB, startColorA)
+				.addStop(midPercent, midColorR, midColorG, midColorB, midColorA)
+				.addStop(1.0f, endColorR, endColorG, endColorB, endColorA);
+		//The default colors keep their deltas until a color is actually set
+		if(!useDefaultColors)
+			pipeline.setColorGradient(colorGradient);
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+/**
+ * Sorted keys over a particle's normalized life, each holding a fixed number of values, baked
+ * into a table of RESOLUTION entries by linear interpolation. Curve keeps one value per key and
+ * ColorGradient four.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+final class KeyTable {
+	static final int RESOLUTION = 256;                 //Number of entries in the baked table
+	
+	private final int width;                           //Values per key and per table entry
+	private float[] ages = new float[4];               //Key ages, kept sorted
+	private float[] values;                            //Key values, interleaved
+	private int numKeys;
+	
+	final float[] table;                               //Baked values, interleaved
+	
+	/**
+	 * @param width - the number of values per key
+	 */
+	KeyTable(int width) {
+		this.width = width;
+		values = new float[4*width];
+		table = new float[RESOLUTION*width];
+	}
+	
+	/**
+	 * Makes room for a key, in age order. A key at the same age as an existing one is replaced.
+	 * Write the key's values at the returned offset, then bake().
+	 * 
+	 * @param age - the normalized age; values outside 0 to 1 are clamped
+	 * @return - the offset of the key's first value in values()
+	 */
+	int insert(float age) {
+		age = age < 0.0f? 0.0f:(age > 1.0f? 1.0f:age);
+		
+		int index = 0;
+		while(index < numKeys && ages[index] < age)
+			index++;
+		
+		if(index == numKeys || ages[index] != age) {
+			if(numKeys == ages.length) {
+				float[] grownAges = new float[numKeys*2];
+				System.arraycopy(ages, 0, grownAges, 0, numKeys);
+				ages = grownAges;
+				float[] grownValues = new float[numKeys*2*width];
+				System.arraycopy(values, 0, grownValues, 0, numKeys*width);
+				values = grownValues;
+			}
+			System.arraycopy(ages, index, ages, index + 1, numKeys - index);
+			System.arraycopy(values, index*width, values, (index + 1)*width, (numKeys - index)*width);
+			numKeys++;
+		}
+		
+		ages[index] = age;
+		return index*width;
+	}
+	
+	/**
+	 * The key values, for writing a key after insert()
+	 * 
+	 * @return - the values, interleaved
+	 */
+	float[] values() {
+		return values;
+	}
+	
+	void clear() {
+		numKeys = 0;
+	}
+	
+	int size() {
+		return numKeys;
+	}
+	
+	/**
+	 * Converts a normalized age into the nearest table entry
+	 * 
+	 * @param age - the normalized age; values outside 0 to 1 are clamped
+	 * @return - the entry index, multiply by the width for the offset into table
+	 */
+	static int index(float age) {
+		int index = (int)(age*(RESOLUTION - 1) + 0.5f);
+		if(index < 0)
+			return 0;
+		if(index > RESOLUTION - 1)
+			return RESOLUTION - 1;
+		return index;
+	}
+	
+	/**
+	 * Rebuilds the table from the keys. Before the first key and past the last one the values are held.
+	 */
+	void bake() {
+		int key = 0;
+		for(int i=0; i<RESOLUTION; i++) {
+			float age = i/(float)(RESOLUTION - 1);
+			while(key < numKeys - 1 && ages[key + 1] <= age)
+				key++;
+			
+			int from = key*width;
+			int t = i*width;
+			if(key == numKeys - 1 || age <= ages[key]) {
+				for(int c=0; c<width; c++)
+					table[t + c] = values[from + c];
+			}
+			else {
+				int to = from + width;
+				float percent = (age - ages[key])/(ages[key + 1] - ages[key]);
+				for(int c=0; c<width; c++)
+					table[t + c] = values[from + c] + (values[to + c] - values[from + c])*percent;
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A simulation clock driven by hand instead of by System.nanoTime().
+ * Feed it a fixed sequence of frame times and it produces the same steps and alpha every run,
+ * for tests, replays and offline rendering.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class ManualClock extends SimulationClock {
+	
+	private long time;                      //Current time in nanoseconds
+	
+	/**
+	 * Moves time forward. Call before advance().
+	 * 
+	 * @param seconds - the frame time
+	 */
+	public void addTime(float seconds) {
+		time+= (long)(seconds*1000000000.0);
+	}
+	
+	@Override
+	protected long nanoTime() {
+		return time;
+	}
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * A texture stored ready to upload: raw texels for every mip level, in the layout GL takes them.
+ * The .ptex files are built offline by the texture compiler, so at runtime there is nothing to
+ * decode. read() only parses the small header; the levels are slices of the buffer it is given,
+ * so a memory mapped file goes straight to glTexImage2D without being copied.
+ * 
+ * Everything is little endian, which is also the byte order of the 16 bit texel formats, so
+ * the texels can be handed to GL as they are on every device we run on. Pixels are stored with
+ * premultiplied alpha, like Android's own bitmaps.
+ * 
+ * An atlas page also stores its sprite layout, so it doesn't need packing at runtime.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class PackedTexture {
+	public static final String EXTENSION = ".ptex";
+	
+	private static final int MAGIC = 0x58455450;   //"PTEX" when read as little endian bytes
+	private static final int VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	/**
+	 * RGBA8888 - 4 bytes per texel, r, g, b, a
+	 * RGB565 - 2 bytes per texel, for opaque textures at half the memory
+	 */
+	public enum FORMAT {RGBA8888, RGB565};
+	
+	public FORMAT format;
+	public int width, height;                      //Size of level 0
+	public int numLevels;
+	public TextureAtlas atlas;                     //Sprite layout, null unless the texture is an atlas page
+	
+	private ByteBuffer data;
+	private int[] levelOffsets;
+	private int[] levelSizes;
+	
+	/**
+	 * Parses a packed texture without copying its texels
+	 * 
+	 * @param buffer - the whole file, e.g. memory mapped
+	 * @return - the texture, whose levels are views of buffer
+	 * @throws IOException - if the buffer is not a packed texture
+	 */
+	public static PackedTexture read(ByteBuffer buffer) throws IOException {
+		ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		in.position(0);
+		if(in.remaining() < 28 || in.getInt() != MAGIC)
+			throw new IOException("Not a packed texture");
+		int version = in.getInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported packed texture version " + version);
+		
+		PackedTexture texture = new PackedTexture();
+		int format = in.getInt();
+		if(format < 0 || format >= FORMAT.values().length)
+			throw new IOException("Unknown packed texture format " + format);
+		texture.format = FORMAT.values()[format];
+		texture.width = in.getInt();
+		texture.height = in.getInt();
+		if(texture.width < 1 || texture.height < 1)
+			throw new IOException("Bad packed texture size " + texture.width + "x" + texture.height);
+		texture.numLevels = in.getInt();
+		if(texture.numLevels < 1 || texture.numLevels > countLevels(texture.width, texture.height))
+			throw new IOException("Bad packed texture level count " + texture.numLevels);
+		
+		//Every region takes at least a name length and its rectangle
+		int numRegions = in.getInt();
+		if(numRegions < 0 || numRegions > in.remaining()/18)
+			throw new IOException("Bad packed texture region count " + numRegions);
+		if(numRegions > 0) {
+			texture.atlas = new TextureAtlas();
+			for(int i=0; i<numRegions; i++) {
+				int length = in.getShort() & 0xFFFF;
+				if(length + 16 > in.remaining())
+					throw new IOException("Packed texture is truncated");
+				byte[] name = new byte[length];
+				in.get(name);
+				int x = in.getInt(), y = in.getInt(), w = in.getInt(), h = in.getInt();
+				if(x < 0 || y < 0 || w < 0 || h < 0 || w > texture.width - x || h > texture.height - y)
+					throw new IOException("Packed texture region " + i + " is off the page");
+				texture.atlas.addPlaced(new String(name, UTF8), x, y, w, h);
+			}
+			texture.atlas.setPage(texture.width, texture.height);
+		}
+		
+		int table = align(in.position());
+		if(table > in.limit() || texture.numLevels*8 > in.limit() - table)
+			throw new IOException("Packed texture is truncated");
+		in.position(table);
+		texture.levelOffsets = new int[texture.numLevels];
+		texture.levelSizes = new int[texture.numLevels];
+		for(int level=0; level<texture.numLevels; level++) {
+			int offset = in.getInt(), size = in.getInt();
+			long expected = (long)texture.getLevelWidth(level)*texture.getLevelHeight(level)*bytesPerTexel(texture.format);
+			if(size != expected)
+				throw new IOException("Packed texture level " + level + " holds " + size + " bytes, not " + expected);
+			if(offset < 0 || (long)offset + size > in.limit())
+				throw new IOException("Packed texture is truncated");
+			texture.levelOffsets[level] = offset;
+			texture.levelSizes[level] = size;
+		}
+		
+		texture.data = buffer;
+		return texture;
+	}
+	
+	/**
+	 * The name the texture compiler gives an image's packed texture
+	 * 
+	 * @param image - the image file name, e.g. fire_pit.png
+	 * @return - the packed texture file name, e.g. fire_pit.ptex
+	 */
+	public static String nameFor(String image) {
+		int dot = image.lastIndexOf('.');
+		return (dot < 0? image:image.substring(0, dot)) + EXTENSION;
+	}
+	
+	/**
+	 * The texels of one mip level
+	 * 
+	 * @param level - the level, 0 is full size
+	 * @return - a little endian view of the level's texels, positioned at 0
+	 */
+	public ByteBuffer getLevel(int level) {
+		ByteBuffer view = data.duplicate();
+		view.limit(levelOffsets[level] + levelSizes[level]);
+		view.position(levelOffsets[level]);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	public int getLevelWidth(int level) {
+		return Math.max(1, width >> level);
+	}
+	
+	public int getLevelHeight(int level) {
+		return Math.max(1, height >> level);
+	}
+	
+	/**
+	 * @param format - the texel format
+	 * @return - bytes per texel
+	 */
+	public static int bytesPerTexel(FORMAT format) {
+		return format == FORMAT.RGB565? 2:4;
+	}
+	
+	/**
+	 * The number of mip levels down to 1x1.
+	 * GLES11 only mipmaps power of two textures, so anything else gets a single level.
+	 * 
+	 * @param width - the level 0 width
+	 * @param height - the level 0 height
+	 * @return - the level count
+	 */
+	public static int countLevels(int width, int height) {
+		if((width & (width - 1)) != 0 || (height & (height - 1)) != 0)
+			return 1;
+		
+		int levels = 1;
+		while(width > 1 || height > 1) {
+			width = Math.max(1, width >> 1);
+			height = Math.max(1, height >> 1);
+			levels++;
+		}
+		return levels;
+	}
+	
+	/**
+	 * @param argb - pixels as 0xAARRGGBB
+	 * @return - true if every pixel is fully opaque
+	 */
+	public static boolean isOpaque(int[] argb) {
+		for(int pixel : argb) {
+			if((pixel >>> 24) != 0xFF)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Multiplies the color of every pixel by its alpha, in place
+	 * 
+	 * @param argb - pixels as 0xAARRGGBB
+	 */
+	public static void premultiply(int[] argb) {
+		for(int i=0; i<argb.length; i++) {
+			int a = argb[i] >>> 24;
+			if(a == 0xFF)
+				continue;
+			int r = ((argb[i] >> 16) & 0xFF)*a/255;
+			int g = ((argb[i] >> 8) & 0xFF)*a/255;
+			int b = (argb[i] & 0xFF)*a/255;
+			argb[i] = (a << 24) | (r << 16) | (g << 8) | b;
+		}
+	}
+	
+	/**
+	 * Builds the next mip level with a 2x2 box filter
+	 * 
+	 * @param argb - premultiplied pixels as 0xAARRGGBB
+	 * @param width - the width of argb
+	 * @param height - the height of argb
+	 * @return - the half size level
+	 */
+	public static int[] downsample(int[] argb, int width, int height) {
+		int w = Math.max(1, width >> 1);
+		int h = Math.max(1, height >> 1);
+		int[] out = new int[w*h];
+		for(int y=0; y<h; y++) {
+			int y0 = Math.min(2*y, height - 1), y1 = Math.min(2*y + 1, height - 1);
+			for(int x=0; x<w; x++) {
+				int x0 = Math.min(2*x, width - 1), x1 = Math.min(2*x + 1, width - 1);
+				int p0 = argb[y0*width + x0], p1 = argb[y0*width + x1];
+				int p2 = argb[y1*width + x0], p3 = argb[y1*width + x1];
+				int pixel = 0;
+				for(int shift=0; shift<32; shift+= 8) {
+					int sum = ((p0 >>> shift) & 0xFF) + ((p1 >>> shift) & 0xFF) + ((p2 >>> shift) & 0xFF) + ((p3 >>> shift) & 0xFF);
+					pixel|= ((sum + 2) >> 2) << shift;
+				}
+				out[y*w + x] = pixel;
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Writes a packed texture, building its mip chain
+	 * 
+	 * @param out - the stream to write to
+	 * @param argb - level 0 as premultiplied 0xAARRGGBB pixels
+	 * @param width - the level 0 width
+	 * @param height - the level 0 height
+	 * @param format - the texel format
+	 * @param numLevels - the number of mip levels, at most countLevels(width, height)
+	 * @param atlas - the sprite layout to store, or null
+	 * @throws IOException
+	 */
+	public static void write(OutputStream out, int[] argb, int width, int height, FORMAT format, int numLevels,
+			TextureAtlas atlas) throws IOException {
+		int numRegions = atlas == null? 0:atlas.getRegions().size();
+		byte[][] names = new byte[numRegions][];
+		int header = 28;
+		for(int i=0; i<numRegions; i++) {
+			names[i] = atlas.getRegions().get(i).name.getBytes(UTF8);
+			header+= 2 + names[i].length + 16;
+		}
+		header = align(header) + numLevels*8;
+		
+		int size = header;
+		for(int level=0; level<numLevels; level++) {
+			int w = Math.max(1, width >> level), h = Math.max(1, height >> level);
+			size = align(size) + w*h*bytesPerTexel(format);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(format.ordinal());
+		buffer.putInt(width);
+		buffer.putInt(height);
+		buffer.putInt(numLevels);
+		buffer.putInt(numRegions);
+		for(int i=0; i<numRegions; i++) {
+			TextureAtlas.Region region = atlas.getRegions().get(i);
+			buffer.putShort((short)names[i].length);
+			buffer.put(names[i]);
+			buffer.putInt(region.x);
+			buffer.putInt(region.y);
+			buffer.putInt(region.width);
+			buffer.putInt(region.height);
+		}
+		
+		int table = align(buffer.position());
+		int offset = header;
+		int[] level = argb;
+		int w = width, h = height;
+		for(int l=0; l<numLevels; l++) {
+			offset = align(offset);
+			int bytes = w*h*bytesPerTexel(format);
+			buffer.putInt(table + l*8, offset);
+			buffer.putInt(table + l*8 + 4, bytes);
+			
+			buffer.position(offset);
+			for(int pixel : level) {
+				int a = pixel >>> 24, r = (pixel >> 16) & 0xFF, g = (pixel >> 8) & 0xFF, b = pixel & 0xFF;
+				if(format == FORMAT.RGB565)
+					buffer.putShort((short)((((r*31 + 127)/255) << 11) | (((g*63 + 127)/255) << 5) | ((b*31 + 127)/255)));
+				else {
+					buffer.put((byte)r);
+					buffer.put((byte)g);
+					buffer.put((byte)b);
+					buffer.put((byte)a);
+				}
+			}
+			offset+= bytes;
+			
+			if(l < numLevels - 1) {
+				level = downsample(level, w, h);
+				w = Math.max(1, w >> 1);
+				h = Math.max(1, h >> 1);
+			}
+		}
+		
+		out.write(buffer.array(), 0, size);
+	}
+	
+	private static int align(int offset) {
+		return (offset + 3) & ~3;
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join update of a particle system's live range.
+ * The range is split in half until the pieces are CHUNK_SIZE particles or fewer, and each
+ * piece is integrated and aged independently. Dead particles are not removed here; that
+ * is done afterwards in one sequential pass, so the result never depends on the split.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class ParallelUpdate extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	
+	//Particles per task. Big enough that task overhead is lost in the noise.
+	public static final int CHUNK_SIZE = 16384;
+	
+	//Smaller systems update faster on one thread than it takes to wake the pool
+	public static final int MIN_PARTICLES = 4*CHUNK_SIZE;
+	
+	private final ParticleSystem system;
+	private final int start;
+	private final int end;
+	private final float elapsedTime;
+	
+	ParallelUpdate(ParticleSystem system, int start, int end, float elapsedTime) {
+		this.system = system;
+		this.start = start;
+		this.end = end;
+		this.elapsedTime = elapsedTime;
+	}
+	
+	/**
+	 * Updates every live particle of a system on the pool and waits for it to finish
+	 * 
+	 * @param pool - the fork-join pool
+	 * @param system - the system to update
+	 * @param elapsedTime - the time since the last frame
+	 */
+	static void run(ForkJoinPool pool, ParticleSystem system, float elapsedTime) {
+		pool.invoke(new ParallelUpdate(system, 0, system.numParticles, elapsedTime));
+	}
+	
+	@Override
+	protected void compute() {
+		if(end - start <= CHUNK_SIZE) {
+			system.updateParticles(start, end, elapsedTime);
+			return;
+		}
+		
+		int middle = (start + end) >>> 1;
+		invokeAll(new ParallelUpdate(system, start, middle, elapsedTime),
+				new ParallelUpdate(system, middle, end, elapsedTime));
+	}
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Batches the particles of a system into a single interleaved vertex array
+ * so a renderer can draw them with one indexed draw call.
+ * Every vertex is x, y, z, u, v, r, g, b, a. The corners of each particle are
+ * expanded on the CPU, so no per-particle matrix work is done by GL.
+ * Subclasses implement flush() to hand the vertices to the graphics API.
+ *
+ * @author Kenneth Maffei
+ *
+ */
+public abstract class ParticleBatch {
+	//Indices are unsigned shorts, so one draw call can address at most 65536 vertices
+	public static final int MAX_QUADS = 65536/4;
+
+	public static final int FLOATS_PER_VERTEX = 9;
+	public static final int FLOATS_PER_QUAD = 4*FLOATS_PER_VERTEX;
+	public static final int STRIDE = FLOATS_PER_VERTEX*4;
+
+	protected float[] vertices;              //Staging array, copied to the graphics API in one go
+	protected int capacity;                  //Quads the buffers can currently hold
+	protected int numQuads;                  //Quads written since the last flush
+
+	//Billboard bases for facing particles. Updated once per frame by the renderer.
+	private Billboard billboard = new Billboard();
+	private Sprite sprite = Sprite.FULL;     //Texture coordinates, or the flipbook, of the particles added next
+	private float sizeScale = 1.0f;          //Multiplier on the drawn size of the particles added next
+
+	public ParticleBatch(int capacity) {
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Grows the buffers so they can hold the given number of quads.
+	 * Capacity never exceeds MAX_QUADS; larger systems are drawn in several flushes.
+	 *
+	 * @param quads - the number of quads needed
+	 */
+	public void ensureCapacity(int quads) {
+		if(quads > MAX_QUADS)
+			quads = MAX_QUADS;
+		if(quads <= capacity)
+			return;
+
+		capacity = quads;
+		float[] staged = vertices;
+		vertices = new float[capacity*FLOATS_PER_QUAD];
+		if(numQuads > 0)
+			System.arraycopy(staged, 0, vertices, 0, numQuads*FLOATS_PER_QUAD);
+		
+		onCapacityChanged();
+	}
+	
+	/**
+	 * Called after the staging array has grown, so subclasses can grow their own buffers
+	 */
+	protected void onCapacityChanged() {
+	}
+	
+	/**
+	 * Fills an index array with two triangles per quad
+	 * V1 bottom left, V2 top left, V3 bottom right, V4 top right
+	 * 
+	 * @param indices - the array to fill, 6 entries per quad
+	 * @param quads - the number of quads
+	 */
+	public static void buildIndices(short[] indices, int quads) {
+		for(int i=0; i<quads; i++) {
+			short v = (short)(i*4);
+			int o = i*6;
+			indices[o] = v;
+			indices[o + 1] = (short)(v + 1);
+			indices[o + 2] = (short)(v + 2);
+			indices[o + 3] = (short)(v + 2);
+			indices[o + 4] = (short)(v + 1);
+			indices[o + 5] = (short)(v + 3);
+		}
+	}
+	
+	/**
+	 * The number of quads written since the last flush
+	 * 
+	 * @return - the quad count
+	 */
+	public int getNumQuads() {
+		return numQuads;
+	}
+
+	/**
+	 * Sets the billboard used to expand facing particles
+	 *
+	 * @param billboard - the per-frame camera bases
+	 */
+	public void setBillboard(Billboard billboard) {
+		this.billboard = billboard;
+	}
+
+	/**
+	 * Sets the texture coordinates the particles added next are drawn with.
+	 * For a flipbook, each particle shows the frame for its age, so stores must have
+	 * their life channels.
+	 *
+	 * @param sprite - the part of the texture to draw each particle with
+	 */
+	public void setSprite(Sprite sprite) {
+		this.sprite = sprite;
+	}
+
+	/**
+	 * Sets a multiple of their size to draw the particles added next at
+	 *
+	 * @param sizeScale - multiplier on each particle's size
+	 */
+	public void setSizeScale(float sizeScale) {
+		this.sizeScale = sizeScale;
+	}
+
+	/**
+	 * Writes the live particles of a store into the batch, in storage order.
+	 * The batch is flushed whenever it fills up, and must be flushed by the caller when done.
+	 *
+	 * @param p - the particle store
+	 * @param count - the number of live particles in the store
+	 * @param mode - how the particles turn towards the camera
+	 */
+	public void add(ParticleStore p, int count, Billboard.MODE mode) {
+		add(p, count, mode, 1.0f, null);
+	}
+
+	/**
+	 * Writes the live particles of a store into the batch, at positions interpolated
+	 * between the previous and the current simulation step, in the given order, e.g. back
+	 * to front from a DepthSorter. The particle data itself is not moved.
+	 * The batch is flushed whenever it fills up, and must be flushed by the caller when done.
+	 *
+	 * @param p - the particle store
+	 * @param count - the number of live particles in the store
+	 * @param mode - how the particles turn towards the camera
+	 * @param alpha - 0 renders the previous step, 1 the current step
+	 * @param order - the particle slots in drawing order, or null for storage order
+	 */
+	public void add(ParticleStore p, int count, Billboard.MODE mode, float alpha, int[] order) {
+		ensureCapacity(count);
+
+		//One basis for the whole system, so the loop below is just multiply-adds
+		float rx, ry, rz, ux, uy, uz;
+		switch(mode) {
+			case SPHERICAL:
+				rx = billboard.right.x; ry = billboard.right.y; rz = billboard.right.z;
+				ux = billboard.up.x; uy = billboard.up.y; uz = billboard.up.z;
+				break;
+			case CYLINDRICAL:
+				rx = billboard.cylinderRight.x; ry = billboard.cylinderRight.y; rz = billboard.cylinderRight.z;
+				ux = billboard.cylinderAxis.x; uy = billboard.cylinderAxis.y; uz = billboard.cylinderAxis.z;
+				break;
+			default:
+				rx = 1.0f; ry = 0.0f; rz = 0.0f;
+				ux = 0.0f; uy = 1.0f; uz = 0.0f;
+		}
+
+		float[] px = p.positionX, py = p.positionY, pz = p.positionZ;
+		float[] qx = p.previousX, qy = p.previousY, qz = p.previousZ;
+		float[] sx = p.sizeX, sy = p.sizeY;
+		float[] cr = p.colorR, cg = p.colorG, cb = p.colorB, ca = p.colorA;
+		float[] lt = p.lifeTime, l = p.life;
+		Sprite sprite = this.sprite;
+		float[] frames = sprite.frames;
+		boolean animated = sprite.isAnimated();
+		float u0 = frames[0], v0 = frames[1], u1 = frames[2], v1 = frames[3];
+		float half = 0.5f*sizeScale;
+		float[] v = vertices;
+
+		for(int n=0; n<count; n++) {
+			if(numQuads == capacity)
+				flush();
+
+			int i = order == null ? n : order[n];
+
+			if(animated) {
+				int f = sprite.frameOffset((lt[i] - l[i])/lt[i]);
+				u0 = frames[f]; v0 = frames[f + 1]; u1 = frames[f + 2]; v1 = frames[f + 3];
+			}
+
+			float hw = sx[i]*half;
+			float hh = sy[i]*half;
+			float wx = rx*hw, wy = ry*hw, wz = rz*hw;
+			float hx = ux*hh, hy = uy*hh, hz = uz*hh;
+			float x = qx[i] + (px[i] - qx[i])*alpha;
+			float y = qy[i] + (py[i] - qy[i])*alpha;
+			float z = qz[i] + (pz[i] - qz[i])*alpha;
+			float r = cr[i], g = cg[i], b = cb[i], a = ca[i];
+
+			int o = numQuads*FLOATS_PER_QUAD;
+			//V1 - bottom left
+			v[o] = x - wx - hx; v[o + 1] = y - wy - hy; v[o + 2] = z - wz - hz;
+			v[o + 3] = u0; v[o + 4] = v1;
+			v[o + 5] = r; v[o + 6] = g; v[o + 7] = b; v[o + 8] = a;
+			//V2 - top left
+			v[o + 9] = x - wx + hx; v[o + 10] = y - wy + hy; v[o + 11] = z - wz + hz;
+			v[o + 12] = u0; v[o + 13] = v0;
+			v[o + 14] = r; v[o + 15] = g; v[o + 16] = b; v[o + 17] = a;
+			//V3 - bottom right
+			v[o + 18] = x + wx - hx; v[o + 19] = y + wy - hy; v[o + 20] = z + wz - hz;
+			v[o + 21] = u1; v[o + 22] = v1;
+			v[o + 23] = r; v[o + 24] = g; v[o + 25] = b; v[o + 26] = a;
+			//V4 - top right
+			v[o + 27] = x + wx + hx; v[o + 28] = y + wy + hy; v[o + 29] = z + wz + hz;
+			v[o + 30] = u1; v[o + 31] = v0;
+			v[o + 32] = r; v[o + 33] = g; v[o + 34] = b; v[o + 35] = a;
+
+			numQuads++;
+		}
+	}
+
+	/**
+	 * Draws everything written since the last flush with a single draw call and
+	 * resets the quad count. The caller sets up the blend state and texture beforehand.
+	 */
+	public abstract void flush();
+}
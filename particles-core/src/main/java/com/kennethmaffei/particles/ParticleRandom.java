@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Random numbers for particle systems.
+ * Generators are not synchronized; each system owns its own.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public abstract class ParticleRandom {
+	
+	/**
+	 * @return - a uniformly distributed int
+	 */
+	public abstract int nextInt();
+	
+	/**
+	 * @return - a uniformly distributed float from 0 (inclusive) to 1 (exclusive)
+	 */
+	public abstract float nextFloat();
+	
+	/**
+	 * Restarts the sequence
+	 * 
+	 * @param seed - the new seed
+	 */
+	public abstract void setSeed(long seed);
+	
+	/**
+	 * @return - a uniformly distributed float from -1 to 1
+	 */
+	public float nextSigned() {
+		return 2.0f*nextFloat() - 1.0f;
+	}
+	
+	/**
+	 * Fills an array with floats from 0 to 1
+	 * 
+	 * @param out - the array to fill
+	 */
+	public void fill(float[] out) {
+		fill(out, 0, out.length);
+	}
+	
+	/**
+	 * Fills part of an array with floats from 0 to 1
+	 * 
+	 * @param out - the array to fill
+	 * @param offset - the first index to fill
+	 * @param count - the number of values
+	 */
+	public void fill(float[] out, int offset, int count) {
+		for(int i=offset; i<offset + count; i++)
+			out[i] = nextFloat();
+	}
+}
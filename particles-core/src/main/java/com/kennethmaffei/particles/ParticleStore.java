@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Structure-of-arrays storage for the particles of a system.
+ * Each particle attribute lives in its own primitive array (a channel), and particle i
+ * is the i'th entry of every channel. This keeps the update loops walking contiguous
+ * memory instead of chasing a handful of objects per particle.
+ *
+ * @author Kenneth Maffei
+ *
+ */
+public class ParticleStore {
+	public int capacity;                                //Number of particle slots in every channel
+
+	public float[] positionX, positionY, positionZ;     //Current position
+	public float[] previousX, previousY, previousZ;     //Position at the previous simulation step, for render interpolation
+	public float[] velocityX, velocityY, velocityZ;     //Current velocity
+	public float[] accelerationX, accelerationY, accelerationZ; //Current acceleration
+	public float[] lifeTime;                            //Total lifetime
+	public float[] life;                                //Remaining life at time t
+	public float[] sizeX, sizeY;                        //Current size
+	public float[] deltaSizeX, deltaSizeY;              //Change in size per time increment
+
+	//Current colors and color changes per time increment
+	public float[] colorR, colorG, colorB, colorA;
+	//deltaColor is used for the special case of fire, but not for the generic particle systems
+	public float[] deltaColorR, deltaColorG, deltaColorB, deltaColorA;
+
+	//Channel names, in the order channels() returns them
+	public static final String[] CHANNEL_NAMES = {
+		"positionX", "positionY", "positionZ", "previousX", "previousY", "previousZ",
+		"velocityX", "velocityY", "velocityZ", "accelerationX", "accelerationY", "accelerationZ",
+		"lifeTime", "life", "sizeX", "sizeY", "deltaSizeX", "deltaSizeY",
+		"colorR", "colorG", "colorB", "colorA", "deltaColorR", "deltaColorG", "deltaColorB", "deltaColorA"
+	};
+
+	/**
+	 * Allocates every channel for the given number of particles
+	 *
+	 * @param capacity - the maximum number of particles the store can hold
+	 */
+	public void allocate(int capacity) {
+		this.capacity = capacity;
+
+		positionX = new float[capacity];
+		positionY = new float[capacity];
+		positionZ = new float[capacity];
+		previousX = new float[capacity];
+		previousY = new float[capacity];
+		previousZ = new float[capacity];
+		velocityX = new float[capacity];
+		velocityY = new float[capacity];
+		velocityZ = new float[capacity];
+		accelerationX = new float[capacity];
+		accelerationY = new float[capacity];
+		accelerationZ = new float[capacity];
+		lifeTime = new float[capacity];
+		life = new float[capacity];
+		sizeX = new float[capacity];
+		sizeY = new float[capacity];
+		deltaSizeX = new float[capacity];
+		deltaSizeY = new float[capacity];
+		colorR = new float[capacity];
+		colorG = new float[capacity];
+		colorB = new float[capacity];
+		colorA = new float[capacity];
+		deltaColorR = new float[capacity];
+		deltaColorG = new float[capacity];
+		deltaColorB = new float[capacity];
+		deltaColorA = new float[capacity];
+	}
+
+	/**
+	 * Copies every attribute of one particle slot into another.
+	 * This is how a dead particle is removed: the last live particle is copied over it
+	 * and the live count is decreased. The dead particle's data never needs to survive,
+	 * so a copy is all the swap we need.
+	 *
+	 * @param from - the source slot
+	 * @param to - the destination slot
+	 */
+	public void copy(int from, int to) {
+		positionX[to] = positionX[from];
+		positionY[to] = positionY[from];
+		positionZ[to] = positionZ[from];
+		previousX[to] = previousX[from];
+		previousY[to] = previousY[from];
+		previousZ[to] = previousZ[from];
+		velocityX[to] = velocityX[from];
+		velocityY[to] = velocityY[from];
+		velocityZ[to] = velocityZ[from];
+		accelerationX[to] = accelerationX[from];
+		accelerationY[to] = accelerationY[from];
+		accelerationZ[to] = accelerationZ[from];
+		lifeTime[to] = lifeTime[from];
+		life[to] = life[from];
+		sizeX[to] = sizeX[from];
+		sizeY[to] = sizeY[from];
+		deltaSizeX[to] = deltaSizeX[from];
+		deltaSizeY[to] = deltaSizeY[from];
+		colorR[to] = colorR[from];
+		colorG[to] = colorG[from];
+		colorB[to] = colorB[from];
+		colorA[to] = colorA[from];
+		deltaColorR[to] = deltaColorR[from];
+		deltaColorG[to] = deltaColorG[from];
+		deltaColorB[to] = deltaColorB[from];
+		deltaColorA[to] = deltaColorA[from];
+	}
+
+	/**
+	 * Remembers the current positions as the previous state before a simulation step
+	 *
+	 * @param count - the number of live particles
+	 */
+	public void savePositions(int count) {
+		System.arraycopy(positionX, 0, previousX, 0, count);
+		System.arraycopy(positionY, 0, previousY, 0, count);
+		System.arraycopy(positionZ, 0, previousZ, 0, count);
+	}
+
+	/**
+	 * Sets newly born particles' previous positions to their current ones,
+	 * so they do not interpolate in from wherever the slots' last particles were
+	 *
+	 * @param start - the first particle slot
+	 * @param end - one past the last particle slot
+	 */
+	public void resetPrevious(int start, int end) {
+		System.arraycopy(positionX, start, previousX, start, end - start);
+		System.arraycopy(positionY, start, previousY, start, end - start);
+		System.arraycopy(positionZ, start, previousZ, start, end - start);
+	}
+
+	/**
+	 * Allocates only the channels a renderer reads: position, previous position, size, color,
+	 * and life for picking flipbook frames
+	 *
+	 * @param capacity - the maximum number of particles the store can hold
+	 */
+	public void allocateRender(int capacity) {
+		this.capacity = capacity;
+
+		positionX = new float[capacity];
+		positionY = new float[capacity];
+		positionZ = new float[capacity];
+		previousX = new float[capacity];
+		previousY = new float[capacity];
+		previousZ = new float[capacity];
+		lifeTime = new float[capacity];
+		life = new float[capacity];
+		sizeX = new float[capacity];
+		sizeY = new float[capacity];
+		colorR = new float[capacity];
+		colorG = new float[capacity];
+		colorB = new float[capacity];
+		colorA = new float[capacity];
+	}
+
+	/**
+	 * Copies the render channels of the first count particles of another store
+	 *
+	 * @param from - the source store
+	 * @param count - the number of particles to copy
+	 */
+	public void copyRender(ParticleStore from, int count) {
+		System.arraycopy(from.positionX, 0, positionX, 0, count);
+		System.arraycopy(from.positionY, 0, positionY, 0, count);
+		System.arraycopy(from.positionZ, 0, positionZ, 0, count);
+		System.arraycopy(from.previousX, 0, previousX, 0, count);
+		System.arraycopy(from.previousY, 0, previousY, 0, count);
+		System.arraycopy(from.previousZ, 0, previousZ, 0, count);
+		System.arraycopy(from.lifeTime, 0, lifeTime, 0, count);
+		System.arraycopy(from.life, 0, life, 0, count);
+		System.arraycopy(from.sizeX, 0, sizeX, 0, count);
+		System.arraycopy(from.sizeY, 0, sizeY, 0, count);
+		System.arraycopy(from.colorR, 0, colorR, 0, count);
+		System.arraycopy(from.colorG, 0, colorG, 0, count);
+		System.arraycopy(from.colorB, 0, colorB, 0, count);
+		System.arraycopy(from.colorA, 0, colorA, 0, count);
+	}
+
+	/**
+	 * Every channel, in CHANNEL_NAMES order
+	 *
+	 * @return - the channel arrays
+	 */
+	public float[][] channels() {
+		return new float[][] {
+			positionX, positionY, positionZ, previousX, previousY, previousZ,
+			velocityX, velocityY, velocityZ, accelerationX, accelerationY, accelerationZ,
+			lifeTime, life, sizeX, sizeY, deltaSizeX, deltaSizeY,
+			colorR, colorG, colorB, colorA, deltaColorR, deltaColorG, deltaColorB, deltaColorA
+		};
+	}
+}
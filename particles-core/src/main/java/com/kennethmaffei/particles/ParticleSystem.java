@@ -0,0 +1,762 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Abstract class for a particle system. Defines system and individual particle properties.
+ * Also handles creation and destruction of particles
+ * This is pure simulation; rendering is done by a renderer that reads the particle channels
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public abstract class ParticleSystem {
+	
+	/**
+	 * ADDITIVE - src*alpha + dst, for fire, steam and other glowing effects
+	 * DARKEN - dst*(1 - src), for black smoke that must show over light backgrounds
+	 */
+	public enum BLEND_MODE {ADDITIVE, DARKEN};
+	
+	ParticleStore particles = new ParticleStore();
+	//We don't rely on particles.capacity for the number of particles in the system.
+	//For efficiency, the particle channels are always built for maxParticles.
+	//Particles are swapped in the channels at particle death (see the killParticle() function).
+	//numParticles keeps track of how many we are rendering at a given time.
+	protected int numParticles; 
+	int maxParticles;
+	
+	protected Vector2 startSize = new Vector2();            //Particle start size
+	protected Vector2 endSize = new Vector2();              //Particle end size
+	protected float particlesPerSec;                        //Particle birth rate
+	protected Vector3 velocity = new Vector3();             //Particle starting velocity			
+	protected Vector3 velocityVariation = new Vector3();    //Variation in the particle starting velocity
+	protected Vector3 acceleration = new Vector3();         //Particle staring acceleration
+	protected Vector3 origin = new Vector3();               //The origin for the system
+	protected float height, width, depth;                   //Volume parameters for particle generation
+	protected float radius;                                 //For radial systems
+	protected float accumulatedTime;                        //For transient systems, the time the system has been alive
+	protected float lifeTime;                               //Particle lifetime
+	protected float lifeTimeVar;                            //Lifetime variation
+	protected float startTime;                              //Delay before actually generating any particles
+	protected float timeBeforeStartTime;                    //The accumulated time before the start time
+	protected boolean started;                              //Indicates that the system has been started
+	protected boolean fixed;                                //Fixed system or transient
+	protected float duration = -1.0f;                       //Duration of particle system; duration = -1 means keep going once started
+	protected boolean destroying;                           //If the system is shutting down. Generally will decrease life for graceful shut down
+	protected boolean draw;                                 //Whether or not to actually render the system (for transient systems, update can be true, but draw false)
+	//If elapsedTime is such that numNewParticles is 0 (because of rounding down),
+	//then hold over this elapsed time and add it to the next until we get some particle production!
+	protected float timeHeldOver;
+	protected float numParticlesHeldOver;
+	
+	protected Vector3 emitterVelocity = new Vector3();      //Allows the particle emitter to move
+	protected Vector3 emitterAcceleration = new Vector3();  //Acceleration for the emitter
+
+	protected boolean radial;                               //Sets this as for radial particle production. Velocity is interpreted as radial velocity.
+
+	//Per-particle update stages: aging, motion, drag and the over-life curves
+	protected AffectorPipeline pipeline = new AffectorPipeline();
+
+	protected Billboard.MODE billboardMode = Billboard.MODE.SPHERICAL; //Particles always face the camera. This is usually the case, but not always.
+	
+	protected float rEff;                                   //Effective radius used for frustum culling before there are particles
+	protected Bounds bounds = new Bounds();                 //Box around the live particles in system space, kept up to date by update()
+	protected boolean freezeWhenCulled;                     //Stop updating fixed systems while they are off-screen
+	private Bounds emitterBounds = new Bounds();            //Scratch for culling an empty system
+
+	protected Vector3 scale = new Vector3(1.0f, 1.0f, 1.0f);//Scaling of the entire system as a whole
+	protected Vector3 rotate = new Vector3();               //Rotation of the entire system as a whole
+	
+	protected BLEND_MODE blendMode = BLEND_MODE.ADDITIVE;   //How the renderer blends the particles
+	protected int texture;                                  //Renderer texture handle for the particle mask
+	protected Sprite sprite = Sprite.FULL;                  //Part of the texture to use, or a flipbook played over each particle's life
+	protected DepthSorter sorter;                           //Non-null when the renderer draws the particles back to front
+	
+	protected ParticleRandom random = new XoshiroRandom(); //This system's own generator, so spawning never contends with other systems
+	
+	//Quality scaling, usually set by a QualityGovernor through a ParticleWorld. 1 is full quality.
+	//The scales in use are the system's own quality times its world's.
+	protected float emissionScale = 1.0f;                   //Fraction of particlesPerSec and maxParticles in use
+	protected float sizeScale = 1.0f;                       //Multiplier on the drawn size of every particle
+	private float systemEmissionScale = 1.0f;               //Set by setQuality()
+	private float systemSizeScale = 1.0f;
+	private float worldEmissionScale = 1.0f;                //Set by the ParticleWorld holding the system
+	private float worldSizeScale = 1.0f;
+	
+	protected ForkJoinPool parallelPool;                    //When set, large systems are updated in parallel chunks
+	
+	protected float[] spawnScratch;                         //Per-slot temporary for subclasses while spawning
+	
+	//Timed bursts, sorted by time since the system started
+	protected float[] burstTimes = new float[0];
+	protected int[] burstCounts = new int[0];
+	protected int numBursts;
+	protected int nextBurst;                                //The next burst to fire
+	
+	/**
+	 * Initializes a range of newly born particles with all their "start" values.
+	 * Write each attribute for the whole range in its own loop rather than particle by particle;
+	 * the spawn helpers below do this for the common cases.
+	 * 
+	 * @param start - the first slot to initialize
+	 * @param end - one past the last slot to initialize
+	 */
+	abstract void initializeParticles(int start, int end);
+	
+	/**
+	 * Integrates and ages the particles in a range of slots by running the system's pipeline.
+	 * Must only touch slots start to end - 1 so ranges can be updated on different threads.
+	 * Dead particles are left in place; they are removed afterwards by removeDeadParticles().
+	 * 
+	 * @param start - the first slot to update
+	 * @param end - one past the last slot to update
+	 * @param elapsedTime - the time since the last frame
+	 */
+	void updateParticles(int start, int end, float elapsedTime) {
+		pipeline.run(particles, start, end, elapsedTime, destroying);
+	}
+	
+	/**
+	 * Updates the system for a frame: ages and moves the particles, removes the dead ones,
+	 * and emits new ones.
+	 * 
+	 * @param elapsedTime - the time since the last frame
+	 */
+	void update(float elapsedTime) {
+		if(!started)
+			return;
+
+		timeBeforeStartTime+= elapsedTime;
+		if(timeBeforeStartTime < startTime)
+			return;
+
+		//Off-screen fixed systems like mist or fire don't need updating until they are seen again.
+		//Transient systems like an explosion always update so they finish on time.
+		if(fixed && freezeWhenCulled && !draw)
+			return;
+
+		accumulatedTime+= elapsedTime;
+
+		//Keep the last state so the renderer can interpolate between steps
+		particles.savePositions(numParticles);
+		
+		if(parallelPool != null && numParticles >= ParallelUpdate.MIN_PARTICLES)
+			ParallelUpdate.run(parallelPool, this, elapsedTime);
+		else
+			updateParticles(0, numParticles, elapsedTime);
+		
+		removeDeadParticles();
+
+		//Scheduled bursts are independent of the emission rate and the duration
+		while(nextBurst < numBursts && burstTimes[nextBurst] <= accumulatedTime)
+			burst(burstCounts[nextBurst++]);
+		
+		if(accumulatedTime < duration || fixed) {
+			float numParticlesThisFrame = elapsedTime*particlesPerSec*emissionScale;
+			float numNewParticles = numParticlesThisFrame + numParticlesHeldOver;
+			int numParticlesToEmit = (int) Math.floor(numNewParticles);
+			numParticlesHeldOver = numNewParticles - numParticlesToEmit;
+			updateSystem(numParticlesToEmit, elapsedTime);
+		}
+		else
+			destroying = true;
+	}
+	
+	/**
+	 * Kills every particle whose life has run out, and rebuilds the bounds around the survivors.
+	 * The bounds hold both the current and the previous positions, since the renderer draws
+	 * the particles anywhere between the two.
+	 * This is a single sequential pass after the update, so the resulting particle order
+	 * is the same however the update was split up.
+	 */
+	protected void removeDeadParticles() {
+		ParticleStore p = particles;
+		float[] life = p.life;
+		float[] px = p.positionX, py = p.positionY, pz = p.positionZ;
+		float[] qx = p.previousX, qy = p.previousY, qz = p.previousZ;
+		float[] sx = p.sizeX, sy = p.sizeY;
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		for(int i=0; i < numParticles; ) {
+			//The last particle is swapped into this slot, so check the slot again
+			if(life[i] <= 0.0f)
+				killParticle(i);
+			else {
+				//Half the width plus half the height always reaches the quad's corners
+				float radius = (sx[i] + sy[i])*0.5f;
+				if(px[i] - radius < minX) minX = px[i] - radius;
+				if(py[i] - radius < minY) minY = py[i] - radius;
+				if(pz[i] - radius < minZ) minZ = pz[i] - radius;
+				if(px[i] + radius > maxX) maxX = px[i] + radius;
+				if(py[i] + radius > maxY) maxY = py[i] + radius;
+				if(pz[i] + radius > maxZ) maxZ = pz[i] + radius;
+				if(qx[i] - radius < minX) minX = qx[i] - radius;
+				if(qy[i] - radius < minY) minY = qy[i] - radius;
+				if(qz[i] - radius < minZ) minZ = qz[i] - radius;
+				if(qx[i] + radius > maxX) maxX = qx[i] + radius;
+				if(qy[i] + radius > maxY) maxY = qy[i] + radius;
+				if(qz[i] + radius > maxZ) maxZ = qz[i] + radius;
+				i++;
+			}
+		}
+		bounds.minX = minX;
+		bounds.minY = minY;
+		bounds.minZ = minZ;
+		bounds.maxX = maxX;
+		bounds.maxY = maxY;
+		bounds.maxZ = maxZ;
+	}
+	
+	/**
+	 * Decides whether the system can be seen and sets draw accordingly.
+	 * Call once a frame before update() and drawing. A system with no particles yet is tested
+	 * with its effective radius around the emitter.
+	 * 
+	 * @param frustum - the camera's view volume
+	 * @return - the new draw flag
+	 */
+	public boolean cull(Frustum frustum) {
+		if(numParticles > 0)
+			draw = frustum.intersects(bounds, rotate, scale);
+		else {
+			emitterBounds.clear();
+			emitterBounds.include(origin.x, origin.y, origin.z, rEff);
+			draw = frustum.intersects(emitterBounds, rotate, scale);
+		}
+		return draw;
+	}
+	
+	/**
+	 * Stops fixed systems from updating while cull() finds them off-screen
+	 * 
+	 * @param freezeWhenCulled - true to freeze
+	 */
+	public void setFreezeWhenCulled(boolean freezeWhenCulled) {
+		this.freezeWhenCulled = freezeWhenCulled;
+	}
+	
+	/**
+	 * The box around the live particles at the current and previous steps, in system space
+	 * 
+	 * @return - the bounds
+	 */
+	public Bounds getBounds() {
+		return bounds;
+	}
+	
+	/**
+	 * A transient system is finished once it has shut down and its last particle has died
+	 * 
+	 * @return - true if the system will never draw anything again
+	 */
+	public boolean isFinished() {
+		return destroying && numParticles == 0;
+	}
+	
+	/**
+	 * @return - the number of live particles
+	 */
+	public int getNumParticles() {
+		return numParticles;
+	}
+	
+	/**
+	 * Replaces the system's random number generator
+	 * 
+	 * @param random - the generator used when initializing particles
+	 */
+	public void setRandom(ParticleRandom random) {
+		this.random = random;
+	}
+	
+	/**
+	 * Reseeds the system's generator. Together with a fixed sequence of update times, this makes
+	 * a run exactly repeatable.
+	 * 
+	 * @param seed - the seed
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+	
+	/**
+	 * Updates large systems in parallel on the given pool.
+	 * Below ParallelUpdate.MIN_PARTICLES the update stays on the calling thread.
+	 * The results are identical to a single threaded update.
+	 * 
+	 * @param pool - the pool to run on, or null to always update on the calling thread
+	 */
+	public void setParallelUpdate(ForkJoinPool pool) {
+		parallelPool = pool;
+	}
+	
+	/**
+	 * Sets the texture the renderer draws the particles with
+	 * 
+	 * @param texture - the renderer's handle for the masking texture
+	 */
+	public void setTexture(int texture) {
+		this.texture = texture;
+	}
+	
+	/**
+	 * Sets the part of the texture the particles are drawn with, e.g. an atlas region.
+	 * A flipbook sprite is animated over each particle's life.
+	 * 
+	 * @param sprite - the sprite, Sprite.FULL for the whole texture
+	 */
+	public void setSprite(Sprite sprite) {
+		this.sprite = sprite;
+	}
+	
+	/**
+	 * Has the renderer draw the particles back to front rather than in storage order.
+	 * Only worth it for blend modes where overlapping particles show the order they were drawn in.
+	 * 
+	 * @param depthSorted - true to sort the particles on view depth every frame
+	 */
+	public void setDepthSorted(boolean depthSorted) {
+		if(!depthSorted)
+			sorter = null;
+		else if(sorter == null)
+			sorter = new DepthSorter();
+	}
+	
+	/**
+	 * Trades quality for speed. Particles already alive are left alone; the emission rate
+	 * and the particle cap apply to new particles, the size to everything drawn.
+	 * In a ParticleWorld, the world's quality is multiplied in.
+	 * 
+	 * @param emissionScale - fraction of particlesPerSec and maxParticles to use, 0 to 1
+	 * @param sizeScale - multiplier on the drawn particle size
+	 */
+	public void setQuality(float emissionScale, float sizeScale) {
+		systemEmissionScale = emissionScale;
+		systemSizeScale = sizeScale;
+		this.emissionScale = systemEmissionScale*worldEmissionScale;
+		this.sizeScale = systemSizeScale*worldSizeScale;
+	}
+	
+	/**
+	 * Sets the quality of the world the system is in, on top of the system's own
+	 * 
+	 * @param emissionScale - the world's emission scale
+	 * @param sizeScale - the world's size scale
+	 */
+	void setWorldQuality(float emissionScale, float sizeScale) {
+		worldEmissionScale = emissionScale;
+		worldSizeScale = sizeScale;
+		this.emissionScale = systemEmissionScale*worldEmissionScale;
+		this.sizeScale = systemSizeScale*worldSizeScale;
+	}
+	
+	/**
+	 * Sets how the renderer blends the particles with the scene
+	 * 
+	 * @param blendMode - ADDITIVE or DARKEN
+	 */
+	public void setBlendMode(BLEND_MODE blendMode) {
+		this.blendMode = blendMode;
+	}
+	
+	/**
+	 * Resets the particle channels
+	 * They are only re-allocated if maxParticles has changed
+	 */
+	public void initializeSystem() {
+		numParticles = 0;
+		bounds.clear();
+		if(particles.capacity != maxParticles) {
+			particles.allocate(maxParticles);
+			spawnScratch = new float[maxParticles];
+		}
+	}
+	
+	/**
+	 * Removes a particle from the system by moving the last live particle into its slot
+	 * 
+	 * @param index - the slot of the dead particle
+	 */
+	protected void killParticle(int index) {
+		numParticles--;
+		if(index != numParticles)
+			particles.copy(numParticles, index);
+	}
+	
+	/**
+	 * Sets this to a radially emitting systems
+	 */
+	public void setRadial() {
+		radial = true;
+	}
+
+	/**
+	 * Particles will not rotate to face the camera
+	 */
+	public void facingOff() {
+		billboardMode = Billboard.MODE.FIXED;
+	}
+	
+	/**
+	 * Sets how particles turn towards the camera
+	 * 
+	 * @param mode - FIXED, SPHERICAL (the default) or CYLINDRICAL
+	 */
+	public void setBillboardMode(Billboard.MODE mode) {
+		billboardMode = mode;
+	}
+
+	/**
+	 * Sets the volume in which particles are produced
+	 * 
+	 * @param width - production extent along x
+	 * @param depth - production extent along y
+	 * @param height - production extent along z
+	 */
+	public void setEmitterVolume(float width, float depth, float height) {
+		this.width = width;
+		this.depth = depth;
+		this.height = height;
+	}
+
+	/**
+	 * Sets the motion of the emitter volume
+	 * 
+	 * @param velocity - starting velocity
+	 * @param acceleration - acceleration
+	 */
+	public void setEmitterMotion(Vector3 velocity, Vector3 acceleration) {
+		emitterVelocity.copy(velocity);
+		emitterAcceleration.copy(acceleration);
+	}
+
+	/**
+	 * Sets the initial origin of the system
+	 * 
+	 * @param position - x, y and z coordinates of the origin
+	 */
+	public void setEmitterPosition(Vector3 position) {
+		origin.copy(position);
+	}
+
+	/**
+	 * Sets the scale factor for the system as a whole.
+	 * Can be used to dynamically scale the system
+	 * 
+	 * @param scale - the scale factor
+	 */
+	public void setScale(Vector3 scale) {
+		this.scale = scale;
+	}
+
+	/**
+	 * For rotation of the system
+	 * 
+	 * @param axis - which axis to rotate
+	 * @param angle - the amount to increase rotation by
+	 */
+	public void setRotate(int axis, float deltaAngle) {
+		switch (axis)
+		{
+			case 0:
+				rotate.x+= deltaAngle;
+				break;
+			case 1:
+				rotate.y+= deltaAngle;
+				break;
+			case 2:
+				rotate.z+= deltaAngle;
+				break;
+			default:
+				break;
+		}
+	}
+	
+	/**
+	 * Sets the particle attributes at creation and destruction
+	 * 
+	 * @param startSize - x and y start sizes
+	 * @param endSize - x and y end sizes
+	 */
+	public void setParticleSize(Vector2 startSize, Vector2 endSize) {
+		this.startSize = startSize;
+		this.endSize = endSize;
+		pipeline.setSizeRange(startSize, endSize);
+	}
+
+	/**
+	 * Shapes particle growth over life. A curve value of 0 is the start size and 1 is the end size.
+	 * Pass null for the default linear growth.
+	 * 
+	 * @param sizeCurveX - width blend over life
+	 * @param sizeCurveY - height blend over life
+	 */
+	public void setSizeCurves(Curve sizeCurveX, Curve sizeCurveY) {
+		pipeline.setSizeCurves(sizeCurveX, sizeCurveY);
+	}
+	
+	/**
+	 * Sets a speed multiplier over life. Velocity keeps integrating acceleration; the multiplier
+	 * only scales how far a particle moves each step.
+	 * 
+	 * @param speedCurve - speed multiplier over life
+	 */
+	public void setSpeedCurve(Curve speedCurve) {
+		pipeline.setSpeedCurve(speedCurve);
+	}
+	
+	/**
+	 * Sets drag over life, as the fraction of velocity lost per second
+	 * 
+	 * @param dragCurve - drag over life
+	 */
+	public void setDragCurve(Curve dragCurve) {
+		pipeline.setDragCurve(dragCurve);
+	}
+	
+	/**
+	 * The stages every particle goes through each step. Configure it for behaviors the
+	 * system's own setters don't cover, e.g. gravity.
+	 * 
+	 * @return - the system's pipeline
+	 */
+	public AffectorPipeline getPipeline() {
+		return pipeline;
+	}
+
+	/**
+	 * Sets the attributes for particle creation and life
+	 * 
+	 * @param maxParticles - maximum allowed number of particles at any given time
+	 * @param particlesPerSec - particle birth rate
+	 * @param lifeTime - how long a particle lives before it is removed from the system
+	 * @param lifeTimeVar - for a given particle, a variation parameter for the lifetime for randomness
+	 */
+	public void setParticleLife(int maxParticles, float particlesPerSec, float lifeTime, float lifeTimeVar) {
+		this.maxParticles = maxParticles;
+		this.particlesPerSec = particlesPerSec;
+		this.lifeTime = lifeTime;
+		this.lifeTimeVar = lifeTimeVar;
+	}
+
+	/**
+	 * Sets the motion attributes for particles
+	 * 
+	 * @param velocity - the start velocity for a particle
+	 * @param velocityVariation - a variation in the start velocity for randomness
+	 * @param acceleration - particle acceleration
+	 */
+	public void setMotion(Vector3 velocity, Vector3 velocityVariation, Vector3 acceleration) {
+		this.velocity.copy(velocity);
+		this.velocityVariation.copy(velocityVariation);
+		this.acceleration.copy(acceleration);
+	}
+
+	
+	/**
+	 * Starts a system
+	 * 
+	 * @param origin - the x, y and z coordinates of the system position
+	 * @param duration - how long the system lives. A value of -1.0f means the system does not stop
+	 */
+	public void startSystem(Vector3 origin, float duration) {
+		this.origin.copy(origin);
+
+		this.duration = duration;
+		initializeSystem();
+
+		float test;
+		float sizex = startSize.x > endSize.x? startSize.x:endSize.x;
+		float sizey = startSize.y > endSize.y? startSize.y:endSize.y;
+
+		//Calculate an effective radius for frustum culling
+		if(radius > 0.0f)
+		{
+			rEff = sizex + radius + velocity.x*(lifeTime + lifeTimeVar);
+			test = sizey + height/2.0f + velocity.z*(lifeTime + lifeTimeVar);
+			if(test > rEff)
+				rEff = test;
+		}
+		else
+		{
+			float size = (sizex > sizey)? sizex:sizey;
+			float dim = (width > depth)? width:depth;
+			dim = (dim > height)? dim:height;
+			//By using the factor of 2.0, it helps to start the system before the camera fully gets around to it.
+			rEff = 2.0f*(size + dim + velocity.length()*(lifeTime + lifeTimeVar));
+		}
+		
+		//A restarted system starts its duration over
+		accumulatedTime = 0.0f;
+		numParticlesHeldOver = 0.0f;
+		destroying = false;
+		nextBurst = 0;
+		
+		started = draw = true;
+		fixed = duration == -1.0f;
+	}
+	
+	/**
+	 * Emits a number of particles at once, e.g. for an explosion.
+	 * Fewer are emitted if the system would go over maxParticles.
+	 * 
+	 * @param count - how many particles to emit
+	 */
+	public void burst(int count) {
+		spawn(count);
+	}
+	
+	/**
+	 * Schedules a burst at a given time after the system starts.
+	 * The schedule restarts whenever the system is started.
+	 * 
+	 * @param time - seconds after the start of the system
+	 * @param count - how many particles to emit
+	 */
+	public void addBurst(float time, int count) {
+		if(numBursts == burstTimes.length) {
+			int size = numBursts == 0? 4:numBursts*2;
+			burstTimes = Arrays.copyOf(burstTimes, size);
+			burstCounts = Arrays.copyOf(burstCounts, size);
+		}
+		
+		int index = numBursts;
+		while(index > 0 && burstTimes[index - 1] > time) {
+			burstTimes[index] = burstTimes[index - 1];
+			burstCounts[index] = burstCounts[index - 1];
+			index--;
+		}
+		burstTimes[index] = time;
+		burstCounts[index] = count;
+		numBursts++;
+	}
+	
+	/**
+	 * Removes every scheduled burst
+	 */
+	public void clearBursts() {
+		numBursts = nextBurst = 0;
+	}
+	
+	/**
+	 * Initializes a contiguous range of new particles at the end of the live ones
+	 * 
+	 * @param count - how many particles to create
+	 */
+	protected void spawn(int count) {
+		int cap = emissionScale < 1.0f? (int)(maxParticles*emissionScale):maxParticles;
+		if(count > cap - numParticles)
+			count = cap - numParticles;
+		if(count <= 0)
+			return;
+		
+		int start = numParticles;
+		initializeParticles(start, start + count);
+		particles.resetPrevious(start, start + count);
+		numParticles+= count;
+		
+		float[] px = particles.positionX, py = particles.positionY, pz = particles.positionZ;
+		float[] sx = particles.sizeX, sy = particles.sizeY;
+		for(int i=start; i<numParticles; i++)
+			bounds.include(px[i], py[i], pz[i], (sx[i] + sy[i])*0.5f);
+	}
+	
+	/**
+	 * Fills a range of a channel with random values from center - spread to center + spread
+	 * 
+	 * @param channel - the channel
+	 * @param start - the first slot
+	 * @param end - one past the last slot
+	 * @param center - the mid value
+	 * @param spread - the largest distance from the mid value
+	 */
+	protected void spawnSpread(float[] channel, int start, int end, float center, float spread) {
+		random.fill(channel, start, end - start);
+		for(int i=start; i<end; i++)
+			channel[i] = center + (2.0f*channel[i] - 1.0f)*spread;
+	}
+	
+	/**
+	 * Fills a range of a channel with random values from min to min + range
+	 * 
+	 * @param channel - the channel
+	 * @param start - the first slot
+	 * @param end - one past the last slot
+	 * @param min - the smallest value
+	 * @param range - the size of the range
+	 */
+	protected void spawnUniform(float[] channel, int start, int end, float min, float range) {
+		random.fill(channel, start, end - start);
+		for(int i=start; i<end; i++)
+			channel[i] = min + channel[i]*range;
+	}
+	
+	/**
+	 * Sets the lifetime and remaining life of a range of new particles
+	 * 
+	 * @param start - the first slot
+	 * @param end - one past the last slot
+	 */
+	protected void spawnLife(int start, int end) {
+		spawnUniform(particles.lifeTime, start, end, lifeTime, lifeTimeVar);
+		System.arraycopy(particles.lifeTime, start, particles.life, start, end - start);
+	}
+	
+	/**
+	 * Sets the linear size change of a range of new particles, so they reach endSize as they die.
+	 * Call after spawnLife.
+	 * 
+	 * @param start - the first slot
+	 * @param end - one past the last slot
+	 */
+	protected void spawnSizeDeltas(int start, int end) {
+		float[] life = particles.life, dsx = particles.deltaSizeX, dsy = particles.deltaSizeY;
+		float rangeX = endSize.x - startSize.x, rangeY = endSize.y - startSize.y;
+		for(int i=start; i<end; i++) {
+			dsx[i] = rangeX/life[i];
+			dsy[i] = rangeY/life[i];
+		}
+	}
+	
+	/**
+	 * Moves the system if necessary.
+	 * Adjusts our particle array when emitting particles
+	 * 
+	 * @param numParticlesToCreate - how many particles need to be created this frame
+	 * @param deltaTime - time increment since the last frame
+	 * @return
+	 */
+	protected void updateSystem(int numParticlesToCreate, float deltaTime) {
+		//Create new particles
+		origin.addScaled(emitterVelocity, deltaTime);
+
+		emitterVelocity.addScaled(emitterAcceleration, deltaTime);
+		spawn(numParticlesToCreate);
+	}
+
+	/**
+	 * Causes an immediate killing and reset of the system
+	 */
+	public void killSystem() {
+		numParticles = 0;
+		bounds.clear();
+	}
+}
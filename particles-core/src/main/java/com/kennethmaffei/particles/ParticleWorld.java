@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Owns every particle system in a scene.
+ * Systems are updated in order of their update order, then in the order they were added, so a
+ * system can rely on the ones before it having moved this step. Transient systems that have
+ * finished (shut down with no particles left) are removed after the update. Renderers draw the
+ * world in the same order.
+ * 
+ * A world belongs to one thread at a time, like the systems in it.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class ParticleWorld {
+	
+	private ParticleSystem[] systems = new ParticleSystem[8];
+	private int[] orders = new int[8];
+	private int numSystems;
+	
+	//Quality for every system, applied at each update(). May be set from any thread.
+	private volatile float emissionScale = 1.0f;
+	private volatile float sizeScale = 1.0f;
+	
+	//Totals as of the last update() or cull()
+	private int numParticles;
+	private int capacity;
+	private int numVisible;
+	
+	/**
+	 * Adds a system with update order 0
+	 * 
+	 * @param system - the system, usually already started
+	 */
+	public void add(ParticleSystem system) {
+		add(system, 0);
+	}
+	
+	/**
+	 * Adds a system. Lower orders are updated and drawn first; systems with the same
+	 * order keep the order they were added in.
+	 * 
+	 * @param system - the system, usually already started
+	 * @param order - the update order
+	 */
+	public void add(ParticleSystem system, int order) {
+		if(numSystems == systems.length) {
+			ParticleSystem[] grownSystems = new ParticleSystem[numSystems*2];
+			System.arraycopy(systems, 0, grownSystems, 0, numSystems);
+			systems = grownSystems;
+			int[] grownOrders = new int[numSystems*2];
+			System.arraycopy(orders, 0, grownOrders, 0, numSystems);
+			orders = grownOrders;
+		}
+		
+		int index = numSystems;
+		while(index > 0 && orders[index - 1] > order)
+			index--;
+		System.arraycopy(systems, index, systems, index + 1, numSystems - index);
+		System.arraycopy(orders, index, orders, index + 1, numSystems - index);
+		systems[index] = system;
+		orders[index] = order;
+		numSystems++;
+		
+		numParticles+= system.numParticles;
+		capacity+= system.maxParticles;
+	}
+	
+	/**
+	 * Removes a system
+	 * 
+	 * @param system - the system
+	 * @return - false if the system isn't in this world
+	 */
+	public boolean remove(ParticleSystem system) {
+		for(int i=0; i<numSystems; i++) {
+			if(systems[i] == system) {
+				removeAt(i);
+				numParticles-= system.numParticles;
+				capacity-= system.maxParticles;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Removes every system
+	 */
+	public void clear() {
+		for(int i=0; i<numSystems; i++) {
+			systems[i].setWorldQuality(1.0f, 1.0f);
+			systems[i] = null;
+		}
+		numSystems = numParticles = capacity = numVisible = 0;
+	}
+	
+	/**
+	 * Sets every system's draw flag against the camera's view volume
+	 * 
+	 * @param frustum - the view volume
+	 */
+	public void cull(Frustum frustum) {
+		numVisible = 0;
+		for(int i=0; i<numSystems; i++) {
+			if(systems[i].cull(frustum))
+				numVisible++;
+		}
+	}
+	
+	/**
+	 * Sets the quality of every system in the world, see ParticleSystem.setQuality().
+	 * It is multiplied by whatever quality the systems were given directly.
+	 * Unlike the rest of the world this is safe to call from any thread; it takes effect
+	 * at the next update().
+	 * 
+	 * @param emissionScale - fraction of each system's emission rate and particle cap to use
+	 * @param sizeScale - multiplier on the drawn particle size
+	 */
+	public void setQuality(float emissionScale, float sizeScale) {
+		this.emissionScale = emissionScale;
+		this.sizeScale = sizeScale;
+	}
+	
+	/**
+	 * Updates every system for one step, then removes the finished transient ones
+	 * 
+	 * @param elapsedTime - the time since the last step
+	 */
+	public void update(float elapsedTime) {
+		float emission = emissionScale, size = sizeScale;
+		for(int i=0; i<numSystems; i++) {
+			systems[i].setWorldQuality(emission, size);
+			systems[i].update(elapsedTime);
+		}
+		
+		numParticles = 0;
+		capacity = 0;
+		int i = 0;
+		while(i < numSystems) {
+			ParticleSystem system = systems[i];
+			if(system.isFinished()) {
+				removeAt(i);
+				continue;
+			}
+			numParticles+= system.numParticles;
+			capacity+= system.maxParticles;
+			i++;
+		}
+	}
+	
+	private void removeAt(int index) {
+		//A removed system is back to its own quality
+		systems[index].setWorldQuality(1.0f, 1.0f);
+		numSystems--;
+		System.arraycopy(systems, index + 1, systems, index, numSystems - index);
+		System.arraycopy(orders, index + 1, orders, index, numSystems - index);
+		systems[numSystems] = null;
+	}
+	
+	/**
+	 * The systems in update order. Only the first getNumSystems() entries are in use.
+	 * 
+	 * @return - the systems array
+	 */
+	public ParticleSystem[] getSystems() {
+		return systems;
+	}
+	
+	public ParticleSystem getSystem(int index) {
+		return systems[index];
+	}
+	
+	public int getNumSystems() {
+		return numSystems;
+	}
+	
+	/**
+	 * @return - the live particles of every system
+	 */
+	public int getNumParticles() {
+		return numParticles;
+	}
+	
+	/**
+	 * @return - the particle slots allocated by every system
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return - how many systems the last cull() found on screen
+	 */
+	public int getNumVisible() {
+		return numVisible;
+	}
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Holds the particle work of a frame to a time budget by trading away quality.
+ * The caller times its particle update and draw sections each frame. The governor smooths
+ * the total, and when it stays over budget it lowers the quality level: fewer particles
+ * emitted, a lower particle cap and smaller particles (less overdraw). When there is
+ * headroom again it slowly raises it back.
+ * 
+ * Hysteresis keeps it from oscillating. Quality only drops after downFrames frames in a row
+ * over budget and only rises after upFrames frames in a row well under it, and rising is much
+ * slower than falling. After every change the governor waits settleFrames frames before
+ * judging again: particles already alive keep costing until they die, so the effect of a
+ * change takes a while to show.
+ * 
+ * GL calls are asynchronous, so a draw section measures command submission plus any stall the
+ * driver makes us wait for, not the GPU time itself.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class QualityGovernor {
+	
+	private float budget = 0.008f;          //Target particle time per frame in seconds, about half a 60 fps frame
+	private float downThreshold = 1.0f;     //Over budget*downThreshold counts as too slow
+	private float upThreshold = 0.7f;       //Under budget*upThreshold counts as headroom
+	private int downFrames = 10;            //Slow frames in a row before quality drops
+	private int upFrames = 120;             //Fast frames in a row before quality rises
+	private int settleFrames = 60;          //Frames ignored after a change
+	private float downFactor = 0.8f;        //Quality is multiplied by this when dropping
+	private float upStep = 0.05f;           //and raised by this when rising
+	private float minQuality = 0.25f;       //Quality never drops below this
+	private float minSizeScale = 0.6f;      //Particle size at minQuality
+	private float smoothing = 0.1f;         //Weight of the newest frame in the running average
+	
+	private float quality = 1.0f;
+	private float average = -1.0f;          //Smoothed frame time, negative until the first frame
+	private int slowFrames, fastFrames;
+	private int settling;                   //Frames left to ignore
+	
+	private long sectionStart;
+	private float frameTime;                //Sections measured so far this frame
+	
+	/**
+	 * Sets the time the particle work of a frame should fit in
+	 * 
+	 * @param seconds - the budget
+	 */
+	public void setBudget(float seconds) {
+		budget = seconds;
+	}
+	
+	/**
+	 * Sets the lowest quality the governor will go to
+	 * 
+	 * @param minQuality - the quality floor, 0 to 1
+	 * @param minSizeScale - the particle size multiplier at that floor
+	 */
+	public void setMinQuality(float minQuality, float minSizeScale) {
+		this.minQuality = minQuality;
+		this.minSizeScale = minSizeScale;
+	}
+	
+	/**
+	 * Sets the hysteresis band as fractions of the budget
+	 * 
+	 * @param down - frames over budget*down are slow
+	 * @param up - frames under budget*up are fast
+	 */
+	public void setThresholds(float down, float up) {
+		downThreshold = down;
+		upThreshold = up;
+	}
+	
+	/**
+	 * Sets how many frames in a row it takes to change the quality
+	 * 
+	 * @param down - slow frames before dropping
+	 * @param up - fast frames before rising
+	 * @param settle - frames to wait after a change before judging again
+	 */
+	public void setReaction(int down, int up, int settle) {
+		downFrames = down;
+		upFrames = up;
+		settleFrames = settle;
+	}
+	
+	/**
+	 * Starts timing a section of particle work, e.g. the update
+	 */
+	public void beginSection() {
+		sectionStart = nanoTime();
+	}
+	
+	/**
+	 * Stops timing the current section
+	 */
+	public void endSection() {
+		frameTime+= (nanoTime() - sectionStart)/1000000000.0f;
+	}
+	
+	/**
+	 * Ends the frame and adjusts the quality from the time its sections took
+	 * 
+	 * @return - true if the quality changed
+	 */
+	public boolean endFrame() {
+		boolean changed = addFrame(frameTime);
+		frameTime = 0.0f;
+		return changed;
+	}
+	
+	/**
+	 * Adjusts the quality for a frame whose particle work took a known time
+	 * 
+	 * @param seconds - the frame's particle time
+	 * @return - true if the quality changed
+	 */
+	public boolean addFrame(float seconds) {
+		average = average < 0.0f? seconds:average + (seconds - average)*smoothing;
+		if(settling > 0) {
+			settling--;
+			return false;
+		}
+		
+		if(average > budget*downThreshold) {
+			fastFrames = 0;
+			if(++slowFrames >= downFrames && quality > minQuality) {
+				quality = Math.max(minQuality, quality*downFactor);
+				slowFrames = 0;
+				settling = settleFrames;
+				return true;
+			}
+		}
+		else if(average < budget*upThreshold) {
+			slowFrames = 0;
+			if(++fastFrames >= upFrames && quality < 1.0f) {
+				quality = Math.min(1.0f, quality + upStep);
+				fastFrames = 0;
+				settling = settleFrames;
+				return true;
+			}
+		}
+		else
+			slowFrames = fastFrames = 0;      //Inside the band, leave things as they are
+		
+		return false;
+	}
+	
+	/**
+	 * Hands the current quality to every system in a world
+	 * 
+	 * @param world - the world
+	 */
+	public void apply(ParticleWorld world) {
+		world.setQuality(getEmissionScale(), getSizeScale());
+	}
+	
+	/**
+	 * @return - the quality level, minQuality to 1
+	 */
+	public float getQuality() {
+		return quality;
+	}
+	
+	/**
+	 * @return - the fraction of each system's emission rate and particle cap to use
+	 */
+	public float getEmissionScale() {
+		return quality;
+	}
+	
+	/**
+	 * @return - the particle size multiplier, minSizeScale at minQuality through 1 at full quality
+	 */
+	public float getSizeScale() {
+		if(minQuality >= 1.0f)
+			return 1.0f;
+		return minSizeScale + (1.0f - minSizeScale)*(quality - minQuality)/(1.0f - minQuality);
+	}
+	
+	/**
+	 * @return - the smoothed particle time per frame in seconds
+	 */
+	public float getAverageTime() {
+		return average < 0.0f? 0.0f:average;
+	}
+	
+	/**
+	 * Goes back to full quality and forgets the frame history
+	 */
+	public void reset() {
+		quality = 1.0f;
+		average = -1.0f;
+		slowFrames = fastFrames = settling = 0;
+		frameTime = 0.0f;
+	}
+	
+	/**
+	 * The time source, in nanoseconds
+	 * 
+	 * @return - the current time
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+}
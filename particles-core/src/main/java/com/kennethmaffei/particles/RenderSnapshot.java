@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A whole simulation frame ready for rendering: a snapshot of every simulated system,
+ * plus the time it was taken so the renderer can interpolate towards it.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class RenderSnapshot {
+	public SystemSnapshot[] systems = new SystemSnapshot[0];
+	public int numSystems;
+	
+	public long time;                 //nanoTime the snapshot was taken
+	public float stepTime;            //Simulation step length in seconds
+	
+	/**
+	 * Copies the render state of a set of systems
+	 * 
+	 * @param list - the systems
+	 * @param stepTime - the simulation step length
+	 * @param time - the current nanoTime
+	 */
+	public void capture(ParticleSystem[] list, float stepTime, long time) {
+		capture(list, list.length, stepTime, time);
+	}
+	
+	/**
+	 * Copies the render state of every system in a world
+	 * 
+	 * @param world - the world
+	 * @param stepTime - the simulation step length
+	 * @param time - the current nanoTime
+	 */
+	public void capture(ParticleWorld world, float stepTime, long time) {
+		capture(world.getSystems(), world.getNumSystems(), stepTime, time);
+	}
+	
+	private void capture(ParticleSystem[] list, int count, float stepTime, long time) {
+		if(systems.length < count) {
+			SystemSnapshot[] grown = new SystemSnapshot[count];
+			System.arraycopy(systems, 0, grown, 0, systems.length);
+			for(int i=systems.length; i<grown.length; i++)
+				grown[i] = new SystemSnapshot();
+			systems = grown;
+		}
+		
+		for(int i=0; i<count; i++)
+			systems[i].capture(list[i]);
+		numSystems = count;
+		
+		this.stepTime = stepTime;
+		this.time = time;
+	}
+	
+	/**
+	 * How far to interpolate from each particle's previous position to the snapshot position.
+	 * The snapshot is one step behind the simulation, so the renderer reaches the snapshot
+	 * state just as the next one is due.
+	 * 
+	 * @param now - the current nanoTime
+	 * @return - 0 to 1
+	 */
+	public float getAlpha(long now) {
+		if(stepTime <= 0.0f)
+			return 1.0f;
+		float alpha = (now - time)/(stepTime*1000000000.0f);
+		return alpha > 1.0f? 1.0f:alpha;
+	}
+}
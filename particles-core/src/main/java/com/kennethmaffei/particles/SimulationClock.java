@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+/**
+ * Fixed timestep clock for the simulation.
+ * Frame time is measured with System.nanoTime() and collected in an accumulator, which is
+ * drained in whole fixed steps. Any remainder carries over to the next frame, and
+ * getAlpha() tells the renderer how far it is between the last two simulation states.
+ * 
+ * Long frames (e.g. the first frame after onResume) are clamped, and at most maxSteps steps
+ * are taken per frame. Time beyond that budget is dropped rather than simulated, so a slow
+ * frame can never snowball into a slower one.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class SimulationClock {
+	
+	private float stepTime = 1.0f/60.0f;    //Length of one simulation step in seconds
+	private int maxSteps = 4;               //Catch-up budget, the most steps taken in one frame
+	private float maxFrameTime = 0.25f;     //Frame times are clamped to this
+	
+	private long prevTime;                  //nanoTime of the previous frame
+	private boolean running;                //false until the first frame after reset()
+	private float accumulator;              //Unsimulated time carried between frames
+	private float alpha;                    //Fraction of a step the renderer is past the last state
+	
+	/**
+	 * Sets the simulation rate
+	 * The simulation can run slower than rendering; the renderer interpolates in between
+	 * 
+	 * @param stepsPerSecond - fixed steps per second
+	 */
+	public void setStepRate(float stepsPerSecond) {
+		stepTime = 1.0f/stepsPerSecond;
+	}
+	
+	/**
+	 * Sets the most steps the clock will take in a single frame to catch up
+	 * 
+	 * @param maxSteps - the catch-up budget
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = maxSteps;
+	}
+	
+	/**
+	 * Sets the longest frame time the clock will accept
+	 * 
+	 * @param maxFrameTime - the clamp in seconds
+	 */
+	public void setMaxFrameTime(float maxFrameTime) {
+		this.maxFrameTime = maxFrameTime;
+	}
+	
+	/**
+	 * Forgets all accumulated time. Call when the app resumes or the scene is reloaded.
+	 */
+	public void reset() {
+		running = false;
+		accumulator = 0.0f;
+		alpha = 0.0f;
+	}
+	
+	/**
+	 * Measures the time since the last frame and works out how many steps to simulate
+	 * 
+	 * @return - the number of fixed steps to run this frame
+	 */
+	public int advance() {
+		long currentTime = nanoTime();
+		if(!running) {
+			prevTime = currentTime;
+			running = true;
+		}
+		
+		float frameTime = (currentTime - prevTime)/1000000000.0f;
+		prevTime = currentTime;
+		
+		return advance(frameTime);
+	}
+	
+	/**
+	 * Adds a known frame time to the accumulator and works out how many steps to simulate
+	 * 
+	 * @param frameTime - the frame time in seconds
+	 * @return - the number of fixed steps to run this frame
+	 */
+	public int advance(float frameTime) {
+		if(frameTime > maxFrameTime)
+			frameTime = maxFrameTime;
+		else if(frameTime < 0.0f)
+			frameTime = 0.0f;
+		
+		accumulator+= frameTime;
+		int steps = (int)(accumulator/stepTime);
+		if(steps > maxSteps) {
+			//Over budget. Drop the time we can't afford to simulate.
+			steps = maxSteps;
+			accumulator = 0.0f;
+		}
+		else
+			accumulator-= steps*stepTime;
+		
+		alpha = accumulator/stepTime;
+		return steps;
+	}
+	
+	/**
+	 * The length of one simulation step, pass this to ParticleSystem.update()
+	 * 
+	 * @return - the step time in seconds
+	 */
+	public float getStepTime() {
+		return stepTime;
+	}
+	
+	/**
+	 * How far between the previous and the current simulation state to render
+	 * 
+	 * @return - 0 for the previous state through 1 for the current state
+	 */
+	public float getAlpha() {
+		return alpha;
+	}
+	
+	/**
+	 * The time source, in nanoseconds
+	 * 
+	 * @return - the current time
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+}
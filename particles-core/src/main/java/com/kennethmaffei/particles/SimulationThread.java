@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs particle simulation on its own thread, pipelined with rendering.
+ * While the render thread draws frame N, this thread simulates frame N+1. Each simulated
+ * frame is published as a RenderSnapshot through a lock-free triple buffer, so the render
+ * thread never waits on the simulation and the simulation runs at its own fixed rate.
+ * 
+ * Once started, the world and its systems belong to this thread; don't update, reconfigure,
+ * add to or remove from them anywhere else until stop() returns.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class SimulationThread implements Runnable {
+	
+	private final SimulationClock clock;
+	private final TripleBuffer<RenderSnapshot> snapshots =
+			new TripleBuffer<RenderSnapshot>(new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+	
+	private volatile ParticleWorld world = new ParticleWorld();
+	private volatile boolean running;
+	private Thread thread;
+	
+	public SimulationThread() {
+		this(new SimulationClock());
+	}
+	
+	public SimulationThread(SimulationClock clock) {
+		this.clock = clock;
+	}
+	
+	/**
+	 * Sets the systems to simulate, in a world of their own.
+	 * May be called from any thread; takes effect at the next step.
+	 * 
+	 * @param systems - the systems
+	 */
+	public void setSystems(ParticleSystem... systems) {
+		ParticleWorld world = new ParticleWorld();
+		for(ParticleSystem system : systems)
+			world.add(system);
+		this.world = world;
+	}
+	
+	/**
+	 * Sets the world to simulate. May be called from any thread; takes effect at the next step.
+	 * 
+	 * @param world - the world
+	 */
+	public void setWorld(ParticleWorld world) {
+		this.world = world;
+	}
+	
+	/**
+	 * Starts the simulation thread if it isn't already running
+	 */
+	public synchronized void start() {
+		if(thread != null)
+			return;
+		
+		running = true;
+		thread = new Thread(this, "ParticleSimulation");
+		thread.start();
+	}
+	
+	/**
+	 * Stops the simulation thread and waits for it to finish
+	 */
+	public synchronized void stop() {
+		if(thread == null)
+			return;
+		
+		running = false;
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while(thread.isAlive()) {
+			try {
+				thread.join();
+			}
+			catch(InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		thread = null;
+		
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
+	/**
+	 * Render thread side. The newest simulated frame.
+	 * It stays valid until the next call.
+	 * 
+	 * @return - the snapshot to draw
+	 */
+	public RenderSnapshot acquireSnapshot() {
+		return snapshots.acquire();
+	}
+	
+	@Override
+	public void run() {
+		clock.reset();
+		long stepNanos = (long)(clock.getStepTime()*1000000000.0f);
+		
+		while(running) {
+			int steps = clock.advance();
+			if(steps > 0) {
+				ParticleWorld current = world;
+				float stepTime = clock.getStepTime();
+				for(int s=0; s<steps; s++)
+					current.update(stepTime);
+				
+				snapshots.getBack().capture(current, stepTime, System.nanoTime());
+				snapshots.publish();
+			}
+			
+			//Sleep until the next step is due
+			LockSupport.parkNanos((long)((1.0f - clock.getAlpha())*stepNanos));
+		}
+	}
+}
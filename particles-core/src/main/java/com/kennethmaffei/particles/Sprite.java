@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * The part of a texture a particle is drawn with, optionally a flipbook of frames that is
+ * played over the particle's life.
+ * Frames are texture rectangles stored as u0, v0, u1, v1 (top left, bottom right), so one
+ * flipbook can live in an atlas region next to other sprites. Sprites never change once built
+ * and can be shared between systems and threads.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class Sprite {
+	public static final Sprite FULL = new Sprite(0.0f, 0.0f, 1.0f, 1.0f); //The whole texture, one frame
+	
+	public final float[] frames;             //4 texture coordinates per frame
+	public final int numFrames;
+	public final float cycles;               //How many times the flipbook plays over a particle's life
+	
+	/**
+	 * A single frame sprite
+	 * 
+	 * @param u0 - left texture coordinate
+	 * @param v0 - top texture coordinate
+	 * @param u1 - right texture coordinate
+	 * @param v1 - bottom texture coordinate
+	 */
+	public Sprite(float u0, float v0, float u1, float v1) {
+		this(u0, v0, u1, v1, 1, 1, 1.0f);
+	}
+	
+	/**
+	 * A single frame sprite covering an atlas region
+	 * 
+	 * @param region - the packed region
+	 */
+	public Sprite(TextureAtlas.Region region) {
+		this(region.u0, region.v0, region.u1, region.v1, 1, 1, 1.0f);
+	}
+	
+	/**
+	 * A flipbook covering an atlas region
+	 * 
+	 * @param region - the packed region holding the frame grid
+	 * @param columns - frames across, at least 1
+	 * @param rows - frames down, at least 1
+	 * @param cycles - how many times the flipbook plays over a particle's life
+	 */
+	public Sprite(TextureAtlas.Region region, int columns, int rows, float cycles) {
+		this(region.u0, region.v0, region.u1, region.v1, columns, rows, cycles);
+	}
+	
+	/**
+	 * A flipbook laid out as a grid of equal frames, played left to right, top to bottom
+	 * 
+	 * @param u0 - left texture coordinate of the grid
+	 * @param v0 - top texture coordinate of the grid
+	 * @param u1 - right texture coordinate of the grid
+	 * @param v1 - bottom texture coordinate of the grid
+	 * @param columns - frames across, at least 1
+	 * @param rows - frames down, at least 1
+	 * @param cycles - how many times the flipbook plays over a particle's life
+	 */
+	public Sprite(float u0, float v0, float u1, float v1, int columns, int rows, float cycles) {
+		if(columns < 1 || rows < 1)
+			throw new IllegalArgumentException("A flipbook needs at least one column and one row");
+		numFrames = columns*rows;
+		this.cycles = cycles;
+		frames = new float[numFrames*4];
+		
+		float frameWidth = (u1 - u0)/columns;
+		float frameHeight = (v1 - v0)/rows;
+		for(int row=0; row<rows; row++) {
+			for(int column=0; column<columns; column++) {
+				int o = (row*columns + column)*4;
+				frames[o] = u0 + column*frameWidth;
+				frames[o + 1] = v0 + row*frameHeight;
+				frames[o + 2] = frames[o] + frameWidth;
+				frames[o + 3] = frames[o + 1] + frameHeight;
+			}
+		}
+	}
+	
+	/**
+	 * @return - true if the sprite has more than one frame
+	 */
+	public boolean isAnimated() {
+		return numFrames > 1;
+	}
+	
+	/**
+	 * Finds the frame to show at a point in a particle's life
+	 * 
+	 * @param age - the normalized age, 0 at birth through 1 at death
+	 * @return - the offset of the frame's texture coordinates in frames
+	 */
+	public int frameOffset(float age) {
+		int frame = (int)(age*cycles*numFrames);
+		if(frame < 0)
+			return 0;
+		return (frame%numFrames)*4;
+	}
+}
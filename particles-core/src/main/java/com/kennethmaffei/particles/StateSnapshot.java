@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The complete particle state of a system at one moment: the live count and every channel of
+ * every live particle. Snapshots can be written to and read from a compact binary form and
+ * compared within a tolerance, so a change to the update code can be checked against a
+ * known good run.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class StateSnapshot {
+	private static final int MAGIC = 0x50534E50;   //"PSNP"
+	private static final int VERSION = 1;
+	
+	public int numParticles;
+	public float[][] channels;                     //Live particles only, in ParticleStore.CHANNEL_NAMES order
+	
+	/**
+	 * Copies the state of a system
+	 * 
+	 * @param system - the system
+	 * @return - the snapshot
+	 */
+	public static StateSnapshot capture(ParticleSystem system) {
+		StateSnapshot snapshot = new StateSnapshot();
+		snapshot.numParticles = system.numParticles;
+		
+		float[][] source = system.particles.channels();
+		snapshot.channels = new float[source.length][];
+		for(int c=0; c<source.length; c++) {
+			snapshot.channels[c] = new float[system.numParticles];
+			if(system.numParticles > 0)
+				System.arraycopy(source[c], 0, snapshot.channels[c], 0, system.numParticles);
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Writes the snapshot
+	 * 
+	 * @param out - the stream to write to
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(numParticles);
+		out.writeInt(channels.length);
+		for(int c=0; c<channels.length; c++) {
+			for(int i=0; i<numParticles; i++)
+				out.writeFloat(channels[c][i]);
+		}
+	}
+	
+	/**
+	 * Reads a snapshot written by write()
+	 * 
+	 * @param in - the stream to read from
+	 * @return - the snapshot
+	 * @throws IOException - if the stream is not a snapshot
+	 */
+	public static StateSnapshot read(DataInputStream in) throws IOException {
+		if(in.readInt() != MAGIC)
+			throw new IOException("Not a particle state snapshot");
+		int version = in.readInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported snapshot version " + version);
+		
+		StateSnapshot snapshot = new StateSnapshot();
+		snapshot.numParticles = in.readInt();
+		snapshot.channels = new float[in.readInt()][snapshot.numParticles];
+		for(int c=0; c<snapshot.channels.length; c++) {
+			for(int i=0; i<snapshot.numParticles; i++)
+				snapshot.channels[c][i] = in.readFloat();
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Compares this snapshot against an expected one.
+	 * Values match when they differ by no more than tolerance, relative to the expected value
+	 * for values larger than 1.
+	 * 
+	 * @param expected - the known good snapshot
+	 * @param tolerance - the allowed difference
+	 * @return - null when the snapshots match, otherwise a description of the first difference
+	 */
+	public String compare(StateSnapshot expected, float tolerance) {
+		if(numParticles != expected.numParticles)
+			return "particle count " + numParticles + ", expected " + expected.numParticles;
+		if(channels.length != expected.channels.length)
+			return "channel count " + channels.length + ", expected " + expected.channels.length;
+		
+		for(int c=0; c<channels.length; c++) {
+			for(int i=0; i<numParticles; i++) {
+				float actual = channels[c][i];
+				float wanted = expected.channels[c][i];
+				float allowed = tolerance*Math.max(1.0f, Math.abs(wanted));
+				if(!(Math.abs(actual - wanted) <= allowed) && !(actual == wanted))
+					return ParticleStore.CHANNEL_NAMES[c] + "[" + i + "] " + actual + ", expected " + wanted;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * A copy of everything needed to render one particle system at one simulation step.
+ * The simulation thread fills it in, and the render thread draws from it without touching
+ * the live system.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class SystemSnapshot {
+	public ParticleStore particles = new ParticleStore();   //Only the render channels are allocated
+	public int numParticles;
+	
+	public Billboard.MODE billboardMode;
+	public ParticleSystem.BLEND_MODE blendMode;
+	public int texture;
+	public Sprite sprite;                                   //Immutable, so it is shared rather than copied
+	public float sizeScale;
+	public DepthSorter sorter;                              //The system's own, only ever used by the render thread
+	public Vector3 scale = new Vector3();
+	public Vector3 rotate = new Vector3();
+	public Bounds bounds = new Bounds();                    //For culling on the render thread
+	
+	/**
+	 * Copies a system's render state
+	 * 
+	 * @param system - the system to copy
+	 */
+	public void capture(ParticleSystem system) {
+		numParticles = system.numParticles;
+		if(particles.capacity < numParticles)
+			particles.allocateRender(system.maxParticles);
+		particles.copyRender(system.particles, numParticles);
+		
+		billboardMode = system.billboardMode;
+		blendMode = system.blendMode;
+		texture = system.texture;
+		sprite = system.sprite;
+		sizeScale = system.sizeScale;
+		sorter = system.sorter;
+		scale.copy(system.scale);
+		rotate.copy(system.rotate);
+		bounds.copy(system.bounds);
+	}
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Lays out several sprites on one texture page, so systems with different sprites can share a
+ * texture and be drawn in the same batch.
+ * Sprites are added with their pixel sizes, then pack() places them on shelves, tallest first,
+ * on the smallest power of two page they fit. Each sprite gets a Region with its pixel rectangle
+ * and its texture coordinates. This class only does the layout; the renderer composites the
+ * actual pixels into the page.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class TextureAtlas {
+	
+	/**
+	 * One sprite's place on the page.
+	 * u0, v0 is the top left texture coordinate and u1, v1 the bottom right, matching
+	 * the way images are uploaded (first row at v = 0).
+	 */
+	public static class Region {
+		public final String name;
+		public final int width, height;          //Size in pixels
+		public int x, y;                         //Top left corner on the page, in pixels
+		public float u0, v0, u1, v1;             //Texture coordinates, valid after pack()
+		
+		Region(String name, int width, int height) {
+			this.name = name;
+			this.width = width;
+			this.height = height;
+		}
+	}
+	
+	private final ArrayList<Region> regions = new ArrayList<Region>();
+	private final HashMap<String, Region> regionsByName = new HashMap<String, Region>();
+	
+	private int padding = 2;                     //Empty pixels around every sprite so filtering doesn't bleed neighbours in
+	private int maxSize = 2048;                  //Largest page width or height we will try
+	private int width, height;                   //Page size after pack()
+	
+	/**
+	 * Sets the gap left around each sprite
+	 * 
+	 * @param padding - the gap in pixels
+	 */
+	public void setPadding(int padding) {
+		this.padding = padding;
+	}
+	
+	/**
+	 * Sets the largest page the atlas may use, e.g. GL_MAX_TEXTURE_SIZE
+	 * 
+	 * @param maxSize - the largest width or height in pixels
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Adds a sprite to be packed. Adding a name twice replaces nothing; the first region is returned.
+	 * 
+	 * @param name - the sprite name, e.g. its asset file
+	 * @param width - the sprite width in pixels
+	 * @param height - the sprite height in pixels
+	 * @return - the sprite's region, placed once pack() succeeds
+	 */
+	public Region add(String name, int width, int height) {
+		Region region = regionsByName.get(name);
+		if(region != null)
+			return region;
+		
+		region = new Region(name, width, height);
+		regions.add(region);
+		regionsByName.put(name, region);
+		return region;
+	}
+	
+	/**
+	 * Places every sprite and works out the texture coordinates
+	 * 
+	 * @return - false if the sprites don't fit on a maxSize page
+	 */
+	public boolean pack() {
+		ArrayList<Region> sorted = new ArrayList<Region>(regions);
+		Collections.sort(sorted, new Comparator<Region>() {
+			@Override
+			public int compare(Region a, Region b) {
+				return b.height - a.height;
+			}
+		});
+		
+		//Start at the smallest power of two square that could hold the area, and grow
+		int area = 0;
+		for(Region region : sorted)
+			area+= (region.width + padding)*(region.height + padding);
+		int pageWidth = 1;
+		while(pageWidth*pageWidth < area)
+			pageWidth<<= 1;
+		int pageHeight = pageWidth;
+		
+		while(pageWidth <= maxSize && pageHeight <= maxSize) {
+			if(place(sorted, pageWidth, pageHeight)) {
+				setPage(pageWidth, pageHeight);
+				return true;
+			}
+			
+			if(pageWidth == pageHeight)
+				pageWidth<<= 1;
+			else
+				pageHeight<<= 1;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Adds a sprite that has already been placed, e.g. by the offline texture compiler.
+	 * Call setPage() once every sprite is added.
+	 * 
+	 * @param name - the sprite name
+	 * @param x - left edge on the page, in pixels
+	 * @param y - top edge on the page, in pixels
+	 * @param width - the sprite width in pixels
+	 * @param height - the sprite height in pixels
+	 */
+	void addPlaced(String name, int x, int y, int width, int height) {
+		Region region = add(name, width, height);
+		region.x = x;
+		region.y = y;
+	}
+	
+	/**
+	 * Sets the page size and works out every sprite's texture coordinates
+	 */
+	void setPage(int width, int height) {
+		this.width = width;
+		this.height = height;
+		for(Region region : regions) {
+			region.u0 = region.x/(float)width;
+			region.v0 = region.y/(float)height;
+			region.u1 = (region.x + region.width)/(float)width;
+			region.v1 = (region.y + region.height)/(float)height;
+		}
+	}
+	
+	/**
+	 * Shelf packing. Sprites are laid left to right, and a new shelf is started below
+	 * the tallest sprite of the current one when a sprite doesn't fit.
+	 */
+	private boolean place(ArrayList<Region> sorted, int pageWidth, int pageHeight) {
+		int x = padding, y = padding;
+		int shelfHeight = 0;
+		for(Region region : sorted) {
+			if(region.width + 2*padding > pageWidth)
+				return false;
+			
+			if(x + region.width + padding > pageWidth) {
+				x = padding;
+				y+= shelfHeight + padding;
+				shelfHeight = 0;
+			}
+			if(y + region.height + padding > pageHeight)
+				return false;
+			
+			region.x = x;
+			region.y = y;
+			x+= region.width + padding;
+			if(region.height > shelfHeight)
+				shelfHeight = region.height;
+		}
+		return true;
+	}
+	
+	/**
+	 * @param name - the name the sprite was added with
+	 * @return - the sprite's region, or null if there is no such sprite
+	 */
+	public Region getRegion(String name) {
+		return regionsByName.get(name);
+	}
+	
+	/**
+	 * Every sprite, in the order they were added
+	 * 
+	 * @return - the regions
+	 */
+	public ArrayList<Region> getRegions() {
+		return regions;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	public int getPadding() {
+		return padding;
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer for handing data from one producer thread to one consumer thread.
+ * The producer always writes into the back buffer and publishes it; the consumer always reads
+ * the newest published buffer. Neither side ever waits for the other, and a buffer is never
+ * written while the consumer holds it.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class TripleBuffer<T> {
+	private static final int INDEX_MASK = 3;
+	private static final int DIRTY = 4;          //Set when the middle buffer holds something the consumer hasn't seen
+	
+	private final Object[] buffers;
+	private final AtomicInteger middle;          //Index of the buffer in transit, plus the DIRTY flag
+	private int back;                            //Owned by the producer
+	private int front;                           //Owned by the consumer
+	
+	public TripleBuffer(T first, T second, T third) {
+		buffers = new Object[] {first, second, third};
+		front = 0;
+		middle = new AtomicInteger(1);
+		back = 2;
+	}
+	
+	/**
+	 * Producer side. The buffer to write the next frame into.
+	 * 
+	 * @return - the back buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBack() {
+		return (T) buffers[back];
+	}
+	
+	/**
+	 * Producer side. Publishes the back buffer and takes over the old middle buffer as the new back.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | DIRTY) & INDEX_MASK;
+	}
+	
+	/**
+	 * Consumer side. Returns the newest published buffer.
+	 * The buffer stays valid and unchanged until the next call to acquire().
+	 * 
+	 * @return - the front buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T acquire() {
+		if((middle.get() & DIRTY) != 0)
+			front = middle.getAndSet(front) & INDEX_MASK;
+		return (T) buffers[front];
+	}
+}
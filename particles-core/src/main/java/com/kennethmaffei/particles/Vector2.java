@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+/**
+ * Class for a 2-Vector, used for particle sizes
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class Vector2 {
+	public float x;
+	public float y;
+	
+	/**
+	 * Constructors
+	 */
+	public Vector2() {};
+	public Vector2(float a, float b) {
+		x = a;
+		y = b;
+	}
+	
+	/**
+	 * Copies one Vector2's parameters into this one's
+	 * @param a
+	 */
+	public void copy(Vector2 a) {
+		x = a.x;
+		y = a.y;
+	}
+}
@@ -69,8 +69,35 @@ public class Vector3 {
 		z+= a.z;
 	}
 	
+	/**
+	 * Adds a scaled Vector3 to this one, without allocating
+	 * 
+	 * @param a - the Vector3 to add
+	 * @param s - the scale factor for a
+	 */
+	public void addScaled(Vector3 a, float s) {
+		x+= a.x*s;
+		y+= a.y*s;
+		z+= a.z*s;
+	}
+	
+	/**
+	 * Scales this Vector3 into another one, without allocating
+	 * 
+	 * @param a - the scale factor
+	 * @param out - receives the scaled vector; may be this
+	 * @return - out
+	 */
+	public Vector3 scaled(float a, Vector3 out) {
+		out.x = x*a;
+		out.y = y*a;
+		out.z = z*a;
+		return out;
+	}
+	
 	/**
 	 * Scales this Vector3 and returns a new scaled Vector3
+	 * Allocates; per frame code should use scaled(a, out) or addScaled instead
 	 * 
 	 * @param a - the scale factor
 	 * @return - the new vector
@@ -128,17 +155,32 @@ public class Vector3 {
 	
 	/**
 	 * Static function to calculate the cross product between two Vector3s
+	 * Allocates; per frame code should use crossProduct(a, b, out) instead
 	 * 
 	 * @param a - the first Vector3
 	 * @param b - the second Vector3
 	 * @return - the cross product
 	 */
 	public static Vector3 crossProduct(Vector3 a, Vector3 b) {
-		Vector3 cp = new Vector3();
-		cp.x = (a.y*b.z - b.y*a.z);
-		cp.y = (a.z*b.x - b.z*a.x);
-		cp.z = (a.x*b.y - b.x*a.y);
-		return cp;
+		return crossProduct(a, b, new Vector3());
+	}
+	
+	/**
+	 * Static function to calculate the cross product between two Vector3s, without allocating
+	 * 
+	 * @param a - the first Vector3
+	 * @param b - the second Vector3
+	 * @param out - receives the cross product; may be a or b
+	 * @return - out
+	 */
+	public static Vector3 crossProduct(Vector3 a, Vector3 b, Vector3 out) {
+		float x = (a.y*b.z - b.y*a.z);
+		float y = (a.z*b.x - b.z*a.x);
+		float z = (a.x*b.y - b.x*a.y);
+		out.x = x;
+		out.y = y;
+		out.z = z;
+		return out;
 	}
 	
 	@Override
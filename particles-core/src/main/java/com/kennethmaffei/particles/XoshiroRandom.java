@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * xoshiro128+ generator, seeded through SplitMix64.
+ * Four ints of state and a handful of shifts and xors per number, with no synchronization.
+ * The low bits of xoshiro128+ are weak, so floats are built from the top 24 bits only.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class XoshiroRandom extends ParticleRandom {
+	private static final AtomicLong seedUniquifier = new AtomicLong(0x2545F4914F6CDD1DL);   //Keeps generators created at the same instant apart
+	
+	private int s0, s1, s2, s3;
+	
+	/**
+	 * Creates a generator with a seed that differs from every other generator's
+	 */
+	public XoshiroRandom() {
+		this(seedUniquifier.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime());
+	}
+	
+	public XoshiroRandom(long seed) {
+		setSeed(seed);
+	}
+	
+	@Override
+	public void setSeed(long seed) {
+		long a = splitMix(seed);
+		long b = splitMix(seed + 0x9E3779B97F4A7C15L);
+		s0 = (int)a;
+		s1 = (int)(a >>> 32);
+		s2 = (int)b;
+		s3 = (int)(b >>> 32);
+		if((s0 | s1 | s2 | s3) == 0)
+			s0 = 1;                  //All zero state never leaves zero
+	}
+	
+	@Override
+	public int nextInt() {
+		int result = s0 + s3;
+		int t = s1 << 9;
+		s2 ^= s0;
+		s3 ^= s1;
+		s1 ^= s2;
+		s0 ^= s3;
+		s2 ^= t;
+		s3 = Integer.rotateLeft(s3, 11);
+		return result;
+	}
+	
+	@Override
+	public float nextFloat() {
+		return (nextInt() >>> 8)*0x1.0p-24f;
+	}
+	
+	@Override
+	public void fill(float[] out, int offset, int count) {
+		//Keep the state in locals for the whole run
+		int s0 = this.s0, s1 = this.s1, s2 = this.s2, s3 = this.s3;
+		for(int i=offset; i<offset + count; i++) {
+			out[i] = ((s0 + s3) >>> 8)*0x1.0p-24f;
+			int t = s1 << 9;
+			s2 ^= s0;
+			s3 ^= s1;
+			s1 ^= s2;
+			s0 ^= s3;
+			s2 ^= t;
+			s3 = Integer.rotateLeft(s3, 11);
+		}
+		this.s0 = s0;
+		this.s1 = s1;
+		this.s2 = s2;
+		this.s3 = s3;
+	}
+	
+	private static long splitMix(long z) {
+		z+= 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a steady state frame allocates nothing: emission, update, bursts, die-off,
+ * billboard setup, depth sorting and batch building. Garbage collection pauses are the main source of dropped
+ * frames on Android, so any allocation that creeps into the frame loop should fail here.
+ * 
+ * The parallel update is not covered; fork-join tasks are allocated per frame.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class AllocationTest {
+	private static final int WARM_UP_FRAMES = 2000;
+	private static final int FRAMES = 1000;
+	private static final long SEED = 20140601L;
+	
+	private com.sun.management.ThreadMXBean threads;
+	private long threadId;
+	
+	private final float[] viewMatrix = {
+		1.0f, 0.0f, 0.0f, 0.0f,
+		0.0f, 1.0f, 0.0f, 0.0f,
+		0.0f, 0.0f, 1.0f, 0.0f,
+		0.0f, 0.0f, -1500.0f, 1.0f
+	};
+	
+	/**
+	 * Builds vertices but draws nothing
+	 */
+	private static class NullBatch extends ParticleBatch {
+		NullBatch() {
+			super(256);
+		}
+		
+		@Override
+		public void flush() {
+			numQuads = 0;
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		threadId = Thread.currentThread().getId();
+	}
+	
+	@Test
+	public void steamFrameDoesNotAllocate() {
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setStartColor(0.75f, 0.75f, 0.9f, 0.25f);
+		system.setMidColor(0.75f, 0.75f, 0.9f, 0.15f);
+		system.setEndColor(0.75f, 0.75f, 0.9f, 0.0f);
+		system.setEmitterVolume(10.0f, 1.0f, 10.0f);
+		system.setParticleSize(new Vector2(100.0f, 150.0f), new Vector2(200.0f, 800.0f));
+		system.setDragCurve(new Curve(0.0f).addKey(1.0f, 2.5f));
+		system.setParticleLife(2000, 1600.0f, 1.0f, 0.5f);
+		system.setMotion(new Vector3(0.0f, 1000.0f, 0.0f), new Vector3(150.0f, 30.0f, 150.0f), new Vector3(0.0f, -800.0f, 0.0f));
+		system.setEmitterMotion(new Vector3(10.0f, 0.0f, 0.0f), new Vector3(0.0f, 1.0f, 0.0f));
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		assertFramesDoNotAllocate(system, Billboard.MODE.SPHERICAL);
+	}
+	
+	@Test
+	public void fireFrameDoesNotAllocate() {
+		Fire system = new Fire();
+		system.setEmitterVolume(240.0f, 100.0f, 240.0f);
+		system.setParticleSize(new Vector2(160.0f, 240.0f), new Vector2(120.0f, 600.0f));
+		system.setParticleLife(2000, 1800.0f, 2.0f, 0.5f);
+		system.setMotion(new Vector3(0.0f, 500.0f, 0.0f), new Vector3(120.0f, 180.0f, 120.0f), new Vector3());
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		assertFramesDoNotAllocate(system, Billboard.MODE.CYLINDRICAL);
+	}
+	
+	@Test
+	public void burstFrameDoesNotAllocate() {
+		BlackSmoke system = new BlackSmoke();
+		system.setEmitterVolume(100.0f, 50.0f, 100.0f);
+		system.setParticleSize(new Vector2(100.0f, 180.0f), new Vector2(500.0f, 300.0f));
+		system.setSizeCurves(new Curve(0.0f).addKey(1.0f, 1.0f), null);
+		system.setParticleLife(5000, 100.0f, 1.0f, 0.5f);
+		system.setMotion(new Vector3(0.0f, 250.0f, 0.0f), new Vector3(60.0f, 100.0f, 60.0f), new Vector3());
+		//Bursts during warm up and throughout the measured frames
+		for(int i=0; i<100; i++)
+			system.addBurst(i*0.5f, 1000);
+		//Bursts are what push the sorter off its coherent path onto the radix sort
+		system.setDepthSorted(true);
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		assertFramesDoNotAllocate(system, Billboard.MODE.FIXED);
+	}
+	
+	private void assertFramesDoNotAllocate(ParticleSystem system, Billboard.MODE mode) {
+		ManualClock clock = new ManualClock();
+		Billboard billboard = new Billboard();
+		NullBatch batch = new NullBatch();
+		batch.setBillboard(billboard);
+		//Growing to a new peak population is a one off, not a steady state cost.
+		//Bursts can otherwise set a new peak during the measured frames.
+		batch.ensureCapacity(system.maxParticles);
+		
+		//Let the population, batch capacity and JIT settle
+		runFrames(system, clock, billboard, batch, mode, WARM_UP_FRAMES);
+		
+		long overhead = allocatedBytes();
+		overhead = allocatedBytes() - overhead;
+		
+		long before = allocatedBytes();
+		runFrames(system, clock, billboard, batch, mode, FRAMES);
+		long allocated = allocatedBytes() - before - overhead;
+		
+		assertEquals("Bytes allocated over " + FRAMES + " frames", 0, allocated);
+	}
+	
+	/**
+	 * The same frame GLRenderer runs, minus the GL calls
+	 */
+	private void runFrames(ParticleSystem system, ManualClock clock, Billboard billboard, ParticleBatch batch, Billboard.MODE mode, int frames) {
+		for(int frame=0; frame<frames; frame++) {
+			clock.addTime(1.0f/60.0f);
+			int steps = clock.advance();
+			for(int i=0; i<steps; i++)
+				system.update(clock.getStepTime());
+			
+			billboard.setView(viewMatrix);
+			int[] order = null;
+			if(system.sorter != null) {
+				Vector3 back = billboard.getBack();
+				order = system.sorter.sort(system.particles, system.numParticles, clock.getAlpha(), back.x, back.y, back.z);
+			}
+			batch.setSprite(system.sprite);
+			batch.setSizeScale(system.sizeScale);
+			batch.add(system.particles, system.numParticles, mode, clock.getAlpha(), order);
+			batch.flush();
+		}
+	}
+	
+	private long allocatedBytes() {
+		return threads.getThreadAllocatedBytes(threadId);
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that baked curl noise grids of every size hold a usable field, and that a turbulence
+ * force field built on one moves particles.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class CurlNoiseGridTest {
+	
+	@Test
+	public void everySizeHasCurl() {
+		for(int size=4; size<=32; size*= 2) {
+			CurlNoiseGrid grid = new CurlNoiseGrid(size, 3, 1);
+			float max = 0.0f;
+			for(int z=0; z<size; z++) {
+				for(int y=0; y<size; y++) {
+					for(int x=0; x<size; x++) {
+						float fx = grid.sampleX(x, y, z), fy = grid.sampleY(x, y, z), fz = grid.sampleZ(x, y, z);
+						max = Math.max(max, (float) Math.sqrt(fx*fx + fy*fy + fz*fz));
+					}
+				}
+			}
+			assertEquals("Longest vector of a " + size + " grid", 1.0f, max, 1.0e-4f);
+		}
+	}
+	
+	@Test
+	public void gridTiles() {
+		CurlNoiseGrid grid = new CurlNoiseGrid(8, 2, 7);
+		assertEquals(grid.sampleX(1.3f, 2.6f, 5.2f), grid.sampleX(1.3f + 8.0f, 2.6f - 16.0f, 5.2f + 24.0f), 1.0e-5f);
+		assertEquals(grid.sampleY(1.3f, 2.6f, 5.2f), grid.sampleY(1.3f - 8.0f, 2.6f + 8.0f, 5.2f), 1.0e-5f);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void sizeMustBePowerOfTwo() {
+		new CurlNoiseGrid(12, 1, 1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void octavesMustBePositive() {
+		new CurlNoiseGrid(16, 0, 1);
+	}
+	
+	@Test
+	public void smallGridTurbulenceMovesParticles() {
+		ParticleStore p = new ParticleStore();
+		p.allocate(64);
+		for(int i=0; i<64; i++) {
+			p.positionX[i] = i*1.7f;
+			p.positionY[i] = i*0.9f;
+			p.positionZ[i] = i*2.3f;
+			p.lifeTime[i] = p.life[i] = 10.0f;
+		}
+		
+		AffectorPipeline pipeline = new AffectorPipeline();
+		pipeline.addForceField(ForceField.turbulence(new CurlNoiseGrid(4, 1, 1), 100.0f, 1.0f));
+		pipeline.run(p, 0, 64, 0.1f, false);
+		
+		float speed = 0.0f;
+		for(int i=0; i<64; i++)
+			speed+= Math.abs(p.velocityX[i]) + Math.abs(p.velocityY[i]) + Math.abs(p.velocityZ[i]);
+		assertTrue("Turbulence should push particles", speed > 0.0f);
+	}
+}
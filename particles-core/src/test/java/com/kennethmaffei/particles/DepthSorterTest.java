@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that DepthSorter draws particles back to front on both of its paths: the insertion
+ * sort for coherent frames, and the radix sort for large or scrambled ones.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class DepthSorterTest {
+	private final Random random = new Random(20140601L);
+	
+	@Test
+	public void fewParticlesAreInsertionSorted() {
+		DepthSorter sorter = new DepthSorter();
+		ParticleStore p = store(DepthSorter.RADIX_THRESHOLD - 1, 1000.0f);
+		assertBackToFront(p, p.capacity, sorter.sort(p, p.capacity, 1.0f, 0.0f, 0.0f, 1.0f), 0.0f, 0.0f, 1.0f);
+		assertEquals(0, sorter.getNumRadixSorts());
+	}
+	
+	@Test
+	public void scrambledParticlesAreRadixSorted() {
+		DepthSorter sorter = new DepthSorter();
+		ParticleStore p = store(5000, 1000.0f);
+		//Depth is along a diagonal, and half the particles are behind the origin
+		assertBackToFront(p, p.capacity, sorter.sort(p, p.capacity, 1.0f, 0.6f, 0.0f, 0.8f), 0.6f, 0.0f, 0.8f);
+		assertEquals(1, sorter.getNumRadixSorts());
+	}
+	
+	@Test
+	public void coherentFramesStayOffTheRadixSort() {
+		DepthSorter sorter = new DepthSorter();
+		int count = 2000;
+		ParticleStore p = store(count, 1000.0f);
+		sorter.sort(p, count, 1.0f, 0.0f, 0.0f, 1.0f);
+		int radixSorts = sorter.getNumRadixSorts();
+		
+		for(int frame=0; frame<20; frame++) {
+			//Small drifts, a few deaths compacted by swap-remove, and a few births at the back
+			for(int i=0; i<count; i++)
+				p.positionZ[i]+= (random.nextFloat() - 0.5f)*0.02f;
+			for(int dead=0; dead<5; dead++) {
+				p.copy(count - 1, random.nextInt(count - 1));
+				count--;
+			}
+			for(int born=0; born<3; born++)
+				p.positionZ[count++] = (random.nextFloat() - 0.5f)*2000.0f;
+			
+			assertBackToFront(p, count, sorter.sort(p, count, 1.0f, 0.0f, 0.0f, 1.0f), 0.0f, 0.0f, 1.0f);
+		}
+		assertEquals("Coherent frames shouldn't need the radix sort", radixSorts, sorter.getNumRadixSorts());
+	}
+	
+	@Test
+	public void sortsInterpolatedPositions() {
+		DepthSorter sorter = new DepthSorter();
+		ParticleStore p = store(500, 1000.0f);
+		for(int i=0; i<p.capacity; i++)
+			p.previousZ[i] = -p.positionZ[i];
+		//Half way, every depth is 0 plus the spread in x
+		for(int i=0; i<p.capacity; i++)
+			p.positionX[i] = p.previousX[i] = random.nextFloat();
+		int[] order = sorter.sort(p, p.capacity, 0.5f, 1.0f, 0.0f, 1.0f);
+		for(int n=1; n<p.capacity; n++)
+			assertTrue(p.positionX[order[n - 1]] <= p.positionX[order[n]]);
+	}
+	
+	@Test
+	public void sortableBitsKeepFloatOrder() {
+		float[] ordered = {Float.NEGATIVE_INFINITY, -1.0e30f, -2.5f, -1.0f, -Float.MIN_VALUE, 0.0f,
+				Float.MIN_VALUE, 1.0f, 2.5f, 1.0e30f, Float.POSITIVE_INFINITY};
+		for(int i=1; i<ordered.length; i++) {
+			int a = DepthSorter.sortableBits(ordered[i - 1]), b = DepthSorter.sortableBits(ordered[i]);
+			assertTrue(ordered[i - 1] + " before " + ordered[i], Integer.compareUnsigned(a, b) < 0);
+		}
+	}
+	
+	/**
+	 * A store with positions spread over a cube centered on the origin
+	 */
+	private ParticleStore store(int count, float extent) {
+		ParticleStore p = new ParticleStore();
+		p.allocate(count + 16);
+		for(int i=0; i<count; i++) {
+			p.positionX[i] = p.previousX[i] = (random.nextFloat() - 0.5f)*extent;
+			p.positionY[i] = p.previousY[i] = (random.nextFloat() - 0.5f)*extent;
+			p.positionZ[i] = p.previousZ[i] = (random.nextFloat() - 0.5f)*extent;
+		}
+		p.capacity = count;
+		return p;
+	}
+	
+	/**
+	 * Checks that the order holds every live slot once, furthest from the viewer first
+	 */
+	private static void assertBackToFront(ParticleStore p, int count, int[] order, float dx, float dy, float dz) {
+		boolean[] seen = new boolean[count];
+		float last = Float.NEGATIVE_INFINITY;
+		for(int n=0; n<count; n++) {
+			int i = order[n];
+			assertTrue("Slot " + i + " is out of range or repeated", i >= 0 && i < count && !seen[i]);
+			seen[i] = true;
+			float depth = p.positionX[i]*dx + p.positionY[i]*dy + p.positionZ[i]*dz;
+			assertTrue("Particle " + n + " is in front of the next one", depth >= last);
+			last = depth;
+		}
+	}
+}
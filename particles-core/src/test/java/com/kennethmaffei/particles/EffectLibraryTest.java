@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Round trips effect definitions through the binary .pfx format, and checks that
+ * files which aren't libraries of this version are rejected.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class EffectLibraryTest {
+	
+	@Test
+	public void everyFieldRoundTrips() throws IOException {
+		EffectDefinition written = new EffectDefinition();
+		written.name = "sparks";
+		written.type = EffectDefinition.TYPE.FIRE;
+		written.texture = "particles";
+		written.sprite = "spark.png";
+		written.flipbookColumns = 4;
+		written.flipbookRows = 2;
+		written.flipbookCycles = 1.5f;
+		written.blendMode = ParticleSystem.BLEND_MODE.DARKEN;
+		written.billboardMode = Billboard.MODE.CYLINDRICAL;
+		written.depthSorted = true;
+		written.maxParticles = 300;
+		written.particlesPerSec = 45.0f;
+		written.lifeTime = 1.25f;
+		written.lifeTimeVariation = 0.5f;
+		written.duration = 3.0f;
+		written.origin = new float[] {1.0f, 2.0f, 3.0f};
+		written.emitterVolume = new float[] {10.0f, 20.0f, 30.0f};
+		written.emitterVelocity = new float[] {4.0f, 5.0f, 6.0f};
+		written.emitterAcceleration = new float[] {7.0f, 8.0f, 9.0f};
+		written.radial = true;
+		written.freezeWhenCulled = true;
+		written.bursts = new float[] {0.0f, 100.0f, 1.5f, 50.0f};
+		written.velocity = new float[] {0.0f, 400.0f, 0.0f};
+		written.velocityVariation = new float[] {50.0f, 60.0f, 70.0f};
+		written.acceleration = new float[] {0.0f, -100.0f, 0.0f};
+		written.gravity = new float[] {0.0f, -9.8f, 0.0f};
+		written.speedCurve = new float[] {0.0f, 1.0f, 1.0f, 0.25f};
+		written.wind = new float[] {30.0f, 0.0f, -10.0f};
+		written.windStrength = 0.5f;
+		written.turbulence = 200.0f;
+		written.turbulenceScale = 25.0f;
+		written.startSize = new float[] {10.0f, 20.0f};
+		written.endSize = new float[] {30.0f, 40.0f};
+		written.sizeCurveX = new float[] {0.0f, 0.0f, 1.0f, 1.0f};
+		written.colors = new float[] {0.0f, 1.0f, 0.5f, 0.0f, 1.0f, 1.0f, 0.2f, 0.0f, 0.0f, 0.0f};
+		
+		EffectDefinition plain = new EffectDefinition();
+		plain.name = "plain";
+		
+		EffectLibrary library = EffectLibrary.read(ByteBuffer.wrap(write(written, plain)));
+		assertEquals(2, library.getNumEffects());
+		assertEquals("sparks", library.getName(0));
+		assertSame(library.get(0), library.get("sparks"));
+		
+		EffectDefinition read = library.get("sparks");
+		assertEquals(written.type, read.type);
+		assertEquals(written.texture, read.texture);
+		assertEquals(written.sprite, read.sprite);
+		assertEquals(written.flipbookColumns, read.flipbookColumns);
+		assertEquals(written.flipbookRows, read.flipbookRows);
+		assertEquals(written.flipbookCycles, read.flipbookCycles, 0.0f);
+		assertEquals(written.blendMode, read.blendMode);
+		assertEquals(written.billboardMode, read.billboardMode);
+		assertEquals(written.depthSorted, read.depthSorted);
+		assertEquals(written.maxParticles, read.maxParticles);
+		assertEquals(written.particlesPerSec, read.particlesPerSec, 0.0f);
+		assertEquals(written.lifeTime, read.lifeTime, 0.0f);
+		assertEquals(written.lifeTimeVariation, read.lifeTimeVariation, 0.0f);
+		assertEquals(written.duration, read.duration, 0.0f);
+		assertArrayEquals(written.origin, read.origin, 0.0f);
+		assertArrayEquals(written.emitterVolume, read.emitterVolume, 0.0f);
+		assertArrayEquals(written.emitterVelocity, read.emitterVelocity, 0.0f);
+		assertArrayEquals(written.emitterAcceleration, read.emitterAcceleration, 0.0f);
+		assertEquals(written.radial, read.radial);
+		assertEquals(written.freezeWhenCulled, read.freezeWhenCulled);
+		assertArrayEquals(written.bursts, read.bursts, 0.0f);
+		assertArrayEquals(written.velocity, read.velocity, 0.0f);
+		assertArrayEquals(written.velocityVariation, read.velocityVariation, 0.0f);
+		assertArrayEquals(written.acceleration, read.acceleration, 0.0f);
+		assertArrayEquals(written.gravity, read.gravity, 0.0f);
+		assertArrayEquals(written.speedCurve, read.speedCurve, 0.0f);
+		assertNull(read.dragCurve);
+		assertArrayEquals(written.wind, read.wind, 0.0f);
+		assertEquals(written.windStrength, read.windStrength, 0.0f);
+		assertEquals(written.turbulence, read.turbulence, 0.0f);
+		assertEquals(written.turbulenceScale, read.turbulenceScale, 0.0f);
+		assertArrayEquals(written.startSize, read.startSize, 0.0f);
+		assertArrayEquals(written.endSize, read.endSize, 0.0f);
+		assertArrayEquals(written.sizeCurveX, read.sizeCurveX, 0.0f);
+		assertNull(read.sizeCurveY);
+		assertArrayEquals(written.colors, read.colors, 0.0f);
+		
+		//Defaults survive too, including a blend mode left to the system type
+		EffectDefinition defaults = library.get("plain");
+		assertNull(defaults.blendMode);
+		assertNull(defaults.colors);
+		assertEquals(plain.duration, defaults.duration, 0.0f);
+		assertEquals(plain.turbulenceScale, defaults.turbulenceScale, 0.0f);
+		assertNull(library.get("missing"));
+	}
+	
+	@Test
+	public void badMagicIsRejected() {
+		byte[] data = write(new EffectDefinition());
+		data[0] = 'X';
+		assertRejected(data, "Not an effect library");
+	}
+	
+	@Test
+	public void badVersionIsRejected() {
+		byte[] data = write(new EffectDefinition());
+		ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 99);
+		assertRejected(data, "Unsupported effect library version 99");
+	}
+	
+	@Test
+	public void truncatedLibraryIsRejected() {
+		byte[] data = write(new EffectDefinition());
+		assertRejected(Arrays.copyOf(data, 8), "Not an effect library");
+	}
+	
+	private static byte[] write(EffectDefinition... effects) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			EffectLibrary.write(out, Arrays.asList(effects));
+		}
+		catch(IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+	
+	private static void assertRejected(byte[] data, String message) {
+		try {
+			EffectLibrary.read(ByteBuffer.wrap(data));
+			fail("Expected the library to be rejected: " + message);
+		}
+		catch(IOException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+}
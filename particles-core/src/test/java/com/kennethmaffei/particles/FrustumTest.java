@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the frustum planes against spheres and boxes inside, outside and straddling the view
+ * volume, for a camera looking down -z and for one turned to look down +x, and that a system's
+ * bounds hold the previous positions the renderer interpolates from.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class FrustumTest {
+	private static final float[] IDENTITY = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+	
+	@Test
+	public void identityView() {
+		Frustum frustum = new Frustum();
+		frustum.set(perspective(90.0f, 1.0f, 1.0f, 100.0f), IDENTITY);
+		
+		//Inside
+		assertTrue(frustum.intersectsSphere(0.0f, 0.0f, -10.0f, 1.0f));
+		assertTrue(frustum.intersectsBox(2.0f, -2.0f, -50.0f, 1.0f, 1.0f, 1.0f));
+		
+		//Outside: behind the camera, past the far plane, off to the side
+		assertFalse(frustum.intersectsSphere(0.0f, 0.0f, 10.0f, 1.0f));
+		assertFalse(frustum.intersectsSphere(0.0f, 0.0f, -110.0f, 1.0f));
+		assertFalse(frustum.intersectsBox(30.0f, 0.0f, -10.0f, 1.0f, 1.0f, 1.0f));
+		assertFalse(frustum.intersectsBox(0.0f, -30.0f, -10.0f, 1.0f, 1.0f, 1.0f));
+		
+		//Straddling: centers outside, reaching in across the side, near and far planes
+		assertTrue(frustum.intersectsSphere(12.0f, 0.0f, -10.0f, 2.0f));
+		assertTrue(frustum.intersectsBox(11.0f, 0.0f, -10.0f, 2.0f, 1.0f, 1.0f));
+		assertTrue(frustum.intersectsBox(0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 2.0f));
+		assertTrue(frustum.intersectsBox(0.0f, 0.0f, -101.0f, 1.0f, 1.0f, 2.0f));
+	}
+	
+	@Test
+	public void rotatedView() {
+		//Turned 90 degrees about y, the camera looks down +x
+		Frustum frustum = new Frustum();
+		frustum.set(perspective(90.0f, 1.0f, 1.0f, 100.0f), rotationY(90.0f));
+		
+		assertTrue(frustum.intersectsSphere(10.0f, 0.0f, 0.0f, 1.0f));
+		assertTrue(frustum.intersectsBox(50.0f, 2.0f, -2.0f, 1.0f, 1.0f, 1.0f));
+		
+		assertFalse(frustum.intersectsSphere(0.0f, 0.0f, -10.0f, 1.0f));
+		assertFalse(frustum.intersectsSphere(-10.0f, 0.0f, 0.0f, 1.0f));
+		assertFalse(frustum.intersectsBox(10.0f, 0.0f, 30.0f, 1.0f, 1.0f, 1.0f));
+		
+		assertTrue(frustum.intersectsSphere(10.0f, 0.0f, 12.0f, 2.0f));
+		assertTrue(frustum.intersectsBox(10.0f, 0.0f, -11.0f, 1.0f, 1.0f, 2.0f));
+	}
+	
+	@Test
+	public void systemTransform() {
+		Frustum frustum = new Frustum();
+		frustum.set(perspective(90.0f, 1.0f, 1.0f, 100.0f), IDENTITY);
+		
+		Bounds bounds = new Bounds();
+		bounds.include(0.0f, 0.0f, -10.0f, 1.0f);
+		Vector3 rotate = new Vector3();
+		Vector3 scale = new Vector3(1.0f, 1.0f, 1.0f);
+		assertTrue(frustum.intersects(bounds, rotate, scale));
+		
+		//Turned half way round, the box ends up behind the camera
+		rotate.y = 180.0f;
+		assertFalse(frustum.intersects(bounds, rotate, scale));
+		
+		//Scaled past the far plane
+		rotate.y = 0.0f;
+		scale.z = 20.0f;
+		assertFalse(frustum.intersects(bounds, rotate, scale));
+		
+		assertFalse(frustum.intersects(new Bounds(), rotate, scale));
+	}
+	
+	@Test
+	public void boundsHoldPreviousPositions() {
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setEmitterVolume(0.0f, 0.0f, 0.0f);
+		system.setParticleSize(new Vector2(1.0f, 1.0f), new Vector2(1.0f, 1.0f));
+		system.setParticleLife(10, 0.0f, 10.0f, 0.0f);
+		system.setMotion(new Vector3(1000.0f, 0.0f, 0.0f), new Vector3(), new Vector3());
+		system.startSystem(new Vector3(), -1.0f);
+		system.addBurst(0.0f, 1);
+		
+		system.update(0.1f);
+		system.update(0.1f);
+		assertTrue(system.getNumParticles() == 1);
+		
+		//Between the two steps the particle is drawn anywhere from x = 0 to x = 100
+		Bounds bounds = system.getBounds();
+		ParticleStore p = system.particles;
+		assertTrue(bounds.minX <= p.previousX[0] - 1.0f);
+		assertTrue(bounds.maxX >= p.positionX[0] + 1.0f);
+		assertTrue(p.positionX[0] - p.previousX[0] > 50.0f);
+	}
+	
+	/**
+	 * Column major perspective projection, as gluPerspective builds it
+	 */
+	private static float[] perspective(float fovy, float aspect, float near, float far) {
+		float f = (float)(1.0/Math.tan(Math.toRadians(fovy)/2.0));
+		float[] m = new float[16];
+		m[0] = f/aspect;
+		m[5] = f;
+		m[10] = (far + near)/(near - far);
+		m[11] = -1.0f;
+		m[14] = 2.0f*far*near/(near - far);
+		return m;
+	}
+	
+	/**
+	 * Column major rotation about y, as glRotatef builds it
+	 */
+	private static float[] rotationY(float degrees) {
+		float c = (float) Math.cos(Math.toRadians(degrees)), s = (float) Math.sin(Math.toRadians(degrees));
+		return new float[] {c, 0, -s, 0, 0, 1, 0, 0, s, 0, c, 0, 0, 0, 0, 1};
+	}
+}
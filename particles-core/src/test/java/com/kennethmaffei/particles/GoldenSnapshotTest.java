@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Runs seeded systems through a fixed sequence of frame times and compares the final particle
+ * state against checked in goldens.
+ * 
+ * A change that is meant to alter the simulation needs new goldens:
+ * gradle :particles-core:test -PupdateGoldens
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class GoldenSnapshotTest {
+	private static final float TOLERANCE = 1.0e-4f;
+	private static final long SEED = 20140601L;
+	private static final int FRAMES = 300;
+	
+	//Uneven frame times, so catch-up steps and emission hold-over are exercised too
+	private static final float[] FRAME_TIMES = {0.016f, 0.017f, 0.033f, 0.008f, 0.016f, 0.05f, 0.012f};
+	
+	private static final File GOLDEN_DIR = new File(System.getProperty("golden.dir", "src/test/resources/golden"));
+	private static final boolean UPDATE = Boolean.getBoolean("golden.update");
+	
+	@Test
+	public void steam() throws IOException {
+		check("steam", run(steam(200)));
+	}
+	
+	@Test
+	public void radial() throws IOException {
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setStartColor(1.0f, 0.8f, 0.2f, 1.0f);
+		system.setEndColor(0.2f, 0.0f, 0.0f, 0.0f);
+		system.setEmitterVolume(20.0f, 20.0f, 20.0f);
+		system.setParticleSize(new Vector2(20.0f, 20.0f), new Vector2(60.0f, 60.0f));
+		system.setParticleLife(300, 150.0f, 1.5f, 0.5f);
+		system.setMotion(new Vector3(400.0f, 0.0f, 0.0f), new Vector3(100.0f, 0.0f, 0.0f), new Vector3(0.0f, -200.0f, 0.0f));
+		system.setRadial();
+		system.setSpeedCurve(new Curve(1.0f).addKey(1.0f, 0.25f));
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(), -1.0f);
+		check("radial", run(system));
+	}
+	
+	@Test
+	public void fire() throws IOException {
+		Fire system = new Fire();
+		system.setEmitterVolume(240.0f, 100.0f, 240.0f);
+		system.setParticleSize(new Vector2(160.0f, 240.0f), new Vector2(120.0f, 600.0f));
+		system.setParticleLife(80, 60.0f, 2.0f, 0.5f);
+		system.setMotion(new Vector3(0.0f, 500.0f, 0.0f), new Vector3(120.0f, 180.0f, 120.0f), new Vector3());
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		check("fire", run(system));
+	}
+	
+	@Test
+	public void fireGradient() throws IOException {
+		Fire system = new Fire();
+		system.setColorGradient(new ColorGradient(0.2f, 0.4f, 1.0f, 1.0f)
+				.addStop(0.3f, 1.0f, 1.0f, 1.0f, 1.0f)
+				.addStop(0.6f, 1.0f, 0.6f, 0.0f, 0.6f)
+				.addStop(1.0f, 0.4f, 0.0f, 0.0f, 0.0f));
+		system.setEmitterVolume(100.0f, 50.0f, 100.0f);
+		system.setParticleSize(new Vector2(80.0f, 120.0f), new Vector2(40.0f, 300.0f));
+		system.setParticleLife(120, 80.0f, 1.5f, 0.5f);
+		system.setMotion(new Vector3(0.0f, 400.0f, 0.0f), new Vector3(80.0f, 120.0f, 80.0f), new Vector3());
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(), -1.0f);
+		check("fire_gradient", run(system));
+	}
+	
+	@Test
+	public void blackSmoke() throws IOException {
+		BlackSmoke system = new BlackSmoke();
+		system.setEmitterVolume(100.0f, 50.0f, 100.0f);
+		system.setParticleSize(new Vector2(100.0f, 180.0f), new Vector2(500.0f, 300.0f));
+		Curve billow = new Curve(0.0f).addKey(0.3f, 0.7f).addKey(1.0f, 1.0f);
+		system.setSizeCurves(billow, billow);
+		system.setDragCurve(new Curve(0.2f).addKey(1.0f, 1.2f));
+		system.setParticleLife(50, 20.0f, 4.0f, 2.0f);
+		system.setMotion(new Vector3(0.0f, 250.0f, 0.0f), new Vector3(60.0f, 100.0f, 60.0f), new Vector3());
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		check("black_smoke", run(system));
+	}
+	
+	@Test
+	public void bursts() throws IOException {
+		//An explosion: no continuous emission, just timed bursts
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setStartColor(1.0f, 0.9f, 0.5f, 1.0f);
+		system.setEndColor(0.5f, 0.1f, 0.0f, 0.0f);
+		system.setEmitterVolume(10.0f, 10.0f, 10.0f);
+		system.setParticleSize(new Vector2(30.0f, 30.0f), new Vector2(10.0f, 10.0f));
+		system.setParticleLife(1000, 0.0f, 0.8f, 0.4f);
+		system.setMotion(new Vector3(600.0f, 0.0f, 0.0f), new Vector3(200.0f, 0.0f, 0.0f), new Vector3(0.0f, -400.0f, 0.0f));
+		system.setRadial();
+		system.setDragCurve(new Curve(1.5f));
+		//The run lasts about 6.5 seconds. The later bursts are still alive when it ends,
+		//and the first one has died off.
+		system.addBurst(5.8f, 300);
+		system.addBurst(0.0f, 500);
+		system.addBurst(6.2f, 400);
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(), -1.0f);
+		StateSnapshot snapshot = run(system);
+		assertTrue("Burst particles should be alive at the end of the run", system.numParticles > 400 && system.numParticles <= 700);
+		check("bursts", snapshot);
+	}
+	
+	@Test
+	public void transientSystemDies() throws IOException {
+		GenericParticleSystem system = steam(200);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), 1.0f);
+		run(system);
+		assertTrue("A one second system should be empty after its particles die", system.numParticles == 0);
+	}
+	
+	@Test
+	public void sameSeedRepeats() {
+		StateSnapshot first = run(steam(200));
+		StateSnapshot second = run(steam(200));
+		assertNull(second.compare(first, 0.0f));
+	}
+	
+	@Test
+	public void parallelMatchesSequential() {
+		int maxParticles = 2*ParallelUpdate.MIN_PARTICLES;
+		StateSnapshot sequential = run(steam(maxParticles));
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			GenericParticleSystem system = steam(maxParticles);
+			system.setParallelUpdate(pool);
+			assertNull(run(system).compare(sequential, 0.0f));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * The demo steam system, emitting fast enough to stay near maxParticles
+	 */
+	private static GenericParticleSystem steam(int maxParticles) {
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setStartColor(0.75f, 0.75f, 0.9f, 0.25f);
+		system.setMidColor(0.75f, 0.75f, 0.9f, 0.15f);
+		system.setEndColor(0.75f, 0.75f, 0.9f, 0.0f);
+		system.setEmitterVolume(10.0f, 1.0f, 10.0f);
+		system.setParticleSize(new Vector2(100.0f, 150.0f), new Vector2(200.0f, 800.0f));
+		system.setSizeCurves(new Curve(0.0f).addKey(0.25f, 0.6f).addKey(1.0f, 1.0f),
+				new Curve(0.0f).addKey(0.5f, 0.4f).addKey(1.0f, 1.0f));
+		system.setDragCurve(new Curve(0.0f).addKey(0.4f, 0.5f).addKey(1.0f, 2.5f));
+		system.setParticleLife(maxParticles, maxParticles/1.25f, 1.0f, 0.5f);
+		system.setMotion(new Vector3(0.0f, 1000.0f, 0.0f), new Vector3(150.0f, 30.0f, 150.0f), new Vector3(0.0f, -800.0f, 0.0f));
+		system.setSeed(SEED);
+		system.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		return system;
+	}
+	
+	/**
+	 * Drives a system with a manual clock, the same way GLRenderer does with the real one
+	 */
+	private static StateSnapshot run(ParticleSystem system) {
+		ManualClock clock = new ManualClock();
+		clock.advance();
+		for(int frame=0; frame<FRAMES; frame++) {
+			clock.addTime(FRAME_TIMES[frame % FRAME_TIMES.length]);
+			int steps = clock.advance();
+			for(int i=0; i<steps; i++)
+				system.update(clock.getStepTime());
+		}
+		return StateSnapshot.capture(system);
+	}
+	
+	private static void check(String name, StateSnapshot actual) throws IOException {
+		File file = new File(GOLDEN_DIR, name + ".snap");
+		if(UPDATE) {
+			GOLDEN_DIR.mkdirs();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				actual.write(out);
+			}
+			finally {
+				out.close();
+			}
+			return;
+		}
+		
+		assertTrue("Missing golden " + file + ", generate it with -PupdateGoldens", file.isFile());
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		StateSnapshot expected;
+		try {
+			expected = StateSnapshot.read(in);
+		}
+		finally {
+			in.close();
+		}
+		
+		String difference = actual.compare(expected, TOLERANCE);
+		assertNull(name + ": " + difference, difference);
+	}
+}
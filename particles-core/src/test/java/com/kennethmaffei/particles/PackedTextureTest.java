@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Writes packed textures and reads them back, and checks that truncated or corrupt files are
+ * turned away with an IOException rather than failing somewhere inside the parser.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class PackedTextureTest {
+	private static final int[] PIXELS = {
+		0xFF000000, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF,
+		0x80804020, 0xFFFFFFFF, 0x00000000, 0xFF102030,
+	};
+	
+	@Test
+	public void rgba8888RoundTrip() throws IOException {
+		PackedTexture texture = PackedTexture.read(ByteBuffer.wrap(write(PackedTexture.FORMAT.RGBA8888, 3, null)));
+		assertEquals(PackedTexture.FORMAT.RGBA8888, texture.format);
+		assertEquals(4, texture.width);
+		assertEquals(2, texture.height);
+		assertEquals(3, texture.numLevels);
+		assertNull(texture.atlas);
+		
+		ByteBuffer level = texture.getLevel(0);
+		assertEquals(4*2*4, level.remaining());
+		for(int pixel : PIXELS) {
+			assertEquals((pixel >> 16) & 0xFF, level.get() & 0xFF);
+			assertEquals((pixel >> 8) & 0xFF, level.get() & 0xFF);
+			assertEquals(pixel & 0xFF, level.get() & 0xFF);
+			assertEquals(pixel >>> 24, level.get() & 0xFF);
+		}
+		
+		//The smaller levels are box filtered
+		int[] half = PackedTexture.downsample(PIXELS, 4, 2);
+		level = texture.getLevel(1);
+		assertEquals(2*1*4, level.remaining());
+		assertEquals((half[1] >> 16) & 0xFF, level.get(4) & 0xFF);
+		assertEquals(half[1] >>> 24, level.get(7) & 0xFF);
+		assertEquals(1*1*4, texture.getLevel(2).remaining());
+	}
+	
+	@Test
+	public void rgb565RoundTrip() throws IOException {
+		PackedTexture texture = PackedTexture.read(ByteBuffer.wrap(write(PackedTexture.FORMAT.RGB565, 1, null)));
+		assertEquals(PackedTexture.FORMAT.RGB565, texture.format);
+		assertEquals(1, texture.numLevels);
+		
+		ByteBuffer level = texture.getLevel(0);
+		assertEquals(4*2*2, level.remaining());
+		assertEquals(0x0000, level.getShort(0) & 0xFFFF);
+		assertEquals(0xF800, level.getShort(2) & 0xFFFF);
+		assertEquals(0x07E0, level.getShort(4) & 0xFFFF);
+		assertEquals(0x001F, level.getShort(6) & 0xFFFF);
+		assertEquals(0xFFFF, level.getShort(10) & 0xFFFF);
+	}
+	
+	@Test
+	public void atlasRoundTrip() throws IOException {
+		TextureAtlas atlas = atlas();
+		PackedTexture texture = PackedTexture.read(ByteBuffer.wrap(write(PackedTexture.FORMAT.RGBA8888, 1, atlas)));
+		assertEquals(3, texture.atlas.getRegions().size());
+		for(TextureAtlas.Region region : atlas.getRegions()) {
+			TextureAtlas.Region read = texture.atlas.getRegion(region.name);
+			assertEquals(region.x, read.x);
+			assertEquals(region.y, read.y);
+			assertEquals(region.width, read.width);
+			assertEquals(region.height, read.height);
+			assertEquals(region.x/4.0f, read.u0, 0.0f);
+			assertEquals((region.y + region.height)/2.0f, read.v1, 0.0f);
+		}
+		assertEquals(4*2*4, texture.getLevel(0).remaining());
+	}
+	
+	@Test
+	public void truncatedFilesAreRejected() {
+		TextureAtlas atlas = atlas();
+		byte[] bytes = write(PackedTexture.FORMAT.RGBA8888, 3, atlas);
+		
+		for(int length=0; length<bytes.length; length++)
+			assertRejected("Cut to " + length + " bytes", Arrays.copyOf(bytes, length));
+	}
+	
+	@Test
+	public void corruptHeadersAreRejected() {
+		TextureAtlas atlas = atlas();
+		byte[] plain = write(PackedTexture.FORMAT.RGBA8888, 3, null);
+		byte[] withAtlas = write(PackedTexture.FORMAT.RGBA8888, 1, atlas);
+		
+		assertRejected("Magic", patchInt(plain, 0, 0x12345678));
+		assertRejected("Version", patchInt(plain, 4, 99));
+		assertRejected("Format", patchInt(plain, 8, 7));
+		assertRejected("Width", patchInt(plain, 12, 0));
+		assertRejected("Height", patchInt(plain, 16, -2));
+		assertRejected("No levels", patchInt(plain, 20, 0));
+		assertRejected("More levels than the size has", patchInt(plain, 20, 4));
+		assertRejected("Negative region count", patchInt(plain, 24, -1));
+		assertRejected("Huge region count", patchInt(plain, 24, Integer.MAX_VALUE));
+		
+		//The region's name length, then its rectangle
+		assertRejected("Negative name length", patchShort(withAtlas, 28, -1));
+		assertRejected("Long name", patchShort(withAtlas, 28, 1000));
+		int rect = 28 + 2 + "ember".length();
+		assertRejected("Region off the page", patchInt(withAtlas, rect, 3));
+		assertRejected("Negative region width", patchInt(withAtlas, rect + 8, -2));
+		
+		//The level table follows the 28 byte header
+		assertRejected("Level too small", patchInt(plain, 28 + 4, 4));
+		assertRejected("Level too large", patchInt(plain, 28 + 8 + 4, 100));
+		assertRejected("Negative level size", patchInt(plain, 28 + 4, -32));
+		assertRejected("Negative level offset", patchInt(plain, 28, -8));
+		assertRejected("Level past the end", patchInt(plain, 28 + 16, Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * Three sprites laid out on the 4x2 page
+	 */
+	private static TextureAtlas atlas() {
+		TextureAtlas atlas = new TextureAtlas();
+		atlas.addPlaced("ember", 0, 0, 2, 2);
+		atlas.addPlaced("smoke", 2, 0, 1, 2);
+		atlas.addPlaced("spark", 3, 1, 1, 1);
+		atlas.setPage(4, 2);
+		return atlas;
+	}
+	
+	private static byte[] write(PackedTexture.FORMAT format, int numLevels, TextureAtlas atlas) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			PackedTexture.write(out, PIXELS, 4, 2, format, numLevels, atlas);
+		}
+		catch(IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+	
+	private static byte[] patchInt(byte[] bytes, int offset, int value) {
+		byte[] copy = bytes.clone();
+		ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+		return copy;
+	}
+	
+	private static byte[] patchShort(byte[] bytes, int offset, int value) {
+		byte[] copy = bytes.clone();
+		ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putShort(offset, (short)value);
+		return copy;
+	}
+	
+	private static void assertRejected(String message, byte[] bytes) {
+		try {
+			PackedTexture.read(ByteBuffer.wrap(bytes));
+			fail(message + ": read");
+		}
+		catch(IOException e) {
+			//Expected
+		}
+	}
+}
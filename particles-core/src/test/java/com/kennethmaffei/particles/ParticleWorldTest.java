@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * Checks that a world keeps its systems in update order, updates them in that order, drops
+ * the transient ones once they finish, and hands its quality down to every system.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class ParticleWorldTest {
+	
+	/**
+	 * Notes when it is updated
+	 */
+	private static class RecordingSystem extends GenericParticleSystem {
+		private final ArrayList<RecordingSystem> log;
+		
+		RecordingSystem(ArrayList<RecordingSystem> log) {
+			this.log = log;
+		}
+		
+		@Override
+		void update(float elapsedTime) {
+			log.add(this);
+			super.update(elapsedTime);
+		}
+	}
+	
+	@Test
+	public void systemsKeepTheirUpdateOrder() {
+		ArrayList<RecordingSystem> log = new ArrayList<RecordingSystem>();
+		ParticleWorld world = new ParticleWorld();
+		RecordingSystem late = new RecordingSystem(log);
+		RecordingSystem first = new RecordingSystem(log);
+		RecordingSystem middle = new RecordingSystem(log);
+		RecordingSystem second = new RecordingSystem(log);
+		world.add(late, 2);
+		world.add(first);
+		world.add(middle, 1);
+		world.add(second, 0);
+		
+		//Lower orders first, the same order in the order added
+		RecordingSystem[] expected = {first, second, middle, late};
+		assertEquals(expected.length, world.getNumSystems());
+		for(int i=0; i<expected.length; i++)
+			assertSame(expected[i], world.getSystem(i));
+		
+		world.update(0.016f);
+		assertEquals(expected.length, log.size());
+		for(int i=0; i<expected.length; i++)
+			assertSame(expected[i], log.get(i));
+		
+		assertTrue(world.remove(second));
+		assertFalse(world.remove(second));
+		assertSame(middle, world.getSystem(1));
+		
+		//Growing past the initial arrays keeps the order
+		for(int i=0; i<20; i++)
+			world.add(new RecordingSystem(log), 1);
+		assertSame(first, world.getSystem(0));
+		assertSame(middle, world.getSystem(1));
+		assertSame(late, world.getSystem(world.getNumSystems() - 1));
+	}
+	
+	@Test
+	public void finishedSystemsAreRemoved() {
+		ParticleWorld world = new ParticleWorld();
+		GenericParticleSystem fixed = system(-1.0f);
+		GenericParticleSystem shortLived = system(0.5f);
+		world.add(fixed);
+		world.add(shortLived);
+		
+		world.update(0.1f);
+		assertEquals(2, world.getNumSystems());
+		assertEquals(fixed.getNumParticles() + shortLived.getNumParticles(), world.getNumParticles());
+		assertEquals(200, world.getCapacity());
+		
+		//Emission stops at 0.5 s and the last particle dies a second later
+		for(int frame=0; frame<30 && world.getNumSystems() == 2; frame++)
+			world.update(0.1f);
+		assertTrue(shortLived.isFinished());
+		assertEquals(1, world.getNumSystems());
+		assertSame(fixed, world.getSystem(0));
+		assertEquals(fixed.getNumParticles(), world.getNumParticles());
+		assertEquals(100, world.getCapacity());
+		
+		//A fixed system never finishes
+		for(int frame=0; frame<100; frame++)
+			world.update(0.1f);
+		assertFalse(fixed.isFinished());
+		assertEquals(1, world.getNumSystems());
+	}
+	
+	@Test
+	public void worldQualityIsMultipliedIn() {
+		ParticleWorld world = new ParticleWorld();
+		GenericParticleSystem full = system(-1.0f);
+		GenericParticleSystem reduced = system(-1.0f);
+		reduced.setQuality(0.5f, 1.5f);
+		world.add(full);
+		world.add(reduced);
+		
+		//Takes effect at the next update
+		world.setQuality(0.5f, 2.0f);
+		assertEquals(1.0f, full.emissionScale, 0.0f);
+		world.update(0.016f);
+		assertEquals(0.5f, full.emissionScale, 0.0f);
+		assertEquals(2.0f, full.sizeScale, 0.0f);
+		assertEquals(0.25f, reduced.emissionScale, 0.0f);
+		assertEquals(3.0f, reduced.sizeScale, 0.0f);
+		
+		//A system's own quality still counts while it is in the world
+		reduced.setQuality(1.0f, 1.0f);
+		assertEquals(0.5f, reduced.emissionScale, 0.0f);
+		assertEquals(2.0f, reduced.sizeScale, 0.0f);
+		
+		//Out of the world, only its own quality is left
+		world.remove(full);
+		assertEquals(1.0f, full.emissionScale, 0.0f);
+		assertEquals(1.0f, full.sizeScale, 0.0f);
+		world.clear();
+		assertEquals(1.0f, reduced.emissionScale, 0.0f);
+		assertEquals(1.0f, reduced.sizeScale, 0.0f);
+	}
+	
+	@Test
+	public void emissionScaleCapsTheParticles() {
+		ParticleWorld world = new ParticleWorld();
+		GenericParticleSystem system = system(-1.0f);
+		world.add(system);
+		world.setQuality(0.25f, 1.0f);
+		for(int frame=0; frame<60; frame++)
+			world.update(0.05f);
+		assertTrue(system.getNumParticles() > 0);
+		assertTrue(system.getNumParticles() <= 25);
+	}
+	
+	private static GenericParticleSystem system(float duration) {
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setEmitterVolume(10.0f, 10.0f, 10.0f);
+		system.setParticleSize(new Vector2(1.0f, 1.0f), new Vector2(1.0f, 1.0f));
+		system.setParticleLife(100, 200.0f, 1.0f, 0.0f);
+		system.setMotion(new Vector3(0.0f, 10.0f, 0.0f), new Vector3(1.0f, 1.0f, 1.0f), new Vector3());
+		system.setSeed(20140601L);
+		system.startSystem(new Vector3(), duration);
+		return system;
+	}
+}
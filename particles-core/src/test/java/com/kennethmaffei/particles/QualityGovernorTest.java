@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Feeds the governor frame times over and under its budget and checks the hysteresis: quality
+ * drops by the down factor only after the down window, holds through the settle window, and
+ * climbs back by the up step only after the longer up window.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class QualityGovernorTest {
+	private static final float SLOW = 0.02f;        //Well over the default 8 ms budget
+	private static final float FAST = 0.001f;       //Well under 70% of it
+	private static final int DOWN = 10, UP = 120, SETTLE = 60;
+	
+	@Test
+	public void dropsOnlyAfterTheDownWindow() {
+		QualityGovernor governor = new QualityGovernor();
+		for(int frame=1; frame<DOWN; frame++)
+			assertFalse("Frame " + frame, governor.addFrame(SLOW));
+		assertEquals(1.0f, governor.getQuality(), 0.0f);
+		
+		assertTrue(governor.addFrame(SLOW));
+		assertEquals(0.8f, governor.getQuality(), 1.0e-6f);
+		assertEquals(0.8f, governor.getEmissionScale(), 1.0e-6f);
+	}
+	
+	@Test
+	public void holdsWhileSettling() {
+		QualityGovernor governor = new QualityGovernor();
+		slow(governor, DOWN);
+		
+		for(int frame=0; frame<SETTLE; frame++)
+			assertFalse("Settle frame " + frame, governor.addFrame(SLOW));
+		assertEquals(0.8f, governor.getQuality(), 1.0e-6f);
+		
+		//Then a full down window again
+		for(int frame=1; frame<DOWN; frame++)
+			assertFalse(governor.addFrame(SLOW));
+		assertTrue(governor.addFrame(SLOW));
+		assertEquals(0.64f, governor.getQuality(), 1.0e-6f);
+	}
+	
+	@Test
+	public void climbsBackAfterTheUpWindow() {
+		QualityGovernor governor = new QualityGovernor();
+		slow(governor, DOWN);
+		
+		//The running average falls under the threshold during the settle window
+		for(int frame=0; frame<SETTLE; frame++)
+			assertFalse(governor.addFrame(FAST));
+		for(int frame=1; frame<UP; frame++)
+			assertFalse("Fast frame " + frame, governor.addFrame(FAST));
+		assertEquals(0.8f, governor.getQuality(), 1.0e-6f);
+		
+		assertTrue(governor.addFrame(FAST));
+		assertEquals(0.85f, governor.getQuality(), 1.0e-6f);
+		
+		//Never above full quality
+		for(int frame=0; frame<10*(SETTLE + UP); frame++)
+			governor.addFrame(FAST);
+		assertEquals(1.0f, governor.getQuality(), 0.0f);
+		assertEquals(1.0f, governor.getSizeScale(), 0.0f);
+	}
+	
+	@Test
+	public void framesInsideTheBandChangeNothing() {
+		QualityGovernor governor = new QualityGovernor();
+		slow(governor, DOWN);
+		for(int frame=0; frame<10*(SETTLE + UP); frame++)
+			assertFalse(governor.addFrame(0.007f));
+		assertEquals(0.8f, governor.getQuality(), 1.0e-6f);
+	}
+	
+	@Test
+	public void slowFramesAreJudgedOnTheAverage() {
+		QualityGovernor governor = new QualityGovernor();
+		governor.addFrame(0.004f);
+		assertEquals(0.004f, governor.getAverageTime(), 1.0e-7f);
+		governor.addFrame(0.014f);
+		assertEquals(0.005f, governor.getAverageTime(), 1.0e-7f);
+		
+		//A single spike only lifts the average over budget for a couple of frames
+		governor.reset();
+		governor.addFrame(0.004f);
+		assertFalse(governor.addFrame(0.05f));
+		for(int frame=0; frame<UP; frame++)
+			assertFalse(governor.addFrame(0.004f));
+		assertEquals(1.0f, governor.getQuality(), 0.0f);
+		
+		//From 4 ms, the average of 20 ms frames crosses 8 ms on the third one, so the
+		//down window starts there and the drop comes on the twelfth
+		governor.reset();
+		governor.addFrame(0.004f);
+		for(int frame=1; frame<12; frame++)
+			assertFalse("Slow frame " + frame, governor.addFrame(SLOW));
+		assertTrue(governor.addFrame(SLOW));
+	}
+	
+	@Test
+	public void stopsAtTheMinimumQuality() {
+		QualityGovernor governor = new QualityGovernor();
+		governor.setMinQuality(0.5f, 0.6f);
+		
+		//0.8, 0.64, 0.512, then held at 0.5 rather than 0.4096
+		float[] expected = {0.8f, 0.64f, 0.512f, 0.5f};
+		for(float quality : expected) {
+			slow(governor, DOWN);
+			assertEquals(quality, governor.getQuality(), 1.0e-6f);
+			for(int frame=0; frame<SETTLE; frame++)
+				governor.addFrame(SLOW);
+		}
+		assertEquals(0.6f, governor.getSizeScale(), 1.0e-6f);
+		
+		for(int frame=0; frame<10*DOWN; frame++)
+			assertFalse(governor.addFrame(SLOW));
+		assertEquals(0.5f, governor.getQuality(), 0.0f);
+	}
+	
+	@Test
+	public void sectionsAddUpToTheFrame() {
+		final long[] now = new long[1];
+		QualityGovernor governor = new QualityGovernor() {
+			@Override
+			protected long nanoTime() {
+				return now[0];
+			}
+		};
+		
+		governor.beginSection();
+		now[0]+= 3000000L;
+		governor.endSection();
+		now[0]+= 50000000L;                    //Time between sections doesn't count
+		governor.beginSection();
+		now[0]+= 2000000L;
+		governor.endSection();
+		governor.endFrame();
+		assertEquals(0.005f, governor.getAverageTime(), 1.0e-6f);
+		
+		//The next frame starts from zero
+		governor.endFrame();
+		assertEquals(0.0045f, governor.getAverageTime(), 1.0e-6f);
+	}
+	
+	@Test
+	public void applyPassesTheScalesToTheWorld() {
+		QualityGovernor governor = new QualityGovernor();
+		slow(governor, DOWN);
+		
+		GenericParticleSystem system = new GenericParticleSystem();
+		system.setParticleLife(100, 100.0f, 1.0f, 0.0f);
+		system.startSystem(new Vector3(), -1.0f);
+		ParticleWorld world = new ParticleWorld();
+		world.add(system);
+		
+		governor.apply(world);
+		world.update(0.016f);
+		assertEquals(governor.getEmissionScale(), system.emissionScale, 0.0f);
+		assertEquals(governor.getSizeScale(), system.sizeScale, 0.0f);
+		
+		//Size scale runs linearly from minSizeScale at minQuality to 1 at full quality
+		assertEquals(0.6f + 0.4f*(0.8f - 0.25f)/0.75f, system.sizeScale, 1.0e-6f);
+	}
+	
+	/**
+	 * Feeds slow frames, expecting a drop on the last one
+	 */
+	private static void slow(QualityGovernor governor, int frames) {
+		for(int frame=1; frame<frames; frame++)
+			assertFalse(governor.addFrame(SLOW));
+		assertTrue(governor.addFrame(SLOW));
+	}
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the fixed timestep rules: frames are clamped, at most maxSteps steps are taken per
+ * frame, time over that budget is dropped, and alpha is the leftover fraction of a step.
+ * 
+ * Step rates of powers of two keep the float arithmetic exact where a test needs exact steps.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class SimulationClockTest {
+	
+	@Test
+	public void oneStepPerFrameAt60Hz() {
+		ManualClock clock = new ManualClock();
+		assertEquals("The first frame has no elapsed time", 0, clock.advance());
+		
+		int total = 0;
+		for(int frame=0; frame<600; frame++) {
+			clock.addTime(1.0f/60.0f);
+			int steps = clock.advance();
+			assertTrue("Frame " + frame + " took " + steps + " steps", steps <= 2);
+			assertAlpha(clock);
+			total+= steps;
+		}
+		//Nanosecond rounding can leave the last step or so in the accumulator
+		assertTrue("600 frames took " + total + " steps", total >= 598 && total <= 600);
+	}
+	
+	@Test
+	public void twoStepsPerFrameAt30Hz() {
+		ManualClock clock = new ManualClock();
+		clock.advance();
+		int total = 0;
+		for(int frame=0; frame<300; frame++) {
+			clock.addTime(1.0f/30.0f);
+			total+= clock.advance();
+			assertAlpha(clock);
+		}
+		assertTrue("300 frames took " + total + " steps", total >= 598 && total <= 600);
+	}
+	
+	@Test
+	public void spikeIsClampedToMaxFrameTime() {
+		SimulationClock clock = new SimulationClock();
+		clock.setStepRate(8.0f);
+		//A 10 second stall counts as 0.25 seconds, two steps, with nothing left over
+		assertEquals(2, clock.advance(10.0f));
+		assertEquals(0.0f, clock.getAlpha(), 0.0f);
+		assertEquals(0, clock.advance(0.0f));
+	}
+	
+	@Test
+	public void stepsAreCappedAndLeftoverTimeIsDropped() {
+		SimulationClock clock = new SimulationClock();
+		clock.setStepRate(64.0f);
+		//0.25 seconds is 16 steps, over the budget of 4
+		assertEquals(4, clock.advance(0.25f));
+		assertEquals("Time over budget is dropped", 0.0f, clock.getAlpha(), 0.0f);
+		assertEquals("Dropped time isn't simulated later", 0, clock.advance(0.0f));
+		
+		clock.setMaxSteps(16);
+		assertEquals(16, clock.advance(0.25f));
+	}
+	
+	@Test
+	public void alphaIsTheLeftoverFraction() {
+		SimulationClock clock = new SimulationClock();
+		clock.setStepRate(8.0f);
+		assertEquals(0, clock.advance(0.0625f));
+		assertEquals(0.5f, clock.getAlpha(), 0.0f);
+		assertEquals(1, clock.advance(0.09375f));
+		assertEquals(0.25f, clock.getAlpha(), 0.0f);
+		assertEquals("Negative frame times count as 0", 0, clock.advance(-1.0f));
+		assertEquals(0.25f, clock.getAlpha(), 0.0f);
+		
+		clock.reset();
+		assertEquals(0.0f, clock.getAlpha(), 0.0f);
+		assertEquals(0, clock.advance(0.0f));
+	}
+	
+	@Test
+	public void alphaStaysBelowOneForUnevenFrames() {
+		ManualClock clock = new ManualClock();
+		clock.advance();
+		float[] frameTimes = {0.016f, 0.017f, 0.033f, 0.008f, 0.016f, 0.05f, 0.012f, 0.3f, 0.001f};
+		for(int frame=0; frame<1000; frame++) {
+			clock.addTime(frameTimes[frame % frameTimes.length]);
+			assertTrue(clock.advance() <= 4);
+			assertAlpha(clock);
+		}
+	}
+	
+	private static void assertAlpha(SimulationClock clock) {
+		float alpha = clock.getAlpha();
+		assertTrue("alpha " + alpha + " is outside [0, 1)", alpha >= 0.0f && alpha < 1.0f);
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * Checks the atlas layout: regions never overlap, keep the padding between each other and to
+ * the page edges, sit on a power of two page, and pack() gives up when they can't fit.
+ * Also checks the flipbook frames a Sprite cuts out of a region.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class TextureAtlasTest {
+	
+	@Test
+	public void packedRegionsKeepTheirDistance() {
+		for(int padding=0; padding<=4; padding+= 2) {
+			TextureAtlas atlas = new TextureAtlas();
+			atlas.setPadding(padding);
+			XoshiroRandom random = new XoshiroRandom(padding);
+			for(int i=0; i<60; i++)
+				atlas.add("sprite" + i, 8 + (int)(random.nextFloat()*120), 8 + (int)(random.nextFloat()*120));
+			assertTrue(atlas.pack());
+			checkLayout(atlas);
+		}
+	}
+	
+	@Test
+	public void pageIsTheSmallestThatFits() {
+		TextureAtlas atlas = new TextureAtlas();
+		atlas.setPadding(0);
+		for(int i=0; i<4; i++)
+			atlas.add("quarter" + i, 32, 32);
+		assertTrue(atlas.pack());
+		assertEquals(64, atlas.getWidth());
+		assertEquals(64, atlas.getHeight());
+		checkLayout(atlas);
+	}
+	
+	@Test
+	public void overflowFails() {
+		//Too wide for any page
+		TextureAtlas atlas = new TextureAtlas();
+		atlas.setMaxSize(256);
+		atlas.add("wide", 255, 16);
+		assertFalse(atlas.pack());
+		
+		//Each fits, but not all of them together
+		atlas = new TextureAtlas();
+		atlas.setMaxSize(256);
+		for(int i=0; i<5; i++)
+			atlas.add("big" + i, 120, 120);
+		assertFalse(atlas.pack());
+		
+		//One fewer does
+		atlas = new TextureAtlas();
+		atlas.setMaxSize(256);
+		for(int i=0; i<4; i++)
+			atlas.add("big" + i, 120, 120);
+		assertTrue(atlas.pack());
+		checkLayout(atlas);
+	}
+	
+	@Test
+	public void addingANameTwiceKeepsTheFirst() {
+		TextureAtlas atlas = new TextureAtlas();
+		TextureAtlas.Region first = atlas.add("smoke", 32, 32);
+		assertSame(first, atlas.add("smoke", 64, 64));
+		assertEquals(1, atlas.getRegions().size());
+		assertSame(first, atlas.getRegion("smoke"));
+	}
+	
+	@Test
+	public void flipbookFrames() {
+		TextureAtlas atlas = new TextureAtlas();
+		atlas.setPadding(0);
+		atlas.add("flipbook", 64, 32);
+		assertTrue(atlas.pack());
+		
+		Sprite sprite = new Sprite(atlas.getRegion("flipbook"), 4, 2, 1.0f);
+		assertEquals(8, sprite.numFrames);
+		assertTrue(sprite.isAnimated());
+		
+		//Second row, third column
+		int o = sprite.frameOffset(6.5f/8.0f);
+		assertEquals(0.5f, sprite.frames[o], 1.0e-6f);
+		assertEquals(0.25f, sprite.frames[o + 1], 1.0e-6f);
+		assertEquals(0.75f, sprite.frames[o + 2], 1.0e-6f);
+		assertEquals(0.5f, sprite.frames[o + 3], 1.0e-6f);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void flipbookNeedsColumns() {
+		new Sprite(0.0f, 0.0f, 1.0f, 1.0f, 0, 2, 1.0f);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void flipbookNeedsRows() {
+		TextureAtlas atlas = new TextureAtlas();
+		new Sprite(atlas.add("flipbook", 64, 32), 4, -1, 1.0f);
+	}
+	
+	private static void checkLayout(TextureAtlas atlas) {
+		int width = atlas.getWidth(), height = atlas.getHeight(), padding = atlas.getPadding();
+		assertTrue("Page width " + width, width > 0 && (width & (width - 1)) == 0);
+		assertTrue("Page height " + height, height > 0 && (height & (height - 1)) == 0);
+		
+		ArrayList<TextureAtlas.Region> regions = atlas.getRegions();
+		for(int i=0; i<regions.size(); i++) {
+			TextureAtlas.Region a = regions.get(i);
+			assertTrue(a.name + " off the page", a.x >= padding && a.y >= padding
+					&& a.x + a.width + padding <= width && a.y + a.height + padding <= height);
+			assertEquals(a.x/(float)width, a.u0, 0.0f);
+			assertEquals((a.y + a.height)/(float)height, a.v1, 0.0f);
+			
+			for(int j=i + 1; j<regions.size(); j++) {
+				TextureAtlas.Region b = regions.get(j);
+				//Apart by at least the padding along one axis
+				boolean apart = a.x + a.width + padding <= b.x || b.x + b.width + padding <= a.x
+						|| a.y + a.height + padding <= b.y || b.y + b.height + padding <= a.y;
+				assertTrue(a.name + " and " + b.name + " are closer than " + padding, apart);
+			}
+		}
+	}
+}
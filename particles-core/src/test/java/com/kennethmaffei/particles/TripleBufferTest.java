@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Checks the handoff between one producer and one consumer: the consumer only ever sees
+ * published buffers, newest last, and never one the producer is writing.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class TripleBufferTest {
+	private static final int PUBLICATIONS = 200000;
+	
+	private static class Frame {
+		volatile long sequence;              //Number of the publication this buffer holds
+		volatile boolean writing;            //Set while the producer is filling it in
+	}
+	
+	@Test
+	public void acquireBeforePublishReturnsTheFrontBuffer() {
+		Frame first = new Frame(), second = new Frame(), third = new Frame();
+		TripleBuffer<Frame> buffer = new TripleBuffer<Frame>(first, second, third);
+		assertSame(first, buffer.acquire());
+		assertSame(first, buffer.acquire());
+		assertSame(third, buffer.getBack());
+	}
+	
+	@Test
+	public void acquireReturnsTheNewestPublication() {
+		TripleBuffer<Frame> buffer = new TripleBuffer<Frame>(new Frame(), new Frame(), new Frame());
+		for(int i=1; i<=3; i++) {
+			buffer.getBack().sequence = i;
+			buffer.publish();
+		}
+		assertEquals(3, buffer.acquire().sequence);
+		//Nothing new, so the consumer keeps what it has
+		assertEquals(3, buffer.acquire().sequence);
+	}
+	
+	@Test
+	public void handoffBetweenThreads() throws InterruptedException {
+		final TripleBuffer<Frame> buffer = new TripleBuffer<Frame>(new Frame(), new Frame(), new Frame());
+		final AtomicBoolean done = new AtomicBoolean();
+		
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for(long i=1; i<=PUBLICATIONS; i++) {
+					Frame frame = buffer.getBack();
+					frame.writing = true;
+					frame.sequence = i;
+					frame.writing = false;
+					buffer.publish();
+				}
+				done.set(true);
+			}
+		}, "producer");
+		producer.start();
+		
+		String failure = null;
+		long last = 0;
+		int changes = 0;
+		while(failure == null && !done.get()) {
+			Frame frame = buffer.acquire();
+			long sequence = frame.sequence;
+			//Give the producer a chance to touch the buffer while it is held
+			Thread.yield();
+			if(frame.writing)
+				failure = "Acquired a buffer the producer is writing, at " + sequence;
+			else if(sequence < last)
+				failure = "Went back from " + last + " to " + sequence;
+			else if(frame.sequence != sequence)
+				failure = "Buffer " + sequence + " changed while it was held";
+			if(sequence != last)
+				changes++;
+			last = sequence;
+		}
+		producer.join();
+		
+		assertNull(failure, failure);
+		assertEquals(PUBLICATIONS, buffer.acquire().sequence);
+		assertTrue("The consumer should have seen the frames move on", changes > 0);
+		assertFalse(buffer.acquire().writing);
+	}
+}
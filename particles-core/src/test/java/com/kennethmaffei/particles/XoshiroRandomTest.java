@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that XoshiroRandom repeats for a seed, keeps its floats in range and fills arrays with
+ * the same numbers nextFloat() would return.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class XoshiroRandomTest {
+	private static final int COUNT = 100000;
+	
+	@Test
+	public void sameSeedSameSequence() {
+		XoshiroRandom a = new XoshiroRandom(20140601L);
+		XoshiroRandom b = new XoshiroRandom(20140601L);
+		for(int i=0; i<COUNT; i++)
+			assertEquals("Number " + i, a.nextInt(), b.nextInt());
+		
+		//Reseeding restarts the sequence
+		a.setSeed(7L);
+		b.setSeed(7L);
+		for(int i=0; i<COUNT; i++)
+			assertEquals("Float " + i, a.nextFloat(), b.nextFloat(), 0.0f);
+	}
+	
+	@Test
+	public void differentSeedsDiffer() {
+		XoshiroRandom a = new XoshiroRandom(1L);
+		XoshiroRandom b = new XoshiroRandom(2L);
+		boolean differ = false;
+		for(int i=0; i<16 && !differ; i++)
+			differ = a.nextInt() != b.nextInt();
+		assertTrue(differ);
+	}
+	
+	@Test
+	public void zeroSeedDoesNotStick() {
+		XoshiroRandom random = new XoshiroRandom(0L);
+		boolean nonZero = false;
+		for(int i=0; i<16 && !nonZero; i++)
+			nonZero = random.nextInt() != 0;
+		assertTrue(nonZero);
+	}
+	
+	@Test
+	public void nextFloatIsFromZeroToOne() {
+		XoshiroRandom random = new XoshiroRandom(20140601L);
+		float min = 1.0f, max = 0.0f;
+		for(int i=0; i<COUNT; i++) {
+			float f = random.nextFloat();
+			assertTrue("Float " + f, f >= 0.0f && f < 1.0f);
+			min = Math.min(min, f);
+			max = Math.max(max, f);
+		}
+		//Spread over the whole range
+		assertTrue(min < 0.001f);
+		assertTrue(max > 0.999f);
+	}
+	
+	@Test
+	public void nextSignedIsFromMinusOneToOne() {
+		XoshiroRandom random = new XoshiroRandom(20140601L);
+		boolean negative = false, positive = false;
+		for(int i=0; i<COUNT; i++) {
+			float f = random.nextSigned();
+			assertTrue("Signed " + f, f >= -1.0f && f < 1.0f);
+			negative|= f < 0.0f;
+			positive|= f > 0.0f;
+		}
+		assertTrue(negative && positive);
+	}
+	
+	@Test
+	public void fillMatchesNextFloat() {
+		XoshiroRandom filled = new XoshiroRandom(20140601L);
+		XoshiroRandom stepped = new XoshiroRandom(20140601L);
+		float[] out = new float[1000];
+		
+		//Runs at an offset, back to back, leave the rest of the array alone and stay in step
+		int[] offsets = {0, 7, 500, 999};
+		int[] counts = {7, 493, 499, 1};
+		for(int run=0; run<offsets.length; run++) {
+			filled.fill(out, offsets[run], counts[run]);
+			for(int i=offsets[run]; i<offsets[run] + counts[run]; i++)
+				assertEquals("Run " + run + " index " + i, stepped.nextFloat(), out[i], 0.0f);
+		}
+		
+		float[] partial = new float[10];
+		filled.fill(partial, 3, 4);
+		for(int i=0; i<10; i++) {
+			if(i >= 3 && i < 7)
+				assertEquals(stepped.nextFloat(), partial[i], 0.0f);
+			else
+				assertEquals(0.0f, partial[i], 0.0f);
+		}
+		
+		//Still in step afterwards
+		assertEquals(stepped.nextInt(), filled.nextInt());
+	}
+}
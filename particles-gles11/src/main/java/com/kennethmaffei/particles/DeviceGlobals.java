@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import android.content.Context;
+
+/**
+ * Android specific parameters shared by the renderer and the activity
+ * @author Kenneth Maffei
+ *
+ */
+public class DeviceGlobals {
+
+	public static float deviceWidth = 0.0f;
+	public static float deviceHeight = 0.0f;
+	
+	public static Context context;
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import android.opengl.GLES11;
+
+/**
+ * GLES11 implementation of the particle batch.
+ * The interleaved vertices are copied into a direct buffer and drawn with one glDrawElements.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class GLParticleBatch extends ParticleBatch {
+	//No initializers here. The super constructor sizes the buffers through onCapacityChanged().
+	private FloatBuffer vertexBuffer;        //Interleaved vertex data handed to GL
+	private ShortBuffer indexBuffer;         //Two triangles per quad, built once per capacity
+	
+	public GLParticleBatch(int capacity) {
+		super(capacity);
+	}
+	
+	@Override
+	protected void onCapacityChanged() {
+		ByteBuffer vertexByteBuffer = ByteBuffer.allocateDirect(capacity*FLOATS_PER_QUAD*4);
+		vertexByteBuffer.order(ByteOrder.nativeOrder());
+		vertexBuffer = vertexByteBuffer.asFloatBuffer();
+		
+		short[] indices = new short[capacity*6];
+		buildIndices(indices, capacity);
+		ByteBuffer indexByteBuffer = ByteBuffer.allocateDirect(indices.length*2);
+		indexByteBuffer.order(ByteOrder.nativeOrder());
+		indexBuffer = indexByteBuffer.asShortBuffer();
+		indexBuffer.put(indices);
+		indexBuffer.position(0);
+	}
+	
+	@Override
+	public void flush() {
+		if(numQuads == 0)
+			return;
+		
+		vertexBuffer.position(0);
+		vertexBuffer.put(vertices, 0, numQuads*FLOATS_PER_QUAD);
+		
+		vertexBuffer.position(0);
+		GLES11.glVertexPointer(3, GLES11.GL_FLOAT, STRIDE, vertexBuffer);
+		vertexBuffer.position(3);
+		GLES11.glTexCoordPointer(2, GLES11.GL_FLOAT, STRIDE, vertexBuffer);
+		vertexBuffer.position(5);
+		GLES11.glColorPointer(4, GLES11.GL_FLOAT, STRIDE, vertexBuffer);
+		
+		GLES11.glEnableClientState(GLES11.GL_COLOR_ARRAY);
+		GLES11.glDrawElements(GLES11.GL_TRIANGLES, numQuads*6, GLES11.GL_UNSIGNED_SHORT, indexBuffer);
+		GLES11.glDisableClientState(GLES11.GL_COLOR_ARRAY);
+		
+		numQuads = 0;
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import android.opengl.GLES11;
+
+/**
+ * Renders particle systems with GLES11.
+ * The systems themselves are pure simulation; this class sets up the GL state for a
+ * system's blend mode and draws its particles through a batch.
+ * 
+ * Between begin() and end(), consecutive systems with the same texture and blend mode that
+ * aren't rotated or scaled go into the same batch, so effects sharing an atlas texture are
+ * drawn with one draw call.
+ * 
+ * Systems with a DepthSorter are drawn back to front; the sort only reorders the batch, so they
+ * batch like any other system.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class ParticleRenderer {
+	
+	private GLParticleBatch batch;
+	private Billboard billboard;
+	private Billboard localBillboard = new Billboard();  //The camera bases in a transformed system's space
+	private Vector3 viewDirection = new Vector3();  //Towards the viewer in a transformed system's space
+	
+	//State of the pass, so add() knows when the batch has to be flushed
+	private int boundTexture;
+	private ParticleSystem.BLEND_MODE boundBlendMode;
+	
+	public ParticleRenderer(Billboard billboard) {
+		batch = new GLParticleBatch(256);
+		batch.setBillboard(billboard);
+		this.billboard = billboard;
+	}
+	
+	/**
+	 * Renders a particle system to the screen at its current simulation state
+	 * 
+	 * @param system - the system to draw
+	 */
+	public void draw(ParticleSystem system) {
+		draw(system, 1.0f);
+	}
+	
+	/**
+	 * Renders a particle system to the screen, interpolated between its last two simulation steps.
+	 * Systems that cull() found off-screen are skipped.
+	 * 
+	 * @param system - the system to draw
+	 * @param alpha - 0 for the previous step through 1 for the current step
+	 */
+	public void draw(ParticleSystem system, float alpha) {
+		begin();
+		add(system, alpha);
+		end();
+	}
+	
+	/**
+	 * Renders a snapshot published by the simulation thread
+	 * 
+	 * @param snapshot - the system snapshot to draw
+	 * @param alpha - 0 for the previous step through 1 for the snapshot step
+	 */
+	public void draw(SystemSnapshot snapshot, float alpha) {
+		begin();
+		add(snapshot, alpha);
+		end();
+	}
+	
+	/**
+	 * Renders every system in a world in one pass, in the world's update order.
+	 * Systems that cull() found off-screen are skipped.
+	 * 
+	 * @param world - the systems to draw
+	 * @param alpha - 0 for the previous step through 1 for the current step
+	 */
+	public void draw(ParticleWorld world, float alpha) {
+		ParticleSystem[] systems = world.getSystems();
+		begin();
+		for(int i=0; i<world.getNumSystems(); i++)
+			add(systems[i], alpha);
+		end();
+	}
+	
+	/**
+	 * Renders a simulation frame published by the simulation thread in one pass.
+	 * Systems outside the view volume are skipped.
+	 * 
+	 * @param snapshot - the frame to draw
+	 * @param frustum - the camera's view volume
+	 * @param alpha - 0 for the previous step through 1 for the snapshot step
+	 */
+	public void draw(RenderSnapshot snapshot, Frustum frustum, float alpha) {
+		begin();
+		for(int i=0; i<snapshot.numSystems; i++) {
+			SystemSnapshot system = snapshot.systems[i];
+			if(frustum.intersects(system.bounds, system.rotate, system.scale))
+				add(system, alpha);
+		}
+		end();
+	}
+	
+	/**
+	 * Starts a pass of several systems. Finish it with end().
+	 */
+	public void begin() {
+		GLES11.glDepthMask(false);
+		GLES11.glEnable(GLES11.GL_BLEND);
+		GLES11.glTexEnvi(GLES11.GL_TEXTURE_ENV, GLES11.GL_TEXTURE_ENV_MODE, GLES11.GL_MODULATE);
+		boundTexture = -1;
+		boundBlendMode = null;
+	}
+	
+	/**
+	 * Adds a system to the pass, interpolated between its last two simulation steps.
+	 * Systems that cull() found off-screen are skipped.
+	 * 
+	 * @param system - the system to draw
+	 * @param alpha - 0 for the previous step through 1 for the current step
+	 */
+	public void add(ParticleSystem system, float alpha) {
+		if(!system.draw || system.numParticles == 0)
+			return;
+		
+		add(system.particles, system.numParticles, system.billboardMode, system.blendMode, system.texture,
+				system.sprite, system.sizeScale, system.sorter, system.rotate, system.scale, alpha);
+	}
+	
+	/**
+	 * Adds a snapshot published by the simulation thread to the pass
+	 * 
+	 * @param snapshot - the system snapshot to draw
+	 * @param alpha - 0 for the previous step through 1 for the snapshot step
+	 */
+	public void add(SystemSnapshot snapshot, float alpha) {
+		if(snapshot.numParticles == 0)
+			return;
+		
+		add(snapshot.particles, snapshot.numParticles, snapshot.billboardMode, snapshot.blendMode, snapshot.texture,
+				snapshot.sprite, snapshot.sizeScale, snapshot.sorter, snapshot.rotate, snapshot.scale, alpha);
+	}
+	
+	/**
+	 * Draws whatever is still batched and finishes the pass
+	 */
+	public void end() {
+		batch.flush();
+		GLES11.glDepthMask(true);
+	}
+	
+	private void add(ParticleStore particles, int numParticles, Billboard.MODE billboardMode, ParticleSystem.BLEND_MODE blendMode,
+			int texture, Sprite sprite, float sizeScale, DepthSorter sorter, Vector3 rotate, Vector3 scale, float alpha) {
+		if(texture != boundTexture || blendMode != boundBlendMode) {
+			batch.flush();
+			switch(blendMode) {
+				case DARKEN:
+					GLES11.glBlendFunc(GLES11.GL_ZERO, GLES11.GL_ONE_MINUS_SRC_COLOR);
+					break;
+				default:
+					GLES11.glBlendFunc(GLES11.GL_SRC_ALPHA, GLES11.GL_ONE);
+			}
+			GLES11.glBindTexture(GLES11.GL_TEXTURE_2D, texture);
+			boundTexture = texture;
+			boundBlendMode = blendMode;
+		}
+		
+		boolean transformed = rotate.x != 0.0f || rotate.y != 0.0f || rotate.z != 0.0f ||
+				scale.x != 1.0f || scale.y != 1.0f || scale.z != 1.0f;
+		
+		int[] order = null;
+		if(sorter != null) {
+			if(transformed)
+				DepthSorter.viewDirection(billboard.getBack(), rotate, scale, viewDirection);
+			else
+				viewDirection.copy(billboard.getBack());
+			order = sorter.sort(particles, numParticles, alpha, viewDirection.x, viewDirection.y, viewDirection.z);
+		}
+		
+		batch.setSprite(sprite);
+		batch.setSizeScale(sizeScale);
+		if(!transformed) {
+			//Stays in the batch with the systems before it
+			batch.add(particles, numParticles, billboardMode, alpha, order);
+			return;
+		}
+		
+		//The quads are expanded in the system's space, so they need the camera bases in that space too
+		batch.flush();
+		localBillboard.setLocal(billboard, rotate);
+		batch.setBillboard(localBillboard);
+		GLES11.glPushMatrix();
+		//No need for translation, it's done per particle when they are created
+		//We don't translate an already-emitted particle's origin as the the emitter moves
+		GLES11.glRotatef(rotate.z, 0, 0, 1);
+		GLES11.glRotatef(rotate.y, 0, 1, 0);
+		GLES11.glRotatef(rotate.x, 1, 0, 0);
+		GLES11.glScalef(scale.x, scale.y, scale.z);
+		
+		batch.add(particles, numParticles, billboardMode, alpha, order);
+		batch.flush();
+		batch.setBillboard(billboard);
+		
+		GLES11.glPopMatrix();
+	}
+}
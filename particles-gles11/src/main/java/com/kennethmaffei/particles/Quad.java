@@ -16,18 +16,13 @@
 
 package com.kennethmaffei.particles;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
 import javax.microedition.khronos.opengles.GL10;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.opengl.GLES11;
-import android.opengl.GLUtils;
 
 /**
  * Representation and rendering of a quad
@@ -56,7 +51,6 @@ public class Quad {
 	public float height;                    //start height
 	  
 	public boolean isParticle;              //Are we a particle
-	public boolean isFacingParticle;        //Are we a facing particle, or just a regular quad
 	
 	//The current colors for the quad
 	public float r = 1.0f;
@@ -163,53 +157,31 @@ public class Quad {
     	scaleY = newHeight/height;
     }
     
-    boolean loadTexture(GL10 gl, String file) { 
-		try{
-			InputStream is = Globals.context.getAssets().open(file); 
-			int size = is.available(); 
-			byte[] buffer = new byte[size]; 
-			is.read(buffer, 0, size);
-			is.close(); 
-			
-			//Check if png or jpg
-			BitmapFactory.Options opt = new BitmapFactory.Options(); 
-			opt.inDither = false;
-			if(file.indexOf(".png") > 0)
-				opt.inPreferredConfig = Bitmap.Config.ARGB_8888;
-			else
-				opt.inPreferredConfig = Bitmap.Config.RGB_565;
-			
-			Bitmap bitmap = BitmapFactory.decodeByteArray(buffer, 0, size, opt);
-			
-			//Generate one texture pointer 
-			GLES11.glGenTextures(1, glTexture, 0); 
-			// ...and bind it to our array 
-			GLES11.glBindTexture(GL10.GL_TEXTURE_2D, glTexture[0]); 
-			
-			//Create nearest filtered texture 
-			GLES11.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_LINEAR); 
-			GLES11.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR); 
-			GLES11.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE); 
-			GLES11.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
-			
-			//Use Android GLUtils to specify a two-dimensional texture image from our bitmap 
-			GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, bitmap, 0); 
-		}
-		catch(IOException IOerror) {
-			return false;
-		}
-		return true;
-    } 
-    
     /**
-     * If creating the texture externally, set it here
+     * Sets the texture, e.g. one from a TextureManager
      * 
-     * @param tex
+     * @param tex - the GL texture name
      */
     public void setTexture(int tex) {
     	glTexture[0] = tex;
     }
     
+    /**
+     * Draws only part of the texture, e.g. a sprite in an atlas
+     * 
+     * @param region - the packed region to draw
+     */
+    public void setTextureRegion(TextureAtlas.Region region) {
+    	//Same vertex order as the texture array: V1 bottom left, V2 top left, V3 bottom right, V4 top right
+    	texture[0] = region.u0; texture[1] = region.v1;
+    	texture[2] = region.u0; texture[3] = region.v0;
+    	texture[4] = region.u1; texture[5] = region.v1;
+    	texture[6] = region.u1; texture[7] = region.v0;
+    	
+    	textureBuffer.put(texture); 
+    	textureBuffer.position(0); 
+    }
+    
     /** The draw method for the square with the GL context */ 
     public void draw(GL10 gl) { 
 
@@ -227,23 +199,10 @@ public class Quad {
 			GLES11.glBindTexture(GLES11.GL_TEXTURE_2D, glTexture[0]);
 		}
 		
-		//If we are a facing particle, then we have to apply the billboard routine
-		if(isFacingParticle) {
-			if (Globals.thetaTest)
-				GLES11.glRotatef((float)(Math.acos(Globals.theta)*180.0f/3.14f), Globals.upAux.x, Globals.upAux.y, Globals.upAux.z);
-			
-			if (Globals.phiTest) {
-				if(Globals.billboardDirectionTest)
-					GLES11.glRotatef((float) (Math.acos(Globals.phi)*180.0f/3.14f), 1, 0, 0);	
-				else
-					GLES11.glRotatef((float) (Math.acos(Globals.phi)*180.0f/3.14f), -1,0, 0);
-			}
-		}
-		else {
-			GLES11.glRotatef(rotateZ, 0, 0, 1);
-			GLES11.glRotatef(rotateY, 0, 1, 0);
-			GLES11.glRotatef(rotateX, 1, 0, 0);
-		}
+		//Particles are billboarded by ParticleBatch, a Quad is always a regular quad
+		GLES11.glRotatef(rotateZ, 0, 0, 1);
+		GLES11.glRotatef(rotateY, 0, 1, 0);
+		GLES11.glRotatef(rotateX, 1, 0, 0);
 		
 		GLES11.glScalef(scaleX, scaleY, scaleZ);
 		
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.opengl.GLES11;
+import android.opengl.GLUtils;
+
+/**
+ * Loads textures from assets and shares them.
+ * Each asset is loaded and uploaded once, however many systems use it. Users acquire a texture
+ * by asset name and release it when done; the GL texture is deleted with the last release.
+ * 
+ * When the texture compiler has made a .ptex for an asset, that is used instead of the image:
+ * it is memory mapped from the APK and its mip levels are handed to GL as they are, with no
+ * decoding or copying. The .ptex files must be stored uncompressed for this (noCompress).
+ * Otherwise the image is decoded with BitmapFactory.
+ * 
+ * The mapped or decoded pixels are kept, so after the GL context is lost (onSurfaceCreated is
+ * called again) restore() can re-upload everything without reloading. Textures are restored
+ * under their original names, so the handles held by systems and quads stay valid.
+ * 
+ * Several assets can also be composited into one atlas texture, so systems with different
+ * sprites can share a texture and be drawn together.
+ * 
+ * Only use it on the GL thread.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class TextureManager {
+	
+	private static class Texture {
+		int id;                                  //GL texture name
+		int references;                          //Number of acquire() calls not yet released
+		PackedTexture packed;                    //Mapped compiled texture, kept for restore()
+		Bitmap pixels;                           //Decoded image, kept for restore(), when there is no compiled one
+		TextureAtlas atlas;                      //Sprite layout, for atlas textures only
+	}
+	
+	private final AssetManager assets;
+	private final HashMap<String, Texture> textures = new HashMap<String, Texture>();
+	private final int[] ids = new int[1];
+	
+	public TextureManager(AssetManager assets) {
+		this.assets = assets;
+	}
+	
+	/**
+	 * Gets a texture, loading it the first time it is asked for
+	 * 
+	 * @param file - the asset file name
+	 * @return - the GL texture name, or 0 if the asset could not be loaded
+	 */
+	public int acquire(String file) {
+		Texture texture = textures.get(file);
+		if(texture == null) {
+			texture = new Texture();
+			texture.packed = map(PackedTexture.nameFor(file));
+			if(texture.packed == null) {
+				texture.pixels = decode(file);
+				if(texture.pixels == null)
+					return 0;
+			}
+			
+			GLES11.glGenTextures(1, ids, 0);
+			texture.id = ids[0];
+			upload(texture);
+			textures.put(file, texture);
+		}
+		
+		texture.references++;
+		return texture.id;
+	}
+	
+	/**
+	 * Gets an atlas texture. A compiled atlas (name.ptex) is mapped, otherwise the assets are
+	 * packed into one page the first time it is asked for.
+	 * Look the sprites up with getAtlas(name) and release it with release(name).
+	 * 
+	 * @param name - the name to share the atlas under
+	 * @param files - the asset files to pack
+	 * @return - the GL texture name, or 0 if an asset could not be loaded or they don't fit
+	 */
+	public int acquireAtlas(String name, String... files) {
+		Texture texture = textures.get(name);
+		if(texture == null) {
+			texture = new Texture();
+			texture.packed = map(name + PackedTexture.EXTENSION);
+			if(texture.packed != null && texture.packed.atlas != null)
+				texture.atlas = texture.packed.atlas;
+			else {
+				texture.packed = null;
+				texture.atlas = new TextureAtlas();
+				texture.pixels = composite(texture.atlas, files);
+				if(texture.pixels == null)
+					return 0;
+			}
+			
+			GLES11.glGenTextures(1, ids, 0);
+			texture.id = ids[0];
+			upload(texture);
+			textures.put(name, texture);
+		}
+		
+		texture.references++;
+		return texture.id;
+	}
+	
+	/**
+	 * @param name - the name passed to acquireAtlas()
+	 * @return - the atlas layout, or null if no such atlas is loaded
+	 */
+	public TextureAtlas getAtlas(String name) {
+		Texture texture = textures.get(name);
+		return texture == null? null:texture.atlas;
+	}
+	
+	/**
+	 * Gives back a texture. The GL texture and its pixels are freed when nobody holds it anymore.
+	 * 
+	 * @param file - the asset file name passed to acquire(), or the atlas name passed to acquireAtlas()
+	 */
+	public void release(String file) {
+		Texture texture = textures.get(file);
+		if(texture == null)
+			return;
+		
+		if(--texture.references > 0)
+			return;
+		
+		ids[0] = texture.id;
+		GLES11.glDeleteTextures(1, ids, 0);
+		if(texture.pixels != null)
+			texture.pixels.recycle();
+		textures.remove(file);
+	}
+	
+	/**
+	 * Re-uploads every texture after the GL context has been recreated
+	 */
+	public void restore() {
+		for(Texture texture : textures.values())
+			upload(texture);
+	}
+	
+	/**
+	 * @param file - the asset file name
+	 * @return - how many holders the texture has, 0 if it is not loaded
+	 */
+	public int getReferences(String file) {
+		Texture texture = textures.get(file);
+		return texture == null? 0:texture.references;
+	}
+	
+	/**
+	 * Packs assets into an atlas page
+	 * 
+	 * @param atlas - an empty atlas to lay the sprites out in
+	 * @param files - the asset files
+	 * @return - the page, or null if an asset could not be loaded or they don't fit
+	 */
+	private Bitmap composite(TextureAtlas atlas, String[] files) {
+		if(files.length == 0)
+			return null;
+		
+		Bitmap[] sprites = new Bitmap[files.length];
+		Bitmap page = null;
+		for(int i=0; i<files.length; i++) {
+			sprites[i] = decode(files[i]);
+			if(sprites[i] == null)
+				break;
+			atlas.add(files[i], sprites[i].getWidth(), sprites[i].getHeight());
+		}
+		
+		if(sprites[files.length - 1] != null && atlas.pack()) {
+			page = Bitmap.createBitmap(atlas.getWidth(), atlas.getHeight(), Bitmap.Config.ARGB_8888);
+			Canvas canvas = new Canvas(page);
+			for(int i=0; i<files.length; i++) {
+				TextureAtlas.Region region = atlas.getRegion(files[i]);
+				canvas.drawBitmap(sprites[i], region.x, region.y, null);
+			}
+		}
+		
+		for(Bitmap sprite : sprites) {
+			if(sprite != null)
+				sprite.recycle();
+		}
+		return page;
+	}
+	
+	/**
+	 * Maps a compiled texture straight out of the APK
+	 * 
+	 * @param file - the .ptex asset
+	 * @return - the texture, or null if there is no such asset or it is compressed
+	 */
+	private PackedTexture map(String file) {
+		try {
+			AssetFileDescriptor descriptor = assets.openFd(file);
+			try {
+				FileInputStream is = descriptor.createInputStream();
+				try {
+					//The mapping outlives the stream and the descriptor
+					ByteBuffer mapped = is.getChannel().map(FileChannel.MapMode.READ_ONLY,
+							descriptor.getStartOffset(), descriptor.getLength());
+					return PackedTexture.read(mapped);
+				}
+				finally {
+					is.close();
+				}
+			}
+			finally {
+				descriptor.close();
+			}
+		}
+		catch(IOException IOerror) {
+			return null;
+		}
+	}
+	
+	private Bitmap decode(String file) {
+		try {
+			InputStream is = assets.open(file);
+			try {
+				BitmapFactory.Options opt = new BitmapFactory.Options();
+				opt.inDither = false;
+				opt.inPreferredConfig = Bitmap.Config.ARGB_8888;
+				return BitmapFactory.decodeStream(is, null, opt);
+			}
+			finally {
+				is.close();
+			}
+		}
+		catch(IOException IOerror) {
+			return null;
+		}
+	}
+	
+	private void upload(Texture texture) {
+		//Binding a name that isn't in use creates the texture object, which is how restore() keeps the old names
+		GLES11.glBindTexture(GLES11.GL_TEXTURE_2D, texture.id);
+		
+		boolean mipmapped = texture.packed != null && texture.packed.numLevels > 1;
+		GLES11.glTexParameterf(GLES11.GL_TEXTURE_2D, GLES11.GL_TEXTURE_MIN_FILTER,
+				mipmapped? GLES11.GL_LINEAR_MIPMAP_LINEAR:GLES11.GL_LINEAR);
+		GLES11.glTexParameterf(GLES11.GL_TEXTURE_2D, GLES11.GL_TEXTURE_MAG_FILTER, GLES11.GL_LINEAR);
+		GLES11.glTexParameterf(GLES11.GL_TEXTURE_2D, GLES11.GL_TEXTURE_WRAP_S, GLES11.GL_CLAMP_TO_EDGE);
+		GLES11.glTexParameterf(GLES11.GL_TEXTURE_2D, GLES11.GL_TEXTURE_WRAP_T, GLES11.GL_CLAMP_TO_EDGE);
+		
+		if(texture.packed == null) {
+			GLUtils.texImage2D(GLES11.GL_TEXTURE_2D, 0, texture.pixels, 0);
+			return;
+		}
+		
+		PackedTexture packed = texture.packed;
+		int format, type;
+		if(packed.format == PackedTexture.FORMAT.RGB565) {
+			format = GLES11.GL_RGB;
+			type = GLES11.GL_UNSIGNED_SHORT_5_6_5;
+		}
+		else {
+			format = GLES11.GL_RGBA;
+			type = GLES11.GL_UNSIGNED_BYTE;
+		}
+		
+		//Rows are tightly packed, and small 16 bit levels aren't 4 byte aligned
+		GLES11.glPixelStorei(GLES11.GL_UNPACK_ALIGNMENT, 1);
+		for(int level=0; level<packed.numLevels; level++)
+			GLES11.glTexImage2D(GLES11.GL_TEXTURE_2D, level, format, packed.getLevelWidth(level), packed.getLevelHeight(level),
+					0, format, type, packed.getLevel(level));
+		GLES11.glPixelStorei(GLES11.GL_UNPACK_ALIGNMENT, 4);
+	}
+}
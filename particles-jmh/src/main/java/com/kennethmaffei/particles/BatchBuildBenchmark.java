@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Quad preparation: expanding every live particle of a warmed up system into batch vertices.
+ * The GL upload and draw are not part of this; flush() only resets the batch.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBuildBenchmark {
+	
+	/**
+	 * Batch that discards its vertices instead of drawing them
+	 */
+	static class NullBatch extends ParticleBatch {
+		float checksum;
+		
+		NullBatch(int capacity) {
+			super(capacity);
+		}
+		
+		@Override
+		public void flush() {
+			//Read one vertex so the writes cannot be optimized away
+			if(numQuads > 0)
+				checksum+= vertices[(numQuads - 1)*FLOATS_PER_QUAD];
+			numQuads = 0;
+		}
+	}
+	
+	@Param({"GENERIC", "FIRE", "BLACK_SMOKE"})
+	public String type;
+	
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int particles;
+	
+	@Param({"SPHERICAL", "CYLINDRICAL"})
+	public Billboard.MODE mode;
+	
+	ParticleSystem system;
+	NullBatch batch;
+	
+	@Setup
+	public void setUp() {
+		system = BenchmarkSystems.create(type, particles, -1.0f);
+		BenchmarkSystems.warmUp(system);
+		
+		Billboard billboard = new Billboard();
+		float[] view = new float[16];
+		//Looking down -z from (0, 0, 1500), as in the demo
+		view[0] = view[5] = view[10] = view[15] = 1.0f;
+		view[14] = -1500.0f;
+		billboard.setView(view);
+		
+		batch = new NullBatch(particles);
+		batch.setBillboard(billboard);
+	}
+	
+	@Benchmark
+	public float build() {
+		batch.add(system.particles, system.numParticles, mode);
+		batch.flush();
+		return batch.checksum;
+	}
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Runs the benchmarks with the normal JMH command line, then prints every result
+ * divided by its particle count. ns/particle is the number to compare between changes;
+ * it is flat when a path scales linearly.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class BenchmarkMain {
+	
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		Collection<RunResult> results = new Runner(options).run();
+		
+		System.out.println();
+		System.out.println("Benchmark                      params                       particles   ns/particle");
+		for(RunResult result : results) {
+			String particles = result.getParams().getParam("particles");
+			if(particles == null)
+				continue;
+			
+			String params = result.getParams().getParam("type");
+			String mode = result.getParams().getParam("mode");
+			if(mode != null)
+				params+= " " + mode;
+			
+			double nsPerOp = result.getPrimaryResult().getScore();
+			int count = Integer.parseInt(particles);
+			System.out.println(String.format("%-30s %-28s %9d %13.3f",
+					result.getParams().getBenchmark().replace("com.kennethmaffei.particles.", ""),
+					params, count, nsPerOp/count));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+/**
+ * Builds the three demo systems the same way GLRenderer.build() does,
+ * but sized for a target particle count.
+ * The birth rate is chosen so the steady state population is about maxParticles.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class BenchmarkSystems {
+	
+	public static final String GENERIC = "GENERIC";
+	public static final String FIRE = "FIRE";
+	public static final String BLACK_SMOKE = "BLACK_SMOKE";
+	
+	public static final float FRAME_TIME = 1.0f/60.0f;
+	
+	/**
+	 * Creates and starts a system
+	 * 
+	 * @param type - GENERIC, FIRE or BLACK_SMOKE
+	 * @param maxParticles - the particle capacity
+	 * @param duration - system duration, -1.0f for a fixed system
+	 * @return - the started system
+	 */
+	public static ParticleSystem create(String type, int maxParticles, float duration) {
+		ParticleSystem system;
+		Vector3 origin = new Vector3(0.0f, -300.0f, 0.0f);
+		
+		if(GENERIC.equals(type)) {
+			GenericParticleSystem steam = new GenericParticleSystem();
+			steam.setStartColor(0.75f, 0.75f, 0.9f, 0.25f);
+			steam.setMidColor(0.75f, 0.75f, 0.9f, 0.15f);
+			steam.setEndColor(0.75f, 0.75f, 0.9f, 0.0f);
+			steam.setEmitterVolume(10.0f, 1.0f, 10.0f);
+			steam.setParticleSize(new Vector2(100.0f, 150.0f), new Vector2(200.0f, 800.0f));
+			steam.setSizeCurves(new Curve(0.0f).addKey(0.25f, 0.6f).addKey(1.0f, 1.0f),
+					new Curve(0.0f).addKey(0.5f, 0.4f).addKey(1.0f, 1.0f));
+			steam.setDragCurve(new Curve(0.0f).addKey(0.4f, 0.5f).addKey(1.0f, 2.5f));
+			//Average life is 1.0 + 0.5/2 seconds
+			steam.setParticleLife(maxParticles, maxParticles/1.25f, 1.0f, 0.5f);
+			steam.setMotion(new Vector3(0.0f, 1000.0f, 0.0f), new Vector3(150.0f, 30.0f, 150.0f), new Vector3(0.0f, -800.0f, 0.0f));
+			system = steam;
+		}
+		else if(FIRE.equals(type)) {
+			Fire fire = new Fire();
+			fire.setEmitterVolume(240.0f, 100.0f, 240.0f);
+			fire.setParticleSize(new Vector2(160.0f, 240.0f), new Vector2(120.0f, 600.0f));
+			//Fire drains life twice as fast, so average life is (2.0 + 0.5/2)/2 seconds
+			fire.setParticleLife(maxParticles, maxParticles/1.125f, 2.0f, 0.5f);
+			fire.setMotion(new Vector3(0.0f, 500.0f, 0.0f), new Vector3(120.0f, 180.0f, 120.0f), new Vector3());
+			system = fire;
+		}
+		else if(BLACK_SMOKE.equals(type)) {
+			BlackSmoke blackSmoke = new BlackSmoke();
+			blackSmoke.setEmitterVolume(100.0f, 50.0f, 100.0f);
+			blackSmoke.setParticleSize(new Vector2(100.0f, 180.0f), new Vector2(500.0f, 300.0f));
+			Curve billow = new Curve(0.0f).addKey(0.3f, 0.7f).addKey(1.0f, 1.0f);
+			blackSmoke.setSizeCurves(billow, billow);
+			blackSmoke.setDragCurve(new Curve(0.2f).addKey(1.0f, 1.2f));
+			//Black smoke ages twice as fast, so average life is (4.0 + 2.0/2)/2 seconds
+			blackSmoke.setParticleLife(maxParticles, maxParticles/2.5f, 4.0f, 2.0f);
+			blackSmoke.setMotion(new Vector3(0.0f, 250.0f, 0.0f), new Vector3(60.0f, 100.0f, 60.0f), new Vector3());
+			system = blackSmoke;
+		}
+		else
+			throw new IllegalArgumentException("Unknown system type: " + type);
+		
+		system.startSystem(origin, duration);
+		return system;
+	}
+	
+	/**
+	 * Runs a fixed system until its population has levelled out
+	 * 
+	 * @param system - the system to warm up
+	 */
+	public static void warmUp(ParticleSystem system) {
+		//A few particle lifetimes at 60 fps is plenty for every demo system
+		for(int i=0; i<600; i++)
+			system.update(FRAME_TIME);
+	}
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mass die-off: every particle of a full system dies in the same update.
+ * This exercises the swap-with-last compaction at its worst.
+ * The system is refilled before every invocation; at these particle counts an invocation
+ * takes far longer than the per-invocation setup overhead JMH warns about.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DieOffBenchmark {
+	
+	@Param({"GENERIC", "FIRE", "BLACK_SMOKE"})
+	public String type;
+	
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int particles;
+	
+	ParticleSystem system;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		//A transient system with no duration never emits from update(), so only the deaths are measured
+		system = BenchmarkSystems.create(type, particles, 0.0f);
+	}
+	
+	@Setup(Level.Invocation)
+	public void refill() {
+		system.killSystem();
+		system.updateSystem(particles, 0.0f);
+	}
+	
+	@Benchmark
+	public int dieOff() {
+		//Longer than any particle can live
+		system.update(100.0f);
+		return system.numParticles;
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heavy spawn: an empty system is filled to capacity in a single burst.
+ * This is the cost of initializeParticles, including the random number generation.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnBenchmark {
+	
+	@Param({"GENERIC", "FIRE", "BLACK_SMOKE"})
+	public String type;
+	
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int particles;
+	
+	ParticleSystem system;
+	
+	@Setup
+	public void setUp() {
+		system = BenchmarkSystems.create(type, particles, -1.0f);
+	}
+	
+	@Benchmark
+	public int spawn() {
+		//killSystem only resets the live count, so the cost measured is all spawning
+		system.killSystem();
+		system.burst(particles);
+		return system.numParticles;
+	}
+}
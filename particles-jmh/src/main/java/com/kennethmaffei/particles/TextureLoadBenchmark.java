@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cold start texture loading: decoding the demo's images versus mapping their compiled .ptex.
+ * Both end with texels ready for glTexImage2D. Decoding produces level 0 in a direct buffer,
+ * as GLUtils does; the mapped load touches every page of every level, as the upload would.
+ * 
+ * Single shots with no warmup in fresh JVMs, so the first iterations include class loading and
+ * the decoder's own start up, as an app launch does. The files will be in the OS page cache.
+ * ImageIO stands in for BitmapFactory here; compare the two paths, not the absolute numbers.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 10)
+@Fork(5)
+public class TextureLoadBenchmark {
+	
+	@Param({"particle_transp.jpg", "fire_pit.png"})
+	public String image;
+	
+	File source;
+	File packed;
+	
+	@Setup
+	public void setUp() throws IOException {
+		source = new File(System.getProperty("assets.dir", "Particles/assets"), image);
+		packed = File.createTempFile("bench", PackedTexture.EXTENSION);
+		TextureCompiler.compile(source, packed, false);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		packed.delete();
+	}
+	
+	@Benchmark
+	public ByteBuffer decode() throws IOException {
+		BufferedImage decoded = ImageIO.read(source);
+		int width = decoded.getWidth(), height = decoded.getHeight();
+		int[] argb = decoded.getRGB(0, 0, width, height, null, 0, width);
+		PackedTexture.premultiply(argb);
+		
+		ByteBuffer texels = ByteBuffer.allocateDirect(width*height*4).order(ByteOrder.nativeOrder());
+		texels.asIntBuffer().put(argb);
+		return texels;
+	}
+	
+	@Benchmark
+	public int mapped() throws IOException {
+		FileChannel channel = FileChannel.open(packed.toPath(), StandardOpenOption.READ);
+		try {
+			PackedTexture texture = PackedTexture.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			int touched = 0;
+			for(int level=0; level<texture.numLevels; level++) {
+				ByteBuffer texels = texture.getLevel(level);
+				for(int i=0; i<texels.limit(); i+= 4096)
+					touched+= texels.get(i);
+			}
+			return touched;
+		}
+		finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.kennethmaffei.particles;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steady state: one 60 fps frame of a fixed system whose population has levelled out.
+ * Deaths and births balance, so this is the per-frame cost of a running effect.
+ * With parallel=true the system updates on a fork-join pool (only kicks in for large systems).
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark {
+	
+	@Param({"GENERIC", "FIRE", "BLACK_SMOKE"})
+	public String type;
+	
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int particles;
+	
+	@Param({"false", "true"})
+	public boolean parallel;
+	
+	ParticleSystem system;
+	ForkJoinPool pool;
+	
+	@Setup
+	public void setUp() {
+		system = BenchmarkSystems.create(type, particles, -1.0f);
+		if(parallel) {
+			pool = new ForkJoinPool();
+			system.setParallelUpdate(pool);
+		}
+		BenchmarkSystems.warmUp(system);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		if(pool != null)
+			pool.shutdown();
+	}
+	
+	@Benchmark
+	public int steadyState() {
+		system.update(BenchmarkSystems.FRAME_TIME);
+		return system.numParticles;
+	}
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles JSON effect definitions into one binary EffectLibrary (.pfx), offline.
+ * Each .json file in the input directory holds one effect, named after the file unless it has a
+ * "name". Every member is optional and named like its EffectDefinition field:
+ * 
+ * type, texture, sprite, blendMode, billboardMode - strings, enums by constant name
+ * flipbook - {"columns": 4, "rows": 4, "cycles": 1}
+ * maxParticles, particlesPerSec, lifeTime, lifeTimeVariation, duration, windStrength,
+ * turbulence, turbulenceScale - numbers
+ * depthSorted, radial, freezeWhenCulled - booleans
+ * origin, emitterVolume, emitterVelocity, emitterAcceleration, velocity, velocityVariation,
+ * acceleration, gravity, wind - [x, y, z]
+ * startSize, endSize - [x, y]
+ * speedCurve, dragCurve, sizeCurveX, sizeCurveY - [[age, value], ...]
+ * colors - [[age, r, g, b, a], ...]
+ * bursts - [[time, count], ...]
+ * 
+ * Unknown members are errors, so a typo can't silently drop a setting.
+ * 
+ * Usage: EffectCompiler -in dir -out file.pfx
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class EffectCompiler {
+	
+	public static void main(String[] args) throws IOException {
+		File in = null;
+		File out = null;
+		for(int i=0; i<args.length; i++) {
+			if(args[i].equals("-in"))
+				in = new File(args[++i]);
+			else if(args[i].equals("-out"))
+				out = new File(args[++i]);
+		}
+		if(in == null || out == null) {
+			System.err.println("Usage: EffectCompiler -in dir -out file" + EffectLibrary.EXTENSION);
+			System.exit(1);
+		}
+		
+		File[] files = in.listFiles();
+		if(files == null)
+			throw new IOException("Can't read " + in);
+		Arrays.sort(files);
+		List<File> sources = new ArrayList<File>();
+		for(File file : files) {
+			if(file.getName().endsWith(".json"))
+				sources.add(file);
+		}
+		compile(sources, out);
+	}
+	
+	/**
+	 * Compiles effect definitions into a library
+	 * 
+	 * @param sources - the .json files, one effect each
+	 * @param target - the library to write
+	 * @throws IOException - if a definition is invalid
+	 */
+	public static void compile(List<File> sources, File target) throws IOException {
+		List<EffectDefinition> effects = new ArrayList<EffectDefinition>();
+		HashSet<String> names = new HashSet<String>();
+		for(File source : sources) {
+			EffectDefinition effect;
+			try {
+				String text = new String(Files.readAllBytes(source.toPath()), "UTF-8");
+				String name = source.getName().substring(0, source.getName().length() - ".json".length());
+				effect = parse(JsonReader.parse(text), name);
+			}
+			catch(IOException e) {
+				throw new IOException(source.getName() + ": " + e.getMessage(), e);
+			}
+			if(!names.add(effect.name))
+				throw new IOException(source.getName() + ": a second effect named " + effect.name);
+			effects.add(effect);
+		}
+		
+		File directory = target.getAbsoluteFile().getParentFile();
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Can't create " + directory);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+		try {
+			EffectLibrary.write(out, effects);
+		}
+		finally {
+			out.close();
+		}
+		System.out.println(target.getName() + ": " + effects.size() + " effects, " + target.length() + " bytes");
+	}
+	
+	/**
+	 * Converts one parsed JSON effect into a definition
+	 * 
+	 * @param json - the parsed document
+	 * @param name - the name to use if the document has none
+	 * @return - the definition
+	 * @throws IOException - if the document is not a valid effect
+	 */
+	static EffectDefinition parse(Object json, String name) throws IOException {
+		if(!(json instanceof Map))
+			throw new IOException("An effect must be a JSON object");
+		
+		EffectDefinition e = new EffectDefinition();
+		e.name = name;
+		for(Map.Entry<?, ?> member : ((Map<?, ?>) json).entrySet()) {
+			String key = (String) member.getKey();
+			Object value = member.getValue();
+			if(key.equals("name"))
+				e.name = string(key, value);
+			else if(key.equals("type"))
+				e.type = EffectDefinition.TYPE.valueOf(constant(key, value, EffectDefinition.TYPE.values()));
+			else if(key.equals("texture"))
+				e.texture = string(key, value);
+			else if(key.equals("sprite"))
+				e.sprite = string(key, value);
+			else if(key.equals("flipbook")) {
+				if(!(value instanceof Map))
+					throw new IOException("flipbook must be an object");
+				for(Map.Entry<?, ?> frame : ((Map<?, ?>) value).entrySet()) {
+					String frameKey = (String) frame.getKey();
+					if(frameKey.equals("columns"))
+						e.flipbookColumns = (int) number(frameKey, frame.getValue());
+					else if(frameKey.equals("rows"))
+						e.flipbookRows = (int) number(frameKey, frame.getValue());
+					else if(frameKey.equals("cycles"))
+						e.flipbookCycles = number(frameKey, frame.getValue());
+					else
+						throw new IOException("Unknown flipbook member " + frameKey);
+				}
+			}
+			else if(key.equals("blendMode"))
+				e.blendMode = ParticleSystem.BLEND_MODE.valueOf(constant(key, value, ParticleSystem.BLEND_MODE.values()));
+			else if(key.equals("billboardMode"))
+				e.billboardMode = Billboard.MODE.valueOf(constant(key, value, Billboard.MODE.values()));
+			else if(key.equals("depthSorted"))
+				e.depthSorted = bool(key, value);
+			else if(key.equals("maxParticles"))
+				e.maxParticles = (int) number(key, value);
+			else if(key.equals("particlesPerSec"))
+				e.particlesPerSec = number(key, value);
+			else if(key.equals("lifeTime"))
+				e.lifeTime = number(key, value);
+			else if(key.equals("lifeTimeVariation"))
+				e.lifeTimeVariation = number(key, value);
+			else if(key.equals("duration"))
+				e.duration = number(key, value);
+			else if(key.equals("origin"))
+				e.origin = vector(key, value, 3);
+			else if(key.equals("emitterVolume"))
+				e.emitterVolume = vector(key, value, 3);
+			else if(key.equals("emitterVelocity"))
+				e.emitterVelocity = vector(key, value, 3);
+			else if(key.equals("emitterAcceleration"))
+				e.emitterAcceleration = vector(key, value, 3);
+			else if(key.equals("radial"))
+				e.radial = bool(key, value);
+			else if(key.equals("freezeWhenCulled"))
+				e.freezeWhenCulled = bool(key, value);
+			else if(key.equals("bursts"))
+				e.bursts = rows(key, value, 2);
+			else if(key.equals("velocity"))
+				e.velocity = vector(key, value, 3);
+			else if(key.equals("velocityVariation"))
+				e.velocityVariation = vector(key, value, 3);
+			else if(key.equals("acceleration"))
+				e.acceleration = vector(key, value, 3);
+			else if(key.equals("gravity"))
+				e.gravity = vector(key, value, 3);
+			else if(key.equals("wind"))
+				e.wind = vector(key, value, 3);
+			else if(key.equals("windStrength"))
+				e.windStrength = number(key, value);
+			else if(key.equals("turbulence"))
+				e.turbulence = number(key, value);
+			else if(key.equals("turbulenceScale"))
+				e.turbulenceScale = number(key, value);
+			else if(key.equals("speedCurve"))
+				e.speedCurve = rows(key, value, 2);
+			else if(key.equals("dragCurve"))
+				e.dragCurve = rows(key, value, 2);
+			else if(key.equals("startSize"))
+				e.startSize = vector(key, value, 2);
+			else if(key.equals("endSize"))
+				e.endSize = vector(key, value, 2);
+			else if(key.equals("sizeCurveX"))
+				e.sizeCurveX = rows(key, value, 2);
+			else if(key.equals("sizeCurveY"))
+				e.sizeCurveY = rows(key, value, 2);
+			else if(key.equals("colors"))
+				e.colors = rows(key, value, 5);
+			else
+				throw new IOException("Unknown member " + key);
+		}
+		
+		if(e.maxParticles <= 0)
+			throw new IOException("maxParticles must be positive");
+		if(e.lifeTime <= 0.0f)
+			throw new IOException("lifeTime must be positive");
+		if(e.flipbookColumns < 1 || e.flipbookRows < 1)
+			throw new IOException("flipbook columns and rows must be at least 1");
+		if(e.turbulenceScale <= 0.0f)
+			throw new IOException("turbulenceScale must be positive");
+		return e;
+	}
+	
+	private static String string(String key, Object value) throws IOException {
+		if(!(value instanceof String))
+			throw new IOException(key + " must be a string");
+		return (String) value;
+	}
+	
+	private static boolean bool(String key, Object value) throws IOException {
+		if(!(value instanceof Boolean))
+			throw new IOException(key + " must be true or false");
+		return (Boolean) value;
+	}
+	
+	private static float number(String key, Object value) throws IOException {
+		if(!(value instanceof Double))
+			throw new IOException(key + " must be a number");
+		return ((Double) value).floatValue();
+	}
+	
+	private static String constant(String key, Object value, Enum<?>[] constants) throws IOException {
+		String name = string(key, value);
+		for(Enum<?> constant : constants) {
+			if(constant.name().equals(name))
+				return name;
+		}
+		throw new IOException(key + " must be one of " + Arrays.toString(constants));
+	}
+	
+	private static float[] vector(String key, Object value, int size) throws IOException {
+		if(!(value instanceof List) || ((List<?>) value).size() != size)
+			throw new IOException(key + " must be an array of " + size + " numbers");
+		List<?> list = (List<?>) value;
+		float[] vector = new float[size];
+		for(int i=0; i<size; i++)
+			vector[i] = number(key, list.get(i));
+		return vector;
+	}
+	
+	private static float[] rows(String key, Object value, int size) throws IOException {
+		if(!(value instanceof List))
+			throw new IOException(key + " must be an array of [" + size + " numbers] rows");
+		List<?> list = (List<?>) value;
+		float[] rows = new float[list.size()*size];
+		for(int i=0; i<list.size(); i++)
+			System.arraycopy(vector(key, list.get(i), size), 0, rows, i*size, size);
+		return rows;
+	}
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small JSON parser for the offline tools, so they need no third party libraries.
+ * Objects become LinkedHashMaps, arrays ArrayLists, numbers Doubles, and true, false and null
+ * Booleans and null. Duplicate member names are errors. Errors report the line they were found on.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+class JsonReader {
+	private final String text;
+	private int position;
+	
+	private JsonReader(String text) {
+		this.text = text;
+	}
+	
+	/**
+	 * Parses a JSON document
+	 * 
+	 * @param text - the document
+	 * @return - the top level value
+	 * @throws IOException - if the document is not valid JSON
+	 */
+	static Object parse(String text) throws IOException {
+		JsonReader reader = new JsonReader(text);
+		Object value = reader.value();
+		reader.skipWhitespace();
+		if(reader.position < text.length())
+			throw reader.error("Unexpected text after the document");
+		return value;
+	}
+	
+	private Object value() throws IOException {
+		skipWhitespace();
+		if(position >= text.length())
+			throw error("Unexpected end of document");
+		
+		char c = text.charAt(position);
+		switch(c) {
+			case '{':
+				return object();
+			case '[':
+				return array();
+			case '"':
+				return string();
+			case 't':
+				return literal("true", Boolean.TRUE);
+			case 'f':
+				return literal("false", Boolean.FALSE);
+			case 'n':
+				return literal("null", null);
+			default:
+				if(c == '-' || (c >= '0' && c <= '9'))
+					return number();
+				throw error("Unexpected '" + c + "'");
+		}
+	}
+	
+	private Map<String, Object> object() throws IOException {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		position++;
+		skipWhitespace();
+		if(peek() == '}') {
+			position++;
+			return map;
+		}
+		while(true) {
+			skipWhitespace();
+			if(peek() != '"')
+				throw error("Expected a member name");
+			String name = string();
+			if(map.containsKey(name))
+				throw error("Duplicate member " + name);
+			skipWhitespace();
+			expect(':');
+			map.put(name, value());
+			skipWhitespace();
+			if(peek() == ',') {
+				position++;
+				continue;
+			}
+			expect('}');
+			return map;
+		}
+	}
+	
+	private List<Object> array() throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		position++;
+		skipWhitespace();
+		if(peek() == ']') {
+			position++;
+			return list;
+		}
+		while(true) {
+			list.add(value());
+			skipWhitespace();
+			if(peek() == ',') {
+				position++;
+				continue;
+			}
+			expect(']');
+			return list;
+		}
+	}
+	
+	private String string() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		position++;
+		while(true) {
+			if(position >= text.length())
+				throw error("Unterminated string");
+			char c = text.charAt(position++);
+			if(c == '"')
+				return builder.toString();
+			if(c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			
+			if(position >= text.length())
+				throw error("Unterminated string");
+			char escape = text.charAt(position++);
+			switch(escape) {
+				case 'b': builder.append('\b'); break;
+				case 'f': builder.append('\f'); break;
+				case 'n': builder.append('\n'); break;
+				case 'r': builder.append('\r'); break;
+				case 't': builder.append('\t'); break;
+				case 'u':
+					if(position + 4 > text.length())
+						throw error("Bad unicode escape");
+					int code = 0;
+					for(int i=0; i<4; i++) {
+						int digit = Character.digit(text.charAt(position + i), 16);
+						if(digit < 0)
+							throw error("Bad unicode escape \\u" + text.substring(position, position + 4));
+						code = code*16 + digit;
+					}
+					builder.append((char) code);
+					position+= 4;
+					break;
+				default:
+					builder.append(escape);
+			}
+		}
+	}
+	
+	private Double number() throws IOException {
+		int start = position;
+		while(position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0)
+			position++;
+		try {
+			return Double.valueOf(text.substring(start, position));
+		}
+		catch(NumberFormatException e) {
+			throw error("Bad number " + text.substring(start, position));
+		}
+	}
+	
+	private Object literal(String word, Object value) throws IOException {
+		if(!text.startsWith(word, position))
+			throw error("Unexpected '" + text.charAt(position) + "'");
+		position+= word.length();
+		return value;
+	}
+	
+	private void skipWhitespace() {
+		while(position < text.length() && Character.isWhitespace(text.charAt(position)))
+			position++;
+	}
+	
+	private char peek() {
+		return position < text.length()? text.charAt(position):0;
+	}
+	
+	private void expect(char c) throws IOException {
+		if(peek() != c)
+			throw error("Expected '" + c + "'");
+		position++;
+	}
+	
+	private IOException error(String message) {
+		int line = 1;
+		for(int i=0; i<position && i<text.length(); i++) {
+			if(text.charAt(i) == '\n')
+				line++;
+		}
+		return new IOException(message + " on line " + line);
+	}
+}
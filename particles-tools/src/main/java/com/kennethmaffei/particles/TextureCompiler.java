@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.kennethmaffei.particles;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Converts images into .ptex packed textures, offline.
+ * Opaque images are stored as RGB565, anything with transparency as RGBA8888, both with a full
+ * mip chain when the size is a power of two. Several images can also be packed into one atlas
+ * page, which keeps its sprite layout.
+ * 
+ * Usage: TextureCompiler -in dir -out dir [-rgba] image... [-atlas name image,image...]...
+ * 
+ * -rgba keeps every following texture at 8 bits per channel, even when it is opaque.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class TextureCompiler {
+	private static final int ATLAS_PADDING = 4;      //Enough gap for the first 3 mip levels
+	
+	//One output file: a single image, or an atlas of several
+	private static class Job {
+		String name;
+		String[] images;                             //null for a single image
+		boolean rgba;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		File in = new File(".");
+		File out = new File(".");
+		boolean rgba = false;
+		ArrayList<Job> jobs = new ArrayList<Job>();
+		
+		for(int i=0; i<args.length; i++) {
+			if(args[i].equals("-in"))
+				in = new File(args[++i]);
+			else if(args[i].equals("-out"))
+				out = new File(args[++i]);
+			else if(args[i].equals("-rgba"))
+				rgba = true;
+			else {
+				Job job = new Job();
+				job.rgba = rgba;
+				if(args[i].equals("-atlas")) {
+					job.name = args[++i];
+					job.images = args[++i].split(",");
+				}
+				else
+					job.name = args[i];
+				jobs.add(job);
+			}
+		}
+		
+		if(jobs.isEmpty()) {
+			System.err.println("Usage: TextureCompiler -in dir -out dir [-rgba] image... [-atlas name image,image...]...");
+			System.exit(1);
+		}
+		
+		if(!out.isDirectory() && !out.mkdirs())
+			throw new IOException("Can't create " + out);
+		
+		for(Job job : jobs) {
+			if(job.images != null) {
+				File[] files = new File[job.images.length];
+				for(int f=0; f<files.length; f++)
+					files[f] = new File(in, job.images[f]);
+				compileAtlas(files, new File(out, job.name + PackedTexture.EXTENSION), job.rgba);
+			}
+			else
+				compile(new File(in, job.name), new File(out, PackedTexture.nameFor(job.name)), job.rgba);
+		}
+	}
+	
+	/**
+	 * Converts one image
+	 * 
+	 * @param image - the source image
+	 * @param target - the .ptex file to write
+	 * @param forceRgba - store 8 bits per channel even if the image is opaque
+	 * @throws IOException
+	 */
+	public static void compile(File image, File target, boolean forceRgba) throws IOException {
+		BufferedImage source = read(image);
+		int width = source.getWidth(), height = source.getHeight();
+		int[] argb = pixels(source);
+		
+		write(target, argb, width, height, format(argb, forceRgba), PackedTexture.countLevels(width, height), null);
+	}
+	
+	/**
+	 * Packs several images into one atlas page.
+	 * The sprites are named after their files, as TextureManager.acquireAtlas() names them.
+	 * 
+	 * @param images - the source images
+	 * @param target - the .ptex file to write
+	 * @param forceRgba - store 8 bits per channel even if every image is opaque
+	 * @throws IOException
+	 */
+	public static void compileAtlas(File[] images, File target, boolean forceRgba) throws IOException {
+		TextureAtlas atlas = new TextureAtlas();
+		atlas.setPadding(ATLAS_PADDING);
+		BufferedImage[] sources = new BufferedImage[images.length];
+		for(int i=0; i<images.length; i++) {
+			sources[i] = read(images[i]);
+			atlas.add(images[i].getName(), sources[i].getWidth(), sources[i].getHeight());
+		}
+		if(!atlas.pack())
+			throw new IOException("The images for " + target.getName() + " don't fit on one page");
+		
+		int width = atlas.getWidth(), height = atlas.getHeight();
+		int[] page = new int[width*height];
+		for(int i=0; i<images.length; i++) {
+			TextureAtlas.Region region = atlas.getRegion(images[i].getName());
+			int[] argb = pixels(sources[i]);
+			for(int y=0; y<region.height; y++)
+				System.arraycopy(argb, y*region.width, page, (region.y + y)*width + region.x, region.width);
+		}
+		
+		//Stop the mip chain before neighbouring sprites filter into each other
+		int levels = 1;
+		while(levels < PackedTexture.countLevels(width, height) && (ATLAS_PADDING >> levels) > 0)
+			levels++;
+		
+		write(target, page, width, height, format(page, forceRgba), levels, atlas);
+	}
+	
+	private static BufferedImage read(File image) throws IOException {
+		BufferedImage source = ImageIO.read(image);
+		if(source == null)
+			throw new IOException("Can't read " + image);
+		return source;
+	}
+	
+	private static int[] pixels(BufferedImage source) {
+		int[] argb = source.getRGB(0, 0, source.getWidth(), source.getHeight(), null, 0, source.getWidth());
+		PackedTexture.premultiply(argb);
+		return argb;
+	}
+	
+	private static PackedTexture.FORMAT format(int[] argb, boolean forceRgba) {
+		return !forceRgba && PackedTexture.isOpaque(argb)? PackedTexture.FORMAT.RGB565:PackedTexture.FORMAT.RGBA8888;
+	}
+	
+	private static void write(File target, int[] argb, int width, int height, PackedTexture.FORMAT format, int levels,
+			TextureAtlas atlas) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+		try {
+			PackedTexture.write(out, argb, width, height, format, levels, atlas);
+		}
+		finally {
+			out.close();
+		}
+		System.out.println(target.getName() + ": " + width + "x" + height + " " + format + ", " + levels + " levels");
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compiles effect definitions and checks the systems they build against hand written ones.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class EffectCompilerTest {
+	private static final long SEED = 20140601L;
+	private static final float FRAME_TIME = 1.0f/60.0f;
+	private static final int FRAMES = 300;
+	
+	private static final File EFFECT_DIR = new File(System.getProperty("effects.dir", "../Particles/effects"));
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void steamMatchesHandBuiltSystem() throws IOException {
+		File library = new File(folder.getRoot(), "steam" + EffectLibrary.EXTENSION);
+		EffectCompiler.compile(Collections.singletonList(new File(EFFECT_DIR, "steam.json")), library);
+		EffectLibrary effects = EffectLibrary.read(ByteBuffer.wrap(Files.readAllBytes(library.toPath())));
+		assertEquals(1, effects.getNumEffects());
+		
+		ParticleSystem compiled = effects.get("steam").create(1, null);
+		compiled.setSeed(SEED);
+		
+		//The demo's steam as it was built in code before effects were data
+		GenericParticleSystem steam = new GenericParticleSystem();
+		steam.setTexture(1);
+		steam.setStartColor(0.75f, 0.75f, 0.9f, 0.25f);
+		steam.setMidColor(0.75f, 0.75f, 0.9f, 0.15f);
+		steam.setEndColor(0.75f, 0.75f, 0.9f, 0.0f);
+		steam.setEmitterVolume(10.0f, 1.0f, 10.0f);
+		steam.setParticleSize(new Vector2(100.0f, 150.0f), new Vector2(200.0f, 800.0f));
+		steam.setSizeCurves(new Curve(0.0f).addKey(0.25f, 0.6f).addKey(1.0f, 1.0f),
+				new Curve(0.0f).addKey(0.5f, 0.4f).addKey(1.0f, 1.0f));
+		steam.setDragCurve(new Curve(0.0f).addKey(0.4f, 0.5f).addKey(1.0f, 2.5f));
+		steam.getPipeline().addForceField(ForceField.turbulence(EffectDefinition.getTurbulenceGrid(), 900.0f, 40.0f));
+		steam.setParticleLife(200, 55, 1.0f, 0.5f);
+		steam.setMotion(new Vector3(0.0f, 1000.0f, 0.0f), new Vector3(150.0f, 30.0f, 150.0f), new Vector3(0.0f, -800.0f, 0.0f));
+		steam.setSeed(SEED);
+		steam.startSystem(new Vector3(0.0f, -300.0f, 0.0f), -1.0f);
+		
+		for(int frame=0; frame<FRAMES; frame++) {
+			compiled.update(FRAME_TIME);
+			steam.update(FRAME_TIME);
+		}
+		assertTrue("Steam should be running", steam.numParticles > 0);
+		assertNull(StateSnapshot.capture(compiled).compare(StateSnapshot.capture(steam), 0.0f));
+	}
+	
+	@Test
+	public void everyDemoEffectCompiles() throws IOException {
+		File[] sources = EFFECT_DIR.listFiles();
+		assertTrue("No effects in " + EFFECT_DIR, sources != null && sources.length > 0);
+		for(File source : sources) {
+			String name = source.getName().substring(0, source.getName().length() - ".json".length());
+			EffectDefinition effect = EffectCompiler.parse(JsonReader.parse(read(source)), name);
+			assertEquals(name, effect.name);
+		}
+	}
+	
+	@Test
+	public void zeroFlipbookColumnsAreRejected() {
+		assertRejected("{\"flipbook\": {\"columns\": 0, \"rows\": 4}}", "flipbook columns and rows must be at least 1");
+	}
+	
+	@Test
+	public void zeroFlipbookRowsAreRejected() {
+		assertRejected("{\"flipbook\": {\"columns\": 4, \"rows\": 0}}", "flipbook columns and rows must be at least 1");
+	}
+	
+	@Test
+	public void unknownMembersAreRejected() {
+		assertRejected("{\"lifetime\": 2}", "Unknown member lifetime");
+	}
+	
+	@Test
+	public void badEnumsAreRejected() {
+		assertRejected("{\"type\": \"SMOKE\"}", "type must be one of [GENERIC, FIRE, BLACK_SMOKE]");
+	}
+	
+	@Test
+	public void nonPositiveLifeTimeIsRejected() {
+		assertRejected("{\"lifeTime\": 0}", "lifeTime must be positive");
+	}
+	
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+	
+	private static void assertRejected(String json, String message) {
+		try {
+			EffectCompiler.parse(JsonReader.parse(json), "test");
+			fail("Expected the effect to be rejected: " + message);
+		}
+		catch(IOException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2014 Kenneth Maffei
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.kennethmaffei.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Checks the offline tools' JSON parser, and that malformed documents fail with its own errors.
+ * 
+ * @author Kenneth Maffei
+ *
+ */
+public class JsonReaderTest {
+	
+	@Test
+	public void parsesEveryValueType() throws IOException {
+		Object json = JsonReader.parse("{\"a\": [1, -2.5, 3e2], \"b\": \"x\\ty\\u00e9\", \"c\": true, \"d\": false, \"e\": null, \"f\": {}}");
+		Map<?, ?> map = (Map<?, ?>) json;
+		assertEquals(Arrays.asList(1.0, -2.5, 300.0), map.get("a"));
+		assertEquals("x\ty\u00e9", map.get("b"));
+		assertEquals(Boolean.TRUE, map.get("c"));
+		assertEquals(Boolean.FALSE, map.get("d"));
+		assertNull(map.get("e"));
+		assertEquals(0, ((Map<?, ?>) map.get("f")).size());
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), Arrays.asList(map.keySet().toArray()));
+		assertEquals(0, ((List<?>) JsonReader.parse(" [ ] ")).size());
+	}
+	
+	@Test
+	public void badUnicodeEscapeIsAParseError() {
+		assertRejected("{\n\"name\": \"\\u12G4\"}", "Bad unicode escape \\u12G4 on line 2");
+	}
+	
+	@Test
+	public void signedUnicodeEscapeIsAParseError() {
+		assertRejected("\"\\u+123\"", "Bad unicode escape \\u+123 on line 1");
+	}
+	
+	@Test
+	public void shortUnicodeEscapeIsAParseError() {
+		assertRejected("\"\\u12", "Bad unicode escape on line 1");
+	}
+	
+	@Test
+	public void duplicateMembersAreRejected() {
+		assertRejected("{\"lifeTime\": 1,\n\n\"lifeTime\": 2}", "Duplicate member lifeTime on line 3");
+	}
+	
+	@Test
+	public void trailingTextIsRejected() {
+		assertRejected("{} {}", "Unexpected text after the document on line 1");
+	}
+	
+	@Test
+	public void badNumberIsRejected() {
+		assertRejected("[1.2.3]", "Bad number 1.2.3 on line 1");
+	}
+	
+	private static void assertRejected(String json, String message) {
+		try {
+			JsonReader.parse(json);
+			fail("Expected the document to be rejected: " + message);
+		}
+		catch(IOException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+}